@@ -0,0 +1,130 @@
+-- Онлайн-перенос restaurants в секционированную таблицу для больших баз.
+-- Запускается через psql до обновления приложения:
+--   psql -v batch=50000 -f scripts/restaurants-partitioning-online.sql restaurant
+-- Функции из db.restaurants-partition-functions.sql должны быть уже созданы (changeSet 20261018-03).
+-- Старая таблица остается доступной на чтение и запись до короткой блокировки на шаге 4.
+\set ON_ERROR_STOP on
+\if :{?batch}
+\else
+\set batch 50000
+\endif
+set restaurants.batch = :'batch';
+
+-- 1. Новая секционированная таблица рядом со старой
+create table if not exists restaurants_partitioned
+(
+    id bigint default nextval('res_id_seq'::regclass) not null,
+    name varchar(100) not null,
+    city varchar(30) not null,
+    city_key varchar(30) not null,
+    estimated_cost int,
+    average_rating numeric(9, 5),
+    votes int,
+    constraint restaurants_partitioned_pkey primary key (city_key, id),
+    constraint restaurants_partitioned_city_key_check check (city_key = lower(city))
+) partition by list (city_key);
+create table if not exists restaurants_partitioned_default partition of restaurants_partitioned default;
+create index if not exists idx_restaurants_partitioned_id on restaurants_partitioned (id);
+create index if not exists idx_restaurants_partitioned_city_key_name on restaurants_partitioned (city_key, name);
+
+-- Секции для всех известных городов создаются до копирования, чтобы строки не проходили через секцию по умолчанию
+do
+$$
+    declare
+        v_city_key text;
+        v_partition text;
+    begin
+        for v_city_key in select distinct lower(city) from restaurants
+            loop
+                v_partition := restaurants_partition_name(v_city_key);
+                if to_regclass(v_partition) is null then
+                    execute format('create table %I partition of restaurants_partitioned for values in (%L)',
+                                   v_partition, v_city_key);
+                end if;
+            end loop;
+    end
+$$;
+
+-- 2. Изменения старой таблицы зеркалируются в новую, пока идет копирование
+create or replace function restaurants_mirror() returns trigger
+    language plpgsql as
+$$
+begin
+    if tg_op in ('UPDATE', 'DELETE') then
+        delete from restaurants_partitioned where city_key = lower(old.city) and id = old.id;
+    end if;
+    if tg_op in ('INSERT', 'UPDATE') then
+        insert into restaurants_partitioned (id, name, city, city_key, estimated_cost, average_rating, votes)
+        values (new.id, new.name, new.city, lower(new.city), new.estimated_cost, new.average_rating, new.votes)
+        on conflict (city_key, id) do update
+            set name           = excluded.name,
+                city           = excluded.city,
+                estimated_cost = excluded.estimated_cost,
+                average_rating = excluded.average_rating,
+                votes          = excluded.votes;
+    end if;
+    return null;
+end;
+$$;
+drop trigger if exists restaurants_mirror on restaurants;
+create trigger restaurants_mirror
+    after insert or update or delete
+    on restaurants
+    for each row
+execute function restaurants_mirror();
+
+-- 3. Копирование пачками по id; каждая пачка фиксируется отдельно, поэтому блокировки короткие.
+--    Уже зеркалированные строки не перезаписываются: в новой таблице они не старее копируемых.
+do
+$$
+    declare
+        v_last bigint := 0;
+        v_max bigint;
+        v_batch bigint := current_setting('restaurants.batch')::bigint;
+    begin
+        select coalesce(max(id), 0) into v_max from restaurants;
+        while v_last < v_max
+            loop
+                insert into restaurants_partitioned (id, name, city, city_key, estimated_cost, average_rating, votes)
+                select id, name, city, lower(city), estimated_cost, average_rating, votes
+                from restaurants
+                where id > v_last and id <= v_last + v_batch
+                on conflict (city_key, id) do nothing;
+                v_last := v_last + v_batch;
+                commit;
+            end loop;
+    end
+$$;
+
+-- 4. Проверка и переключение имен в одной короткой транзакции
+begin;
+lock table restaurants in share row exclusive mode;
+do
+$$
+    declare
+        v_old bigint;
+        v_new bigint;
+    begin
+        select count(*) into v_old from restaurants;
+        select count(*) into v_new from restaurants_partitioned;
+        if v_old <> v_new then
+            raise exception 'Row count mismatch: % rows in restaurants, % in restaurants_partitioned', v_old, v_new;
+        end if;
+    end
+$$;
+drop trigger restaurants_mirror on restaurants;
+alter table restaurants rename to restaurants_unpartitioned;
+alter table restaurants_unpartitioned rename constraint restaurant_pkey to restaurants_unpartitioned_pkey;
+drop index if exists idx_fk_restaurants_city;
+drop index if exists idx_restaurants_lower_city;
+alter table restaurants_partitioned rename to restaurants;
+alter table restaurants rename constraint restaurants_partitioned_pkey to restaurant_pkey;
+alter table restaurants rename constraint restaurants_partitioned_city_key_check to restaurants_city_key_check;
+alter table restaurants_partitioned_default rename to restaurants_default;
+alter index idx_restaurants_partitioned_id rename to idx_restaurants_id;
+alter index idx_restaurants_partitioned_city_key_name rename to idx_restaurants_city_key_name;
+commit;
+
+drop function restaurants_mirror();
+-- restaurants_unpartitioned удаляется вручную после проверки приложения:
+--   drop table restaurants_unpartitioned;
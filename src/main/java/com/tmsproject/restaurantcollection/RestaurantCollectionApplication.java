@@ -1,13 +1,30 @@
 package com.tmsproject.restaurantcollection;
 
+import com.tmsproject.restaurantcollection.bulk.BulkLoadCommand;
+import com.tmsproject.restaurantcollection.dedup.DuplicateScanCommand;
+import com.tmsproject.restaurantcollection.storage.sharding.ShardRebalanceCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
 
 @SpringBootApplication
 public class RestaurantCollectionApplication {
 
+    // Тренировочный запуск для AppCDS: поднять контекст и сразу завершиться
+    static final String TRAINING_RUN_PROPERTY = "restaurant.startup.training-run";
+
     public static void main(String[] args) {
-        SpringApplication.run(RestaurantCollectionApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(RestaurantCollectionApplication.class, args);
+        Environment environment = context.getEnvironment();
+        // Массовая загрузка, поиск дублей и перебалансировка - разовые запуски, приложение завершается после них
+        // с их кодом
+        if (Boolean.getBoolean(TRAINING_RUN_PROPERTY)
+                || environment.containsProperty(BulkLoadCommand.FILE_PROPERTY)
+                || environment.containsProperty(DuplicateScanCommand.REPORT_PROPERTY)
+                || environment.getProperty(ShardRebalanceCommand.REBALANCE_PROPERTY, Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
@@ -0,0 +1,59 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Запуск массовой загрузки из командной строки: {@code --restaurant.bulk-load.file=partners.csv}.
+ * После загрузки приложение завершается; код выхода 1 означает, что загрузка откатилась.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(BulkLoadCommand.FILE_PROPERTY)
+public class BulkLoadCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String FILE_PROPERTY = "restaurant.bulk-load.file";
+
+    private final RestaurantBulkLoader loader;
+    private final Path file;
+    private final BulkLoadFormat format;
+    private final Path rejectsFile;
+
+    private int exitCode;
+
+    public BulkLoadCommand(RestaurantBulkLoader loader,
+                           @Value("${" + FILE_PROPERTY + "}") String file,
+                           @Value("${restaurant.bulk-load.format:}") String format,
+                           @Value("${restaurant.bulk-load.rejects-file:}") String rejectsFile) {
+        this.loader = loader;
+        this.file = Path.of(file);
+        this.format = format.isBlank() ? BulkLoadFormat.fromFileName(file) : BulkLoadFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        this.rejectsFile = Path.of(rejectsFile.isBlank() ? file + ".rejects.csv" : rejectsFile);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            BulkLoadReport report = loader.load(file, format, rejectsFile);
+            if (report.rejected() > 0) {
+                log.warn("Bulk load rejected records.; count: {}; report: {}", report.rejected(), rejectsFile);
+            }
+        } catch (Exception e) {
+            exitCode = 1;
+            log.error("Bulk load failed, nothing was loaded.; file: {}", file, e);
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
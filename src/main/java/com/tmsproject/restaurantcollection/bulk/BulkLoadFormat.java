@@ -0,0 +1,25 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import java.util.Locale;
+
+/**
+ * Формат входного файла массовой загрузки.
+ */
+public enum BulkLoadFormat {
+    /**
+     * CSV с заголовком (RFC 4180).
+     */
+    CSV,
+    /**
+     * Один JSON-объект на строку.
+     */
+    NDJSON;
+
+    /**
+     * Определяет формат по расширению файла: {@code .ndjson} и {@code .jsonl} - NDJSON, остальные - CSV.
+     */
+    public static BulkLoadFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+    }
+}
@@ -0,0 +1,13 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+/**
+ * Итог массовой загрузки.
+ *
+ * @param staged   Записей, переданных в таблицу загрузки.
+ * @param inserted Созданных ресторанов.
+ * @param updated  Обновленных ресторанов.
+ * @param rejected Отклоненных записей (ошибки разбора и проверки).
+ * @param millis   Длительность загрузки.
+ */
+public record BulkLoadReport(long staged, long inserted, long updated, long rejected, long millis) {
+}
@@ -0,0 +1,39 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Пишет строки в текстовом формате COPY: поля через табуляцию, {@code \N} вместо null,
+ * обратная косая черта и управляющие символы экранируются.
+ */
+final class CopyRowWriter {
+
+    private final Writer writer;
+
+    CopyRowWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void write(long line, String... values) throws IOException {
+        writer.write(Long.toString(line));
+        for (String value : values) {
+            writer.write('\t');
+            if (value == null) {
+                writer.write("\\N");
+                continue;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\' -> writer.write("\\\\");
+                    case '\t' -> writer.write("\\t");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    default -> writer.write(c);
+                }
+            }
+        }
+        writer.write('\n');
+    }
+}
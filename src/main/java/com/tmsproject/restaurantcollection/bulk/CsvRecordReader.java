@@ -0,0 +1,168 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Потоковый разбор CSV (RFC 4180) с заголовком. В памяти держится только текущая запись.
+ * <p>
+ * Колонки сопоставляются по заголовку без учета регистра: {@code name}, {@code city},
+ * {@code estimated_cost}/{@code estimatedCost}, {@code average_rating}/{@code averageRating}, {@code votes}.
+ */
+final class CsvRecordReader {
+
+    private static final int MAX_FIELD_LENGTH = 4096;
+
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+
+    // Номер текущей физической строки и строки, с которой началась запись
+    private long line = 1;
+    private long recordLine;
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private String error;
+
+    CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Читает все записи и передает их получателю.
+     *
+     * @throws IllegalArgumentException Если в заголовке нет обязательной колонки.
+     */
+    void read(RestaurantRecordSink sink) throws IOException {
+        if (!nextRecord()) {
+            return;
+        }
+        int name = -1;
+        int city = -1;
+        int cost = -1;
+        int rating = -1;
+        int votes = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            switch (fields.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "")) {
+                case "name" -> name = i;
+                case "city" -> city = i;
+                case "estimatedcost" -> cost = i;
+                case "averagerating" -> rating = i;
+                case "votes" -> votes = i;
+                default -> {
+                    // Лишние колонки игнорируются
+                }
+            }
+        }
+        if (name < 0 || city < 0 || cost < 0 || rating < 0 || votes < 0) {
+            throw new IllegalArgumentException(
+                    "CSV header must contain name, city, estimated_cost, average_rating and votes columns");
+        }
+        int columns = fields.size();
+        while (nextRecord()) {
+            if (error != null) {
+                sink.reject(recordLine, error);
+            } else if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue; // Пустая строка
+            } else if (fields.size() != columns) {
+                sink.reject(recordLine, "expected " + columns + " columns, found " + fields.size());
+            } else {
+                sink.accept(recordLine, fields.get(name), fields.get(city), fields.get(cost), fields.get(rating),
+                        fields.get(votes));
+            }
+        }
+    }
+
+    // Читает следующую запись в fields; false в конце входа
+    private boolean nextRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        error = null;
+        recordLine = line;
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        boolean quoted = false;
+        boolean afterQuote = false;
+        while (true) {
+            if (c < 0) {
+                if (quoted) {
+                    error = "unterminated quoted field";
+                }
+                endField();
+                return true;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        append('"');
+                    } else {
+                        quoted = false;
+                        afterQuote = true;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    append((char) c);
+                }
+            } else if (c == ',') {
+                endField();
+                afterQuote = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n' && next >= 0) {
+                        position--; // Одиночный \r - конец строки, символ возвращается в буфер
+                    }
+                }
+                line++;
+                endField();
+                return true;
+            } else if (c == '"' && field.length() == 0 && !afterQuote) {
+                quoted = true;
+            } else if (afterQuote) {
+                if (error == null) {
+                    error = "unexpected character after closing quote";
+                }
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private void append(char c) {
+        if (field.length() < MAX_FIELD_LENGTH) {
+            field.append(c);
+        } else if (error == null) {
+            error = "field is longer than " + MAX_FIELD_LENGTH + " characters";
+        }
+    }
+
+    private void endField() {
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,57 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Потоковый разбор NDJSON: каждая строка - отдельный объект, поэтому ошибка в строке отклоняет только ее.
+ * Поля принимаются в виде API ({@code estimatedCost}) и в виде колонок ({@code estimated_cost}).
+ */
+final class NdjsonRecordReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+
+    NdjsonRecordReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+    }
+
+    void read(RestaurantRecordSink sink) throws IOException {
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                sink.reject(line, "malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (!node.isObject()) {
+                sink.reject(line, "expected a JSON object");
+                continue;
+            }
+            sink.accept(line, value(node, "name", "name"), value(node, "city", "city"),
+                    value(node, "estimatedCost", "estimated_cost"), value(node, "averageRating", "average_rating"),
+                    value(node, "votes", "votes"));
+        }
+    }
+
+    // Скалярное значение поля строкой; вложенные объекты и массивы передаются как текст и отклоняются проверкой
+    private static String value(JsonNode node, String name, String alias) {
+        JsonNode value = node.has(name) ? node.get(name) : node.get(alias);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+}
@@ -0,0 +1,245 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Массовая загрузка ресторанов из CSV или NDJSON.
+ * <p>
+ * Файл читается потоково и передается в временную таблицу протоколом COPY; все поля загружаются текстом, поэтому
+ * COPY не падает на некорректных значениях. Проверка, удаление дубликатов и слияние с restaurants выполняются
+ * множественными запросами: одна вставка {@code ON CONFLICT (city_key, name, city) DO UPDATE}. Вся загрузка -
+ * одна транзакция; построчные уведомления триггера отключены, вместо них отправляется одно уведомление о полной
+ * синхронизации. Отклоненные записи пишутся в отчет {@code line,reason}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class RestaurantBulkLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String CREATE_STAGING = "create temp table restaurants_staging (line_no bigint not null, "
+            + "name text, city text, estimated_cost text, average_rating text, votes text) on commit drop";
+
+    private static final String CREATE_REJECTS = "create temp table restaurants_rejects (line_no bigint not null, "
+            + "reason text not null) on commit drop";
+
+    private static final String COPY_STAGING = "copy restaurants_staging "
+            + "(line_no, name, city, estimated_cost, average_rating, votes) from stdin";
+
+    private static final String INTEGER_PATTERN = "'^\\s*[+-]?\\d{1,9}\\s*$'";
+
+    private static final String REJECT_INVALID = "with invalid as ("
+            + " delete from restaurants_staging s using ("
+            + "  select line_no, reason from (select line_no, case"
+            + "   when coalesce(btrim(name), '') = '' then 'name is required'"
+            + "   when length(btrim(name)) > 100 then 'name is longer than 100 characters'"
+            + "   when coalesce(btrim(city), '') = '' then 'city is required'"
+            + "   when length(btrim(city)) > 30 then 'city is longer than 30 characters'"
+            + "   when estimated_cost is null or estimated_cost !~ " + INTEGER_PATTERN
+            + "    then 'estimated_cost is not an integer'"
+            + "   when average_rating is null or average_rating !~ '^\\s*[+-]?(\\d+\\.?\\d*|\\.\\d+)\\s*$'"
+            + "    then 'average_rating is not a decimal number'"
+            + "   when abs(round(btrim(average_rating)::numeric, 5)) >= 10000 then 'average_rating is out of range'"
+            + "   when votes is null or votes !~ " + INTEGER_PATTERN + " then 'votes is not an integer'"
+            + "  end as reason from restaurants_staging) checked where reason is not null) v"
+            + " where s.line_no = v.line_no returning s.line_no, v.reason)"
+            + " insert into restaurants_rejects (line_no, reason) select line_no, reason from invalid";
+
+    // Из нескольких строк с одинаковыми (name, city) остается последняя
+    private static final String REJECT_DUPLICATES = "with duplicates as ("
+            + " delete from restaurants_staging s using ("
+            + "  select line_no from (select line_no, row_number() over (partition by btrim(name), btrim(city)"
+            + "   order by line_no desc) as position from restaurants_staging) ranked where position > 1) d"
+            + " where s.line_no = d.line_no returning s.line_no)"
+            + " insert into restaurants_rejects (line_no, reason)"
+            + " select line_no, 'duplicate of a later line with the same name and city' from duplicates";
+
+    private static final String SELECT_CITY_KEYS = "select distinct lower(btrim(city)) from restaurants_staging";
+
+    private static final String ENSURE_PARTITION = "select ensure_restaurants_partition(?)";
+
+    private static final String COUNT_EXISTING = "select count(*) from restaurants_staging s join restaurants r "
+            + "on r.city_key = lower(btrim(s.city)) and r.name = btrim(s.name) and r.city = btrim(s.city)";
+
+    private static final String MERGE = "insert into restaurants (name, city, city_key, estimated_cost, average_rating, votes) "
+            + "select btrim(name), btrim(city), lower(btrim(city)), btrim(estimated_cost)::int, "
+            + "round(btrim(average_rating)::numeric, 5), btrim(votes)::int from restaurants_staging "
+            + "on conflict (city_key, name, city) do update set estimated_cost = excluded.estimated_cost, "
+            + "average_rating = excluded.average_rating, votes = excluded.votes";
+
+    private static final String NOTIFY_RESYNC = "select pg_notify('restaurants_changes', concat_ws(',', "
+            + "nextval('restaurants_version_seq'), 'R', 0, current_setting('application_name'), ''))";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public RestaurantBulkLoader(DataSource dataSource, ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Загружает файл в restaurants.
+     *
+     * @param input   Входной файл в UTF-8.
+     * @param format  Формат входного файла.
+     * @param rejects Куда записать отчет об отклоненных записях.
+     * @return Итог загрузки.
+     */
+    public BulkLoadReport load(Path input, BulkLoadFormat format, Path rejects) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             Writer rejectWriter = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                rejectWriter.write("line,reason\n");
+                statement.execute("set local restaurants.suppress_notify = 'on'");
+                statement.execute(CREATE_STAGING);
+                statement.execute(CREATE_REJECTS);
+
+                long[] parseRejects = new long[1];
+                long staged = copy(connection, input, format, rejectWriter, parseRejects);
+                long invalid = statement.executeUpdate(REJECT_INVALID) + statement.executeUpdate(REJECT_DUPLICATES);
+                ensurePartitions(cityKeys(statement));
+                long existing = count(statement, COUNT_EXISTING);
+                long merged = statement.executeUpdate(MERGE);
+                drain(statement, NOTIFY_RESYNC);
+                writeRejects(statement, rejectWriter);
+                connection.commit();
+
+                BulkLoadReport report = new BulkLoadReport(staged, merged - existing, existing,
+                        parseRejects[0] + invalid, (System.nanoTime() - start) / 1_000_000);
+                log.info("Bulk load finished.; file: {}; staged: {}; inserted: {}; updated: {}; rejected: {}; took: {} ms",
+                        input, report.staged(), report.inserted(), report.updated(), report.rejected(), report.millis());
+                eventPublisher.publishEvent(new RestaurantsResyncEvent("bulk load"));
+                return report;
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static List<String> cityKeys(Statement statement) throws SQLException {
+        List<String> cityKeys = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery(SELECT_CITY_KEYS)) {
+            while (resultSet.next()) {
+                cityKeys.add(resultSet.getString(1));
+            }
+        }
+        return cityKeys;
+    }
+
+    // Секции создаются на отдельном соединении, каждая в своей короткой транзакции: транзакция загрузки еще не
+    // трогала restaurants, а блокировки присоединения секций не держатся до ее фиксации
+    private void ensurePartitions(List<String> cityKeys) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(ENSURE_PARTITION)) {
+            connection.setAutoCommit(true);
+            for (String cityKey : cityKeys) {
+                statement.setString(1, cityKey);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                }
+            }
+        }
+        log.debug("Bulk load partitions ensured.; cities: {}", cityKeys.size());
+    }
+
+    // Передает записи файла в таблицу загрузки; ошибки разбора сразу пишутся в отчет
+    private long copy(Connection connection, Path input, BulkLoadFormat format, Writer rejectWriter,
+                      long[] parseRejects) throws IOException, SQLException {
+        PGCopyOutputStream out = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_STAGING, BUFFER_SIZE);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            Writer copyWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            CopyRowWriter rows = new CopyRowWriter(copyWriter);
+            RestaurantRecordSink sink = new RestaurantRecordSink() {
+                @Override
+                public void accept(long line, String name, String city, String estimatedCost, String averageRating,
+                                   String votes) throws IOException {
+                    rows.write(line, name, city, estimatedCost, averageRating, votes);
+                }
+
+                @Override
+                public void reject(long line, String reason) throws IOException {
+                    parseRejects[0]++;
+                    writeReject(rejectWriter, line, reason);
+                }
+            };
+            if (format == BulkLoadFormat.NDJSON) {
+                new NdjsonRecordReader(reader, objectMapper).read(sink);
+            } else {
+                new CsvRecordReader(reader).read(sink);
+            }
+            copyWriter.flush();
+            return out.endCopy();
+        } finally {
+            if (out.isActive()) {
+                out.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeRejects(Statement statement, Writer rejectWriter) throws SQLException, IOException {
+        statement.setFetchSize(10_000);
+        try (ResultSet resultSet = statement.executeQuery(
+                "select line_no, reason from restaurants_rejects order by line_no")) {
+            while (resultSet.next()) {
+                writeReject(rejectWriter, resultSet.getLong(1), resultSet.getString(2));
+            }
+        }
+    }
+
+    private static void writeReject(Writer writer, long line, String reason) throws IOException {
+        writer.write(Long.toString(line));
+        writer.write(",\"");
+        writer.write(reason.replace("\"", "\"\""));
+        writer.write("\"\n");
+    }
+
+    private static long count(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static void drain(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                // Результат не нужен, запрос выполняется ради побочного эффекта
+            }
+        }
+    }
+}
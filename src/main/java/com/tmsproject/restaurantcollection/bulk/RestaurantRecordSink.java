@@ -0,0 +1,14 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import java.io.IOException;
+
+/**
+ * Получатель записей, разобранных из входного файла. Значения передаются строками, проверка типов выполняется в базе.
+ */
+interface RestaurantRecordSink {
+
+    void accept(long line, String name, String city, String estimatedCost, String averageRating, String votes)
+            throws IOException;
+
+    void reject(long line, String reason) throws IOException;
+}
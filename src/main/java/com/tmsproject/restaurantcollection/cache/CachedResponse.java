@@ -0,0 +1,23 @@
+package com.tmsproject.restaurantcollection.cache;
+
+/**
+ * Закодированное тело ответа в кеше.
+ *
+ * @param contentType Тип содержимого ответа.
+ * @param body        Тело ответа.
+ * @param gzipBody    Тело, сжатое gzip, или null, если тело слишком мало для сжатия.
+ */
+public record CachedResponse(String contentType, byte[] body, byte[] gzipBody) {
+
+    // Оценка накладных расходов на запись, ключ и объекты-обертки
+    private static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * Вес записи в байтах для ограничения объема кеша.
+     *
+     * @param key Ключ записи.
+     */
+    long weigh(String key) {
+        return ENTRY_OVERHEAD + 2L * key.length() + body.length + (gzipBody != null ? gzipBody.length : 0);
+    }
+}
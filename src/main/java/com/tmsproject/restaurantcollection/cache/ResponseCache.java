@@ -0,0 +1,249 @@
+package com.tmsproject.restaurantcollection.cache;
+
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.sync.RestaurantsInvalidatedEvent;
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кеш закодированных тел ответов списочных запросов.
+ * <p>
+ * Каждая запись относится к области: городу, если ответ зависит только от ресторанов одного города, или ко всем
+ * ресторанам. Изменение ресторана сбрасывает записи его города (до и после изменения) и все общие записи; записи
+ * других городов остаются. Чтобы ответ, посчитанный до изменения, не попал в кеш после сброса, у каждой области есть
+ * поколение: запись сохраняется, только если поколение не изменилось за время вычисления ответа.
+ * <p>
+ * Объем ограничен суммарным весом записей в байтах; при превышении вытесняются давно не читавшиеся записи.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.response-cache.enabled", matchIfMissing = true)
+public class ResponseCache {
+
+    /**
+     * Область записей, зависящих от всех ресторанов.
+     */
+    public static final String GLOBAL_SCOPE = "";
+
+    private final long maxBytes;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+
+    // Логические часы обращений для вытеснения давно не читавшихся записей
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> cityGenerations = new ConcurrentHashMap<>();
+
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${restaurant.response-cache.max-size:64MB}") DataSize maxSize) {
+        this.maxBytes = maxSize.toBytes();
+        FunctionCounter.builder("restaurant.response-cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("restaurant.response-cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("restaurant.response-cache.evictions", evictions, LongAdder::sum)
+                .description("Entries evicted to stay within the size limit")
+                .register(meterRegistry);
+        Gauge.builder("restaurant.response-cache.size", weight, AtomicLong::get)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает закодированный ответ.
+     *
+     * @param key Ключ запроса.
+     * @return Ответ или null, если его нет в кеше.
+     */
+    public CachedResponse get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Текущее поколение области; передается в {@link #put} после вычисления ответа.
+     *
+     * @param scope Ключ города или {@link #GLOBAL_SCOPE}.
+     */
+    public long generation(String scope) {
+        return generationOf(scope).get();
+    }
+
+    /**
+     * Сохраняет ответ, если с момента {@link #generation} область не сбрасывалась.
+     *
+     * @param key        Ключ запроса.
+     * @param scope      Область ответа.
+     * @param generation Поколение области до вычисления ответа.
+     * @param response   Ответ.
+     */
+    public void put(String key, String scope, long generation, CachedResponse response) {
+        long entryWeight = response.weigh(key);
+        if (entryWeight > maxBytes / 4) {
+            return; // Слишком большой ответ вытеснил бы почти весь кеш
+        }
+        AtomicLong scopeGeneration = generationOf(scope);
+        if (scopeGeneration.get() != generation) {
+            return;
+        }
+        Entry entry = new Entry(scope, response, entryWeight, clock.incrementAndGet());
+        Entry previous = entries.put(key, entry);
+        weight.addAndGet(entryWeight - (previous != null ? previous.weight : 0));
+        // Сброс мог пройти между проверкой поколения и вставкой
+        if (scopeGeneration.get() != generation) {
+            remove(key, entry);
+            return;
+        }
+        if (weight.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Сбрасывает ответы после изменения ресторана этим экземпляром.
+     *
+     * @param event Событие изменения ресторана.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE) // После обновления реплики, из которой строятся ответы
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        List<String> cityKeys = new ArrayList<>(2);
+        for (RestaurantSnapshot snapshot : new RestaurantSnapshot[]{event.before(), event.after()}) {
+            if (snapshot != null && !cityKeys.contains(snapshot.cityKey())) {
+                cityKeys.add(snapshot.cityKey());
+            }
+        }
+        invalidate(cityKeys);
+    }
+
+    /**
+     * Сбрасывает ответы после изменений других экземпляров.
+     *
+     * @param event Событие изменений других экземпляров.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onRestaurantsInvalidated(RestaurantsInvalidatedEvent event) {
+        invalidate(event.cityKeys());
+    }
+
+    /**
+     * Сбрасывает весь кеш после полной синхронизации.
+     *
+     * @param event Событие полной синхронизации.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onResync(RestaurantsResyncEvent event) {
+        globalGeneration.incrementAndGet();
+        cityGenerations.values().forEach(AtomicLong::incrementAndGet);
+        entries.forEach(this::remove);
+        log.debug("Response cache cleared.; reason: {}", event.reason());
+    }
+
+    /**
+     * Сбрасывает общие ответы и ответы указанных городов.
+     *
+     * @param cityKeys Ключи измененных городов.
+     */
+    void invalidate(Iterable<String> cityKeys) {
+        // Поколения меняются до удаления записей, поэтому ответы, вычисляемые сейчас, уже не сохранятся
+        globalGeneration.incrementAndGet();
+        List<String> scopes = new ArrayList<>();
+        scopes.add(GLOBAL_SCOPE);
+        for (String cityKey : cityKeys) {
+            generationOf(cityKey).incrementAndGet();
+            scopes.add(cityKey);
+        }
+        entries.forEach((key, entry) -> {
+            if (scopes.contains(entry.scope)) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    private AtomicLong generationOf(String scope) {
+        return GLOBAL_SCOPE.equals(scope)
+                ? globalGeneration
+                : cityGenerations.computeIfAbsent(scope, city -> new AtomicLong());
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            weight.addAndGet(-entry.weight);
+        }
+    }
+
+    // Вытесняет давно не читавшиеся записи, пока вес не опустится до 90% предела
+    private void evict() {
+        synchronized (evictionLock) {
+            long target = maxBytes - maxBytes / 10;
+            if (weight.get() <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccess));
+            for (Map.Entry<String, Entry> candidate : candidates) {
+                if (weight.get() <= target) {
+                    break;
+                }
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    weight.addAndGet(-candidate.getValue().weight);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String scope;
+        private final CachedResponse response;
+        private final long weight;
+        private volatile long lastAccess;
+
+        Entry(String scope, CachedResponse response, long weight, long lastAccess) {
+            this.scope = scope;
+            this.response = response;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.tmsproject.restaurantcollection.cache;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Отдает списки ресторанов ({@code GET /restaurant}, {@code /restaurant/sort}, {@code /restaurant/query?city=}) из
+ * {@link ResponseCache}, записывая готовые байты прямо в ответ, без запросов, маппинга и сериализации.
+ * <p>
+ * Ключ - путь, отсортированные параметры и тип содержимого. Промах проходит обычную обработку; успешный JSON-ответ
+ * сохраняется вместе со сжатой gzip копией, которая отдается клиентам с {@code Accept-Encoding: gzip}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10) // Внутри учета Server-Timing
+@ConditionalOnProperty(name = "restaurant.response-cache.enabled", matchIfMissing = true)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String PATH = "/restaurant";
+
+    // Допустимые параметры кешируемых эндпоинтов; запросы с другими параметрами не кешируются
+    private static final Map<String, Set<String>> ENDPOINT_PARAMETERS = Map.of(
+            PATH, Set.of("fields"),
+            PATH + "/sort", Set.of("limit", "fields"),
+            PATH + "/query", Set.of("city", "fields"));
+
+    private final ResponseCache cache;
+    private final boolean gzip;
+    private final int gzipMinBytes;
+
+    public ResponseCacheFilter(ResponseCache cache,
+                               @Value("${restaurant.response-cache.gzip:true}") boolean gzip,
+                               @Value("${restaurant.response-cache.gzip-min-size:1KB}") DataSize gzipMinSize) {
+        this.cache = cache;
+        this.gzip = gzip;
+        this.gzipMinBytes = (int) gzipMinSize.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+                || !ENDPOINT_PARAMETERS.containsKey(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Map<String, String> parameters = parameters(request, ENDPOINT_PARAMETERS.get(path));
+        if (parameters == null || !acceptsJson(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String scope = ResponseCache.GLOBAL_SCOPE;
+        if (path.endsWith("/query")) {
+            String city = parameters.get("city");
+            if (StringUtils.isBlank(city)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            scope = RestaurantEntity.cityKey(city.trim());
+        }
+        String key = key(path, parameters);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            write(request, response, cached);
+            return;
+        }
+        long generation = cache.generation(scope);
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, buffered);
+            if (buffered.getStatus() == HttpStatus.OK.value() && !request.isAsyncStarted()
+                    && isJson(buffered.getContentType())) {
+                byte[] body = buffered.getContentAsByteArray();
+                cache.put(key, scope, generation, new CachedResponse(buffered.getContentType(), body,
+                        gzip && body.length >= gzipMinBytes ? gzip(body) : null));
+            }
+        } finally {
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    // Параметры запроса в порядке имен или null, если запрос нельзя кешировать
+    private static Map<String, String> parameters(HttpServletRequest request, Set<String> allowed) {
+        Map<String, String> parameters = new TreeMap<>();
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            if (!allowed.contains(parameter.getKey()) || parameter.getValue().length != 1) {
+                return null;
+            }
+            parameters.put(parameter.getKey(), parameter.getValue()[0]);
+        }
+        return parameters;
+    }
+
+    private static String key(String path, Map<String, String> parameters) {
+        StringBuilder key = new StringBuilder(64).append(MediaType.APPLICATION_JSON_VALUE).append(' ').append(path);
+        char separator = '?';
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            key.append(separator).append(parameter.getKey()).append('=').append(parameter.getValue());
+            separator = '&';
+        }
+        return key.toString();
+    }
+
+    private static boolean acceptsJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_JSON));
+        } catch (InvalidMediaTypeException e) {
+            return false; // Ошибку вернет обычная обработка запроса
+        }
+    }
+
+    private static boolean isJson(String contentType) {
+        try {
+            return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, CachedResponse cached)
+            throws IOException {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean compressed = cached.gzipBody() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] body = compressed ? cached.gzipBody() : cached.body();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cached.contentType());
+        if (compressed) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}
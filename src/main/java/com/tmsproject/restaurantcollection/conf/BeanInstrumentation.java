@@ -0,0 +1,49 @@
+package com.tmsproject.restaurantcollection.conf;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+
+/**
+ * Обертка бинов советами инструментирования: перевод ошибок срока запроса, фазы Server-Timing и события JFR.
+ * <p>
+ * Обработчики инструментирования выполняются после создателя прокси Spring, поэтому транзакция сервиса находится
+ * внутри их советов. Совет обработчика, выполненного позже, оказывается снаружи, поэтому порядок обработчиков задан
+ * явно. Снаружи внутрь: событие JFR, фаза Server-Timing, перевод ошибок срока, транзакция.
+ */
+public final class BeanInstrumentation {
+
+    public static final int DEADLINE_ORDER = Ordered.LOWEST_PRECEDENCE - 30;
+    public static final int SERVER_TIMING_ORDER = Ordered.LOWEST_PRECEDENCE - 20;
+    public static final int FLIGHT_RECORDER_ORDER = Ordered.LOWEST_PRECEDENCE - 10;
+
+    private BeanInstrumentation() {
+    }
+
+    /**
+     * Добавляет совет снаружи советов бина.
+     *
+     * @param bean        Бин или его прокси.
+     * @param interceptor Совет.
+     * @return Тот же прокси с добавленным советом, новый прокси класса или бин без изменений, если это прокси
+     * интерфейсов.
+     */
+    public static Object withInterceptor(Object bean, MethodInterceptor interceptor) {
+        // Советы существующего прокси дополняются снаружи, новый прокси не создается
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        // Прокси интерфейсов нельзя обернуть прокси класса
+        if (AopUtils.isJdkDynamicProxy(bean)) {
+            return bean;
+        }
+        // Прокси класса, а не интерфейса: иначе @PreDestroy цели не был бы найден
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+}
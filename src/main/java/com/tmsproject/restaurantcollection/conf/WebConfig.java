@@ -0,0 +1,70 @@
+package com.tmsproject.restaurantcollection.conf;
+
+import com.tmsproject.restaurantcollection.deadline.DeadlineInterceptor;
+import com.tmsproject.restaurantcollection.deadline.DeadlineProperties;
+import com.tmsproject.restaurantcollection.jfr.RequestEventInterceptor;
+import com.tmsproject.restaurantcollection.limit.AdmissionControlInterceptor;
+import com.tmsproject.restaurantcollection.limit.AdmissionProperties;
+import com.tmsproject.restaurantcollection.timing.TimedJacksonHttpMessageConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties({AdmissionProperties.class, DeadlineProperties.class})
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+
+    private final DeadlineInterceptor deadlineInterceptor;
+
+    private final boolean serverTimingEnabled;
+
+    private final boolean flightRecorderEnabled;
+
+    public WebConfig(AdmissionProperties admissionProperties, DeadlineProperties deadlineProperties,
+                     MeterRegistry meterRegistry,
+                     @Value("${restaurant.server-timing.enabled:true}") boolean serverTimingEnabled,
+                     @Value("${restaurant.jfr.enabled:true}") boolean flightRecorderEnabled) {
+        this.admissionControlInterceptor = new AdmissionControlInterceptor(admissionProperties, meterRegistry);
+        this.deadlineInterceptor = new DeadlineInterceptor(deadlineProperties);
+        this.serverTimingEnabled = serverTimingEnabled;
+        this.flightRecorderEnabled = flightRecorderEnabled;
+    }
+
+    @Bean
+    public AdmissionControlInterceptor admissionControlInterceptor() {
+        return admissionControlInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Событие JFR регистрируется первым, чтобы учитывать и отклоненные контролем допуска запросы
+        if (flightRecorderEnabled) {
+            registry.addInterceptor(new RequestEventInterceptor()).addPathPatterns("/restaurant/**");
+        }
+        registry.addInterceptor(deadlineInterceptor).addPathPatterns("/restaurant/**");
+        registry.addInterceptor(admissionControlInterceptor).addPathPatterns("/restaurant/**");
+    }
+
+    // Запись JSON учитывается в Server-Timing как фаза сериализации
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        if (!serverTimingEnabled) {
+            return;
+        }
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter jackson) {
+                converters.set(i, new TimedJacksonHttpMessageConverter(jackson.getObjectMapper()));
+            }
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.tmsproject.restaurantcollection.controller;
 
+import com.tmsproject.restaurantcollection.deadline.RequestDeadline;
 import com.tmsproject.restaurantcollection.domain.BaseEntity;
 import com.tmsproject.restaurantcollection.dto.BaseDto;
 import com.tmsproject.restaurantcollection.dto.NewEntityDto;
+import com.tmsproject.restaurantcollection.exception.NotFoundException;
+import com.tmsproject.restaurantcollection.limit.AdmissionClass;
+import com.tmsproject.restaurantcollection.limit.EndpointClass;
 import com.tmsproject.restaurantcollection.mapper.EntityMapper;
 import com.tmsproject.restaurantcollection.service.BaseService;
+import com.tmsproject.restaurantcollection.timing.RequestTiming;
+import com.tmsproject.restaurantcollection.timing.TimingPhase;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -12,10 +18,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import jakarta.persistence.EntityNotFoundException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Абстрактный контроллер для управления базовыми сущностями.
@@ -52,7 +58,7 @@ public abstract class AbstractEntityController<T extends BaseDto, E extends Base
     @Override
     public ResponseEntity<?> create(@Validated @RequestBody T dto) {
         // Преобразование DTO в сущность и сохранение её через сервис
-        E entity = service.create(mapper.fromDto(dto));
+        E entity = service.create(fromDto(dto));
 
         // Создание URI для новой сущности
         URI location = ServletUriComponentsBuilder
@@ -81,10 +87,9 @@ public abstract class AbstractEntityController<T extends BaseDto, E extends Base
      * @return Список всех DTO.
      */
     @Override
+    @AdmissionClass(EndpointClass.EXPORT)
     public List<T> findAll() {
-        return service.findAll().stream()
-                .map(mapper::toDto)
-                .collect(Collectors.toList());
+        return toDtoList(service.findAll());
     }
 
     /**
@@ -94,7 +99,58 @@ public abstract class AbstractEntityController<T extends BaseDto, E extends Base
      * @return Найденная сущность.
      */
     public E findByIdOrThrowNotFound(Long id) {
-        return service.findById(id).orElseThrow(EntityNotFoundException::new);
+        return service.findById(id).orElseThrow(() -> new NotFoundException("Entity with id '" + id + "' can't be found."));
+    }
+
+    /**
+     * Преобразует сущность в DTO, учитывая время как фазу маппинга запроса.
+     *
+     * @param entity Сущность.
+     * @return DTO.
+     */
+    protected T toDto(E entity) {
+        RequestTiming.begin(TimingPhase.MAPPING);
+        try {
+            return mapper.toDto(entity);
+        } finally {
+            RequestTiming.end();
+        }
+    }
+
+    /**
+     * Преобразует список сущностей в DTO; время учитывается одной фазой на весь список.
+     * После истечения срока запроса список не преобразуется: ответ клиенту уже не нужен.
+     *
+     * @param entities Сущности.
+     * @return Список DTO в том же порядке.
+     */
+    protected List<T> toDtoList(Collection<E> entities) {
+        RequestDeadline.check();
+        RequestTiming.begin(TimingPhase.MAPPING);
+        try {
+            List<T> result = new ArrayList<>(entities.size());
+            for (E entity : entities) {
+                result.add(mapper.toDto(entity));
+            }
+            return result;
+        } finally {
+            RequestTiming.end();
+        }
+    }
+
+    /**
+     * Преобразует DTO в сущность, учитывая время как фазу маппинга запроса.
+     *
+     * @param dto DTO.
+     * @return Сущность.
+     */
+    protected E fromDto(T dto) {
+        RequestTiming.begin(TimingPhase.MAPPING);
+        try {
+            return mapper.fromDto(dto);
+        } finally {
+            RequestTiming.end();
+        }
     }
 
 }
@@ -2,11 +2,22 @@ package com.tmsproject.restaurantcollection.controller;
 
 import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
 import com.tmsproject.restaurantcollection.dto.BaseDto;
+import com.tmsproject.restaurantcollection.dto.CityStatsDto;
 import com.tmsproject.restaurantcollection.dto.NewEntityDto;
+import com.tmsproject.restaurantcollection.dto.RestaurantBatchEntryDto;
 import com.tmsproject.restaurantcollection.dto.RestaurantDto;
+import com.tmsproject.restaurantcollection.dto.RestaurantMergeDto;
 import com.tmsproject.restaurantcollection.dto.RestaurantShortDto;
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+import com.tmsproject.restaurantcollection.exception.NotFoundException;
+import com.tmsproject.restaurantcollection.limit.AdmissionClass;
+import com.tmsproject.restaurantcollection.limit.EndpointClass;
 import com.tmsproject.restaurantcollection.mapper.RestaurantMapper;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.service.RestaurantChangeFeed;
 import com.tmsproject.restaurantcollection.service.RestaurantService;
+import com.tmsproject.restaurantcollection.service.RestaurantStatsService;
 
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,22 +25,30 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Контроллер для управления информацией о ресторанах.
@@ -39,14 +58,31 @@ import java.util.stream.Collectors;
 @RequestMapping("/restaurant")
 public class RestaurantController extends AbstractEntityController<RestaurantDto, RestaurantEntity, RestaurantService> {
 
+    // Сервис статистики ресторанов по городам
+    private final RestaurantStatsService statsService;
+
+    // Лента изменений ресторанов
+    private final RestaurantChangeFeed changeFeed;
+
+    // Максимальное число ID в одном пакетном запросе
+    private final int batchMaxIds;
+
     /**
      * Конструктор, принимающий сервис и маппер.
      *
      * @param service Сервис для управления сущностями ресторанов.
      * @param mapper Маппер для преобразования между сущностями и DTO ресторанов.
+     * @param statsService Сервис статистики ресторанов по городам.
+     * @param changeFeed Лента изменений ресторанов.
+     * @param batchMaxIds Максимальное число ID в одном пакетном запросе.
      */
-    protected RestaurantController(RestaurantService service, RestaurantMapper mapper) {
+    protected RestaurantController(RestaurantService service, RestaurantMapper mapper,
+                                   RestaurantStatsService statsService, RestaurantChangeFeed changeFeed,
+                                   @Value("${restaurant.batch.max-ids:1000}") int batchMaxIds) {
         super(service, mapper);
+        this.statsService = statsService;
+        this.changeFeed = changeFeed;
+        this.batchMaxIds = batchMaxIds;
     }
 
     /**
@@ -71,7 +107,7 @@ public class RestaurantController extends AbstractEntityController<RestaurantDto
                 .build();
 
         // Преобразование DTO в сущность и обновление её через сервис
-        RestaurantEntity entity = mapper.fromDto(restaurantDto);
+        RestaurantEntity entity = fromDto(restaurantDto);
         entity = service.update(entity);
 
         // Если ID отсутствует, создание нового ресурса
@@ -86,28 +122,56 @@ public class RestaurantController extends AbstractEntityController<RestaurantDto
         return ResponseEntity.status(HttpStatus.OK).body(new NewEntityDto(entity.getId()));
     }
 
+    /**
+     * Список всех ресторанов только с запрошенными полями.
+     *
+     * @param fields Поля через запятую, например {@code id,name,averageRating}.
+     * @return Список ресторанов с запрошенными полями.
+     */
+    @GetMapping(params = "fields")
+    @AdmissionClass(EndpointClass.EXPORT)
+    public List<?> findAll(@RequestParam(name = "fields") String fields) {
+        if (StringUtils.isBlank(fields)) {
+            return findAll();
+        }
+        return service.findAll(RestaurantProjection.parse(fields));
+    }
+
     /**
      * Фильтрация ресторанов по городу или ID.
      *
      * @param id ID ресторана (необязательный).
      * @param city Город ресторана (необязательный).
+     * @param fields Поля ответа через запятую (необязательный); по умолчанию все поля.
      * @return Ответ с фильтрованным списком ресторанов или пустым списком.
      */
     @GetMapping(path = "/query")
+    @AdmissionClass(value = EndpointClass.READ, critical = true)
     public ResponseEntity<?> filterByCity(@RequestParam(name = "id", required = false) Long id,
-                                          @RequestParam(name = "city", required = false) String city) {
+                                          @RequestParam(name = "city", required = false) String city,
+                                          @RequestParam(name = "fields", required = false) String fields) {
+        // Если указаны поля, из базы выбираются только они
+        RestaurantProjection projection = StringUtils.isBlank(fields) ? null : RestaurantProjection.parse(fields);
+
         // Если указан ID, поиск ресторана по ID
         if (id != null) {
+            if (projection != null) {
+                return ResponseEntity.ok()
+                        .body(service.findById(id, projection).orElseThrow(() ->
+                                new NotFoundException("Entity with id '" + id + "' can't be found.")));
+            }
             return ResponseEntity.ok()
-                    .body(mapper.toDto(findByIdOrThrowNotFound(id)));
+                    .body(toDto(findByIdOrThrowNotFound(id)));
         }
 
         // Если указан город, фильтрация ресторанов по городу
         if (StringUtils.isNotBlank(city)) {
+            if (projection != null) {
+                return ResponseEntity.ok()
+                        .body(service.findAllByCity(city, projection));
+            }
             return ResponseEntity.ok()
-                    .body(service.findAllByCity(city).stream()
-                            .map(mapper::toDto)
-                            .collect(Collectors.toList()));
+                    .body(toDtoList(service.findAllByCity(city)));
         }
 
         // Если параметры не указаны, возвращение пустого списка
@@ -115,15 +179,125 @@ public class RestaurantController extends AbstractEntityController<RestaurantDto
                 .body(Collections.emptyList());
     }
 
+    /**
+     * Получение нескольких ресторанов по ID одним запросом.
+     *
+     * @param ids ID ресторанов через запятую.
+     * @param fields Поля ответа через запятую (необязательный); по умолчанию все поля.
+     * @return Результаты в порядке запрошенных ID; для отсутствующих ресторанов found = false.
+     */
+    @GetMapping(path = "/batch")
+    @AdmissionClass(EndpointClass.READ)
+    public List<RestaurantBatchEntryDto> findBatch(@RequestParam(name = "ids") List<Long> ids,
+                                                   @RequestParam(name = "fields", required = false) String fields) {
+        return batch(ids, fields);
+    }
+
+    /**
+     * Получение нескольких ресторанов по ID одним запросом; вариант для длинных списков ID.
+     *
+     * @param ids Массив ID ресторанов.
+     * @param fields Поля ответа через запятую (необязательный); по умолчанию все поля.
+     * @return Результаты в порядке запрошенных ID; для отсутствующих ресторанов found = false.
+     */
+    @PostMapping(path = "/batch")
+    @AdmissionClass(EndpointClass.READ)
+    public List<RestaurantBatchEntryDto> findBatchByBody(@RequestBody List<Long> ids,
+                                                         @RequestParam(name = "fields", required = false) String fields) {
+        return batch(ids, fields);
+    }
+
+    /**
+     * Объединение дублей ресторана, например из отчета поиска дублей.
+     *
+     * @param mergeDto Оставшийся ресторан и его дубли.
+     * @return Оставшийся ресторан с объединенными отзывами и рейтингом.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Restaurants merged.",
+                    content = @Content(schema = @Schema(type = "object", implementation = BaseDto.class))),
+            @ApiResponse(responseCode = "400", description = "Payload validation failed."),
+            @ApiResponse(responseCode = "404", description = "Resource not found.")})
+    @PostMapping(path = "/merge")
+    public BaseDto merge(@RequestBody RestaurantMergeDto mergeDto) {
+        return toDto(service.merge(mergeDto.getSurvivorId(), mergeDto.getDuplicateIds()));
+    }
+
     /**
      * Поиск ресторанов с сортировкой по рейтингу.
      *
+     * @param limit Максимальное число ресторанов (необязательный).
+     * @param fields Поля ответа через запятую (необязательный); по умолчанию все поля.
      * @return Список ресторанов, отсортированных по среднему рейтингу.
      */
     @GetMapping(path = "/sort")
-    public List<RestaurantDto> findByRatingSort() {
-        return service.findAllOrderByAverageRating().stream()
-                .map(mapper::toDto)
-                .collect(Collectors.toList());
+    @AdmissionClass(EndpointClass.EXPORT)
+    public List<?> findByRatingSort(@RequestParam(name = "limit", required = false) Integer limit,
+                                    @RequestParam(name = "fields", required = false) String fields) {
+        // Если указан положительный лимит, возвращаются только первые рестораны
+        boolean limited = limit != null && limit > 0;
+        if (StringUtils.isNotBlank(fields)) {
+            return service.findTopByAverageRating(limited ? limit : 0, RestaurantProjection.parse(fields));
+        }
+        List<RestaurantEntity> restaurants = limited
+                ? service.findTopByAverageRating(limit)
+                : service.findAllOrderByAverageRating();
+        return toDtoList(restaurants);
+    }
+
+    // Ищет уникальные ID одним запросом и раскладывает результаты в порядке запроса, включая повторы
+    private List<RestaurantBatchEntryDto> batch(List<Long> ids, String fields) {
+        if (ids == null || ids.isEmpty() || ids.size() > batchMaxIds) {
+            throw new InvalidParameterException("Parameter 'ids' should contain from 1 to " + batchMaxIds + " ids.");
+        }
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.contains(null)) {
+            throw new InvalidParameterException("Parameter 'ids' should not contain nulls.");
+        }
+        RestaurantProjection projection = StringUtils.isBlank(fields)
+                ? RestaurantProjection.all()
+                : RestaurantProjection.parse(fields);
+        Map<Long, ProjectedRestaurant> found = service.findAllById(unique, projection);
+        List<RestaurantBatchEntryDto> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProjectedRestaurant restaurant = found.get(id);
+            result.add(new RestaurantBatchEntryDto(id, restaurant != null, restaurant));
+        }
+        return result;
+    }
+
+    /**
+     * Статистика ресторанов по городу или по всем городам.
+     *
+     * @param city Город (необязательный).
+     * @return Статистика города или список статистики всех городов.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics found.",
+                    content = @Content(schema = @Schema(type = "object", implementation = CityStatsDto.class))),
+            @ApiResponse(responseCode = "404", description = "City has no restaurants.")})
+    @GetMapping(path = "/stats")
+    public ResponseEntity<?> findStats(@RequestParam(name = "city", required = false) String city) {
+        // Если указан город, возвращение статистики только этого города
+        if (StringUtils.isNotBlank(city)) {
+            return ResponseEntity.ok()
+                    .body(statsService.findByCity(city).orElseThrow(() ->
+                            new NotFoundException("City '" + city + "' has no restaurants.")));
+        }
+        return ResponseEntity.ok()
+                .body(statsService.findAll());
+    }
+
+    /**
+     * Поток изменений ресторанов (Server-Sent Events).
+     * Переподключающийся клиент передает номер последнего полученного события в заголовке Last-Event-ID.
+     *
+     * @param lastEventId Номер последнего полученного события (необязательный).
+     * @return Поток событий created/updated/deleted; событие reset означает, что клиенту нужно перечитать список.
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @AdmissionClass(EndpointClass.EXPORT)
+    public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeFeed.subscribe(lastEventId);
     }
 }
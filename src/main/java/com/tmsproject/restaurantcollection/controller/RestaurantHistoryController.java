@@ -0,0 +1,61 @@
+package com.tmsproject.restaurantcollection.controller;
+
+import com.tmsproject.restaurantcollection.dto.RatingHistoryBucketDto;
+import com.tmsproject.restaurantcollection.limit.AdmissionClass;
+import com.tmsproject.restaurantcollection.limit.EndpointClass;
+import com.tmsproject.restaurantcollection.service.RatingHistoryService;
+
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер истории рейтинга ресторанов.
+ */
+@Tag(name = "Restaurant Info API", description = "Restaurant Info API.")
+@RestController
+@RequestMapping("/restaurant")
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class RestaurantHistoryController {
+
+    private final RatingHistoryService historyService;
+
+    /**
+     * Конструктор, принимающий сервис истории рейтинга.
+     *
+     * @param historyService Сервис истории рейтинга.
+     */
+    public RestaurantHistoryController(RatingHistoryService historyService) {
+        this.historyService = historyService;
+    }
+
+    /**
+     * История рейтинга ресторана: минимум, максимум и среднее по часам или дням.
+     *
+     * @param id     ID ресторана.
+     * @param from   Начало периода, ISO-8601 (необязательный).
+     * @param to     Конец периода, ISO-8601, не включая (необязательный).
+     * @param bucket {@code hour} или {@code day} (необязательный).
+     * @return Непустые интервалы по возрастанию времени.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "History found."),
+            @ApiResponse(responseCode = "400", description = "Invalid period or bucket."),
+            @ApiResponse(responseCode = "404", description = "Restaurant not found.")})
+    @GetMapping(path = "/{id}/history")
+    @AdmissionClass(EndpointClass.READ)
+    public List<RatingHistoryBucketDto> findHistory(@PathVariable("id") Long id,
+                                                    @RequestParam(name = "from", required = false) String from,
+                                                    @RequestParam(name = "to", required = false) String to,
+                                                    @RequestParam(name = "bucket", required = false) String bucket) {
+        return historyService.findHistory(id, from, to, bucket);
+    }
+}
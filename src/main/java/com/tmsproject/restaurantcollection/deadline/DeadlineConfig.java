@@ -0,0 +1,96 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import com.tmsproject.restaurantcollection.conf.BeanInstrumentation;
+import com.tmsproject.restaurantcollection.exception.DeadlineExceededException;
+import com.tmsproject.restaurantcollection.service.BaseService;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.dao.QueryTimeoutException;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Переносит срок запроса в пулы соединений приложения и переводит ошибки запросов, прерванных по сроку,
+ * в {@link DeadlineExceededException}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "restaurant.deadline.enabled", matchIfMissing = true)
+public class DeadlineConfig {
+
+    // Postgres: запрос отменен по statement_timeout или по отмене драйвером
+    private static final String QUERY_CANCELED = "57014";
+
+    @Bean
+    static BeanPostProcessor deadlineInstrumentation() {
+        return new DeadlineBeanPostProcessor();
+    }
+
+    static final class DeadlineBeanPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DeadlineDataSource)) {
+                return new DeadlineDataSource(dataSource);
+            }
+            if (bean instanceof BaseService<?>) {
+                return withDeadlineErrors(bean);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            // Первым из обработчиков инструментирования: перевод ошибок ближе всех к транзакции сервиса
+            return BeanInstrumentation.DEADLINE_ORDER;
+        }
+
+        private static Object withDeadlineErrors(Object bean) {
+            return BeanInstrumentation.withInterceptor(bean, invocation -> {
+                try {
+                    return invocation.proceed();
+                } catch (RuntimeException e) {
+                    // Срок, истекший при получении соединения, приходит обернутым в ошибку начала транзакции
+                    DeadlineExceededException exceeded = deadlineExceeded(e);
+                    if (exceeded != null) {
+                        throw exceeded;
+                    }
+                    if (!RequestDeadline.isActive() || !RequestDeadline.isExpired() || !isTimeout(e)) {
+                        throw e;
+                    }
+                    throw new DeadlineExceededException("Request deadline exceeded", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Ошибка истекшего срока в цепочке причин.
+     */
+    static DeadlineExceededException deadlineExceeded(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException exceeded) {
+                return exceeded;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Прерван ли запрос по времени: ожидание общего запроса или запрос к базе, отмененный сервером или драйвером.
+     */
+    static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && QUERY_CANCELED.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
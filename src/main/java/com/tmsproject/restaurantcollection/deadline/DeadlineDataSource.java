@@ -0,0 +1,142 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул соединений, переносящий срок запроса в базу.
+ * <p>
+ * Каждому запросу JDBC соединения, выданного запросу со сроком, задается {@link Statement#setQueryTimeout}
+ * по оставшемуся времени с округлением вверх до секунды - драйвер отменит запрос, если сервер не ответил.
+ * В транзакции Postgres перед первым запросом дополнительно выполняется {@code set local statement_timeout}:
+ * сервер сам прерывает запрос к сроку, даже если клиент уже не ждет ответа. Настройка действует до конца
+ * транзакции, поэтому при возврате соединения в пул ее не нужно сбрасывать, а команда уходит на сервер вместе
+ * с началом транзакции. Без срока соединения выдаются как есть.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    private static final Class<?>[] PROXY_INTERFACES = {ConnectionProxy.class};
+
+    // База Postgres: statement_timeout есть только у нее; определяется по первому соединению
+    private volatile Boolean postgres;
+
+    public DeadlineDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!RequestDeadline.isActive()) {
+            return super.getConnection();
+        }
+        RequestDeadline.check();
+        return withDeadline(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!RequestDeadline.isActive()) {
+            return super.getConnection(username, password);
+        }
+        RequestDeadline.check();
+        return withDeadline(super.getConnection(username, password));
+    }
+
+    private Connection withDeadline(Connection connection) throws SQLException {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), PROXY_INTERFACES,
+                new DeadlineConnectionHandler(connection, isPostgres(connection)));
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        Boolean result = postgres;
+        if (result == null) {
+            result = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            postgres = result;
+        }
+        return result;
+    }
+
+    // Оставшееся время в миллисекундах, не меньше 1: 0 в statement_timeout отключает ограничение
+    private static long remainingMillis() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(RequestDeadline.remainingNanos()));
+    }
+
+    /**
+     * Соединение, задающее время ожидания каждому создаваемому запросу JDBC.
+     */
+    private static final class DeadlineConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final boolean statementTimeout;
+
+        // statement_timeout задан в текущей транзакции; соединение используется одним потоком
+        private boolean transactionTimeoutSet;
+
+        DeadlineConnectionHandler(Connection target, boolean statementTimeout) {
+            this.target = target;
+            this.statementTimeout = statementTimeout;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Deadline-aware proxy for " + target;
+                case "getTargetConnection":
+                    return target;
+                case "commit", "setAutoCommit":
+                    transactionTimeoutSet = false;
+                    break;
+                case "rollback":
+                    // Откат к точке сохранения не завершает транзакцию
+                    if (args == null) {
+                        transactionTimeoutSet = false;
+                    }
+                    break;
+                case "createStatement", "prepareStatement", "prepareCall":
+                    beforeStatement();
+                    break;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (result instanceof Statement statement && RequestDeadline.isActive()) {
+                // Время ожидания JDBC задается в целых секундах
+                statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remainingMillis() + 999) / 1000));
+            }
+            return result;
+        }
+
+        private void beforeStatement() throws SQLException {
+            if (!RequestDeadline.isActive()) {
+                return;
+            }
+            RequestDeadline.check();
+            if (statementTimeout && !transactionTimeoutSet && !target.getAutoCommit()) {
+                try (Statement statement = target.createStatement()) {
+                    statement.execute("set local statement_timeout = " + remainingMillis());
+                }
+                transactionTimeoutSet = true;
+            }
+        }
+    }
+}
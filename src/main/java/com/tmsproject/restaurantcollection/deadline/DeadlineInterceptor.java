@@ -0,0 +1,69 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+import com.tmsproject.restaurantcollection.limit.EndpointClass;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Задает срок запроса: из заголовка клиента, но не больше {@code max-timeout}, или по умолчанию для класса
+ * эндпоинта. Срок снимается после завершения запроса.
+ */
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    private final DeadlineProperties properties;
+
+    // Срок по умолчанию вычисляется один раз для каждого метода контроллера
+    private final Map<HandlerMethod, Duration> defaults = new ConcurrentHashMap<>();
+
+    public DeadlineInterceptor(DeadlineProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled() || request.getDispatcherType() != DispatcherType.REQUEST
+                || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        String requested = request.getHeader(properties.getHeader());
+        Duration timeout = requested == null
+                ? defaults.computeIfAbsent(handlerMethod, method -> properties.getDefaults().get(EndpointClass.of(method)))
+                : parse(requested);
+        RequestDeadline.start(timeout);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Асинхронный ответ продолжается в других потоках; поток запроса возвращается в пул без срока
+        RequestDeadline.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    private Duration parse(String requested) {
+        long millis;
+        try {
+            millis = Long.parseLong(requested.trim());
+        } catch (NumberFormatException e) {
+            millis = 0;
+        }
+        if (millis < 1) {
+            throw new InvalidParameterException("Header '" + properties.getHeader()
+                    + "' should be a positive number of milliseconds.");
+        }
+        Duration timeout = Duration.ofMillis(millis);
+        return timeout.compareTo(properties.getMaxTimeout()) > 0 ? properties.getMaxTimeout() : timeout;
+    }
+}
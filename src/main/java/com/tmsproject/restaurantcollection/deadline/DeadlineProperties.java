@@ -0,0 +1,31 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import com.tmsproject.restaurantcollection.limit.EndpointClass;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Настройки сроков запросов.
+ */
+@Data
+@ConfigurationProperties(prefix = "restaurant.deadline")
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+
+    // Заголовок, в котором клиент передает, сколько миллисекунд он готов ждать ответа
+    private String header = "X-Request-Timeout";
+
+    // Наибольший срок, который клиент может запросить заголовком
+    private Duration maxTimeout = Duration.ofSeconds(60);
+
+    // Срок по умолчанию для каждого класса эндпоинтов
+    private Map<EndpointClass, Duration> defaults = new EnumMap<>(Map.of(
+            EndpointClass.READ, Duration.ofSeconds(5),
+            EndpointClass.WRITE, Duration.ofSeconds(10),
+            EndpointClass.EXPORT, Duration.ofSeconds(30)));
+}
@@ -0,0 +1,139 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import com.tmsproject.restaurantcollection.exception.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Срок текущего запроса, хранимый в потоке запроса.
+ * <p>
+ * Срок задается перехватчиком запросов и ограничивает ожидание общих запросов, время запросов к базе и работу
+ * после запроса к базе. Вне запроса срока нет, и методы ничего не ограничивают. Задача, выполняемая в другом
+ * потоке от имени запроса, переносит срок через {@link #propagate}.
+ */
+public final class RequestDeadline {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    // Момент истечения срока по System.nanoTime(); NONE - срока нет
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[]{NONE});
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Задает срок текущего запроса.
+     *
+     * @param timeout Сколько осталось до срока.
+     */
+    public static void start(Duration timeout) {
+        CURRENT.get()[0] = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Снимает срок в текущем потоке.
+     */
+    public static void clear() {
+        CURRENT.get()[0] = NONE;
+    }
+
+    /**
+     * Есть ли у текущего потока срок.
+     */
+    public static boolean isActive() {
+        return CURRENT.get()[0] != NONE;
+    }
+
+    /**
+     * Сколько осталось до срока, нс; {@link Long#MAX_VALUE}, если срока нет, и не больше 0, если срок истек.
+     */
+    public static long remainingNanos() {
+        long deadline = CURRENT.get()[0];
+        return deadline == NONE ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    /**
+     * Истек ли срок текущего запроса.
+     */
+    public static boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Прерывает работу, если срок запроса истек.
+     *
+     * @throws DeadlineExceededException Если срок истек.
+     */
+    public static void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+    }
+
+    /**
+     * Ограничивает время ожидания оставшимся до срока временем.
+     *
+     * @param timeout Время ожидания без учета срока.
+     * @return Меньшее из времени ожидания и оставшегося времени, не меньше нуля.
+     */
+    public static Duration cap(Duration timeout) {
+        long remaining = remainingNanos();
+        if (remaining == Long.MAX_VALUE) {
+            return timeout;
+        }
+        if (remaining <= 0) {
+            return Duration.ZERO;
+        }
+        Duration left = Duration.ofNanos(remaining);
+        return timeout.compareTo(left) <= 0 ? timeout : left;
+    }
+
+    /**
+     * Выполняет общую для нескольких запросов работу со своим сроком вместо срока вызывающего: короткий срок одного
+     * клиента не должен прерывать загрузку, результата которой ждут другие. Каждый ожидающий ограничивает только
+     * свое ожидание через {@link #cap}. Вне запроса срок не задается.
+     *
+     * @param timeout Срок общей работы.
+     * @param task    Общая работа.
+     * @return Задача, выполняемая со сроком {@code timeout}.
+     */
+    public static <T> Supplier<T> detach(Duration timeout, Supplier<T> task) {
+        return () -> {
+            long[] current = CURRENT.get();
+            long previous = current[0];
+            if (previous == NONE) {
+                return task.get();
+            }
+            current[0] = System.nanoTime() + timeout.toNanos();
+            try {
+                return task.get();
+            } finally {
+                current[0] = previous;
+            }
+        };
+    }
+
+    /**
+     * Переносит срок текущего потока в задачу, выполняемую в другом потоке.
+     *
+     * @param task Задача.
+     * @return Задача, выполняемая со сроком вызывающего потока.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        long deadline = CURRENT.get()[0];
+        if (deadline == NONE) {
+            return task;
+        }
+        return () -> {
+            long[] current = CURRENT.get();
+            long previous = current[0];
+            current[0] = deadline;
+            try {
+                return task.get();
+            } finally {
+                current[0] = previous;
+            }
+        };
+    }
+}
@@ -0,0 +1,179 @@
+package com.tmsproject.restaurantcollection.dedup;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantField;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Поиск почти одинаковых ресторанов ("BurgegKing" и "Burger King") для объединения.
+ * <p>
+ * Блок сравнения - город: рестораны разных городов дублями не считаются. Города обрабатываются параллельно
+ * на отдельном fork-join пуле, крупные первыми, чтобы в конце не остался один большой город. В памяти
+ * одновременно не больше {@code parallelism} городов, и из хранилища выбираются только ID, название, рейтинг
+ * и число отзывов. Похожие пары внутри города ищет {@link DuplicateMatcher}, связанные пары объединяются в группы.
+ */
+@Slf4j
+@Component
+public class DuplicateDetector {
+
+    private static final RestaurantProjection PROJECTION = RestaurantProjection.parse("id,name,averageRating,votes");
+
+    private final RestaurantStore store;
+    private final int parallelism;
+    private final double minTrigramSimilarity;
+    private final double minScore;
+    private final int maxPostings;
+
+    public DuplicateDetector(RestaurantStore store,
+                             @Value("${restaurant.dedup.parallelism:0}") int parallelism,
+                             @Value("${restaurant.dedup.min-trigram-similarity:0.3}") double minTrigramSimilarity,
+                             @Value("${restaurant.dedup.min-score:0.9}") double minScore,
+                             @Value("${restaurant.dedup.max-postings:2000}") int maxPostings) {
+        this.store = store;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.minTrigramSimilarity = minTrigramSimilarity;
+        this.minScore = minScore;
+        this.maxPostings = maxPostings;
+    }
+
+    /**
+     * Проверяет все города.
+     *
+     * @param sink Получатель предложений; вызывается из разных потоков.
+     * @return Итог проверки.
+     */
+    public ScanReport scan(Consumer<MergeSuggestion> sink) {
+        long start = System.nanoTime();
+        List<CityTotals> cities = new ArrayList<>(store.findCityTotals());
+        cities.sort(Comparator.comparing(CityTotals::getRestaurants).reversed());
+        AtomicLong restaurants = new AtomicLong();
+        AtomicInteger groups = new AtomicInteger();
+        AtomicLong duplicates = new AtomicLong();
+        DuplicateMatcher matcher = new DuplicateMatcher(minTrigramSimilarity, minScore, maxPostings);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> cities.parallelStream().forEach(city -> {
+                List<MergeSuggestion> found = scanCity(city.getCity(), matcher, restaurants);
+                found.forEach(suggestion -> {
+                    groups.incrementAndGet();
+                    duplicates.addAndGet(suggestion.duplicateIds().size());
+                    sink.accept(suggestion);
+                });
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Duplicate scan interrupted.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        ScanReport report = new ScanReport(cities.size(), restaurants.get(), groups.get(), duplicates.get());
+        log.info("Duplicate scan finished.; cities: {}; restaurants: {}; groups: {}; duplicates: {}; took: {} ms",
+                report.cities(), report.restaurants(), report.groups(), report.duplicates(),
+                (System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private List<MergeSuggestion> scanCity(String cityKey, DuplicateMatcher matcher, AtomicLong restaurants) {
+        List<ProjectedRestaurant> rows = store.findAllByCityKey(cityKey, PROJECTION);
+        restaurants.addAndGet(rows.size());
+        String[] names = new String[rows.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = (String) rows.get(i).get(RestaurantField.NAME);
+        }
+        List<DuplicateMatcher.Match> matches = matcher.match(names);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        return group(cityKey, rows, matches);
+    }
+
+    // Связанные пары объединяются в группы системой непересекающихся множеств
+    static List<MergeSuggestion> group(String cityKey, List<ProjectedRestaurant> rows,
+                                       List<DuplicateMatcher.Match> matches) {
+        int[] parent = new int[rows.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        Map<Integer, Double> minScore = new HashMap<>();
+        for (DuplicateMatcher.Match match : matches) {
+            int left = find(parent, match.left());
+            int right = find(parent, match.right());
+            double score = Math.min(match.score(), Math.min(minScore.getOrDefault(left, 1.0),
+                    minScore.getOrDefault(right, 1.0)));
+            if (left != right) {
+                parent[right] = left;
+                minScore.remove(right);
+            }
+            minScore.put(left, score);
+        }
+        boolean[] matched = new boolean[rows.size()];
+        for (DuplicateMatcher.Match match : matches) {
+            matched[match.left()] = true;
+            matched[match.right()] = true;
+        }
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (int index = 0; index < matched.length; index++) {
+            if (matched[index]) {
+                members.computeIfAbsent(find(parent, index), root -> new ArrayList<>()).add(index);
+            }
+        }
+        List<MergeSuggestion> suggestions = new ArrayList<>(members.size());
+        members.forEach((root, indexes) -> {
+            List<MergeSuggestion.Candidate> candidates = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                ProjectedRestaurant row = rows.get(index);
+                Rating rating = (Rating) row.get(RestaurantField.AVERAGE_RATING);
+                Integer votes = (Integer) row.get(RestaurantField.VOTES);
+                candidates.add(new MergeSuggestion.Candidate((Long) row.get(RestaurantField.ID),
+                        (String) row.get(RestaurantField.NAME), rating == null ? null : rating.toString(),
+                        votes == null ? 0 : votes));
+            }
+            candidates.sort(Comparator.comparingInt(MergeSuggestion.Candidate::votes).reversed()
+                    .thenComparingLong(MergeSuggestion.Candidate::id));
+            List<Long> duplicateIds = candidates.subList(1, candidates.size()).stream()
+                    .map(MergeSuggestion.Candidate::id)
+                    .toList();
+            suggestions.add(new MergeSuggestion(cityKey, candidates.get(0).id(), duplicateIds, minScore.get(root),
+                    candidates));
+        });
+        return suggestions;
+    }
+
+    private static int find(int[] parent, int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    /**
+     * Итог проверки.
+     *
+     * @param cities      Проверенные города.
+     * @param restaurants Проверенные рестораны.
+     * @param groups      Найденные группы похожих ресторанов.
+     * @param duplicates  Рестораны, которые предлагается объединить с другими.
+     */
+    public record ScanReport(int cities, long restaurants, int groups, long duplicates) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.tmsproject.restaurantcollection.dedup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск похожих названий внутри одного блока (города).
+ * <p>
+ * Сравнивать все пары блока - {@code O(n^2)}, поэтому кандидаты отбираются по общим триграммам через
+ * инвертированный индекс: для каждого названия считается число общих триграмм с остальными, и только пары
+ * с достаточным коэффициентом Жаккара проверяются Джаро-Винклером. Триграммы, встречающиеся больше чем в
+ * {@code maxPostings} названиях (например, "piz" в большом городе), в отбор не входят - по ним кандидатов
+ * слишком много, а различают они плохо. Такие триграммы не попадают и в число общих, поэтому для названий,
+ * состоящих в основном из частых триграмм, коэффициент занижен.
+ */
+public final class DuplicateMatcher {
+
+    private final double minTrigramSimilarity;
+    private final double minScore;
+    private final int maxPostings;
+
+    /**
+     * @param minTrigramSimilarity Минимальный коэффициент Жаккара триграмм для проверки пары.
+     * @param minScore             Минимальное сходство Джаро-Винклера для совпадения.
+     * @param maxPostings          Наибольшая частота триграммы, по которой отбираются кандидаты.
+     */
+    public DuplicateMatcher(double minTrigramSimilarity, double minScore, int maxPostings) {
+        this.minTrigramSimilarity = minTrigramSimilarity;
+        this.minScore = minScore;
+        this.maxPostings = maxPostings;
+    }
+
+    /**
+     * Находит пары похожих названий.
+     *
+     * @param names Названия блока.
+     * @return Пары индексов {@code left < right} со сходством не ниже порога.
+     */
+    public List<Match> match(String[] names) {
+        int size = names.length;
+        String[] normalized = new String[size];
+        int[][] trigramIds = new int[size][];
+        Map<Long, Integer> dictionary = new HashMap<>();
+        int entries = 0;
+        for (int i = 0; i < size; i++) {
+            normalized[i] = NameSimilarity.normalize(names[i]);
+            long[] trigrams = NameSimilarity.trigrams(normalized[i]);
+            int[] ids = new int[trigrams.length];
+            for (int t = 0; t < trigrams.length; t++) {
+                ids[t] = dictionary.computeIfAbsent(trigrams[t], key -> dictionary.size());
+            }
+            trigramIds[i] = ids;
+            entries += ids.length;
+        }
+
+        // Инвертированный индекс: номера названий по триграммам, отсортированные по (триграмма, название)
+        long[] sorted = new long[entries];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            for (int id : trigramIds[i]) {
+                sorted[position++] = (long) id << 32 | i;
+            }
+        }
+        Arrays.sort(sorted);
+        int[] postingStart = new int[dictionary.size() + 1];
+        for (long entry : sorted) {
+            postingStart[(int) (entry >>> 32) + 1]++;
+        }
+        for (int t = 0; t < dictionary.size(); t++) {
+            postingStart[t + 1] += postingStart[t];
+        }
+
+        List<Match> matches = new ArrayList<>();
+        int[] shared = new int[size];
+        int[] touched = new int[size];
+        for (int i = 0; i < size; i++) {
+            int touchedCount = 0;
+            for (int id : trigramIds[i]) {
+                int from = postingStart[id];
+                int to = postingStart[id + 1];
+                if (to - from > maxPostings) {
+                    continue;
+                }
+                // Названия в списке по возрастанию номера; пары с меньшими номерами уже проверены
+                for (int p = to - 1; p >= from; p--) {
+                    int j = (int) sorted[p];
+                    if (j <= i) {
+                        break;
+                    }
+                    if (shared[j]++ == 0) {
+                        touched[touchedCount++] = j;
+                    }
+                }
+            }
+            for (int k = 0; k < touchedCount; k++) {
+                int j = touched[k];
+                int common = shared[j];
+                shared[j] = 0;
+                double jaccard = (double) common / (trigramIds[i].length + trigramIds[j].length - common);
+                if (jaccard >= minTrigramSimilarity) {
+                    double score = NameSimilarity.jaroWinkler(normalized[i], normalized[j]);
+                    if (score >= minScore) {
+                        matches.add(new Match(i, j, score));
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Пара похожих названий.
+     *
+     * @param left  Индекс первого названия.
+     * @param right Индекс второго названия, больше {@code left}.
+     * @param score Сходство Джаро-Винклера нормализованных названий.
+     */
+    public record Match(int left, int right, double score) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.tmsproject.restaurantcollection.dedup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Запуск поиска дублей из командной строки: {@code --restaurant.dedup.report-file=duplicates.ndjson}.
+ * Отчет - одно {@link MergeSuggestion} в строке JSON; строки пишутся по мере готовности городов.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(DuplicateScanCommand.REPORT_PROPERTY)
+public class DuplicateScanCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String REPORT_PROPERTY = "restaurant.dedup.report-file";
+
+    private final DuplicateDetector detector;
+    private final ObjectMapper objectMapper;
+    private final Path reportFile;
+
+    private int exitCode;
+
+    public DuplicateScanCommand(DuplicateDetector detector, ObjectMapper objectMapper,
+                                @Value("${" + REPORT_PROPERTY + "}") String reportFile) {
+        this.detector = detector;
+        this.objectMapper = objectMapper;
+        this.reportFile = Path.of(reportFile);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            DuplicateDetector.ScanReport report = detector.scan(suggestion -> write(writer, suggestion));
+            log.info("Duplicate report written.; file: {}; groups: {}", reportFile, report.groups());
+        } catch (Exception e) {
+            exitCode = 1;
+            log.error("Duplicate scan failed.; file: {}", reportFile, e);
+        }
+    }
+
+    private void write(BufferedWriter writer, MergeSuggestion suggestion) {
+        try {
+            String line = objectMapper.writeValueAsString(suggestion);
+            // Города завершаются в разных потоках
+            synchronized (writer) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
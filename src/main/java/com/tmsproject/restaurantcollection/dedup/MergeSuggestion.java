@@ -0,0 +1,23 @@
+package com.tmsproject.restaurantcollection.dedup;
+
+import java.util.List;
+
+/**
+ * Предложение объединить похожие рестораны города. Поля {@code survivorId} и {@code duplicateIds} совпадают
+ * с телом {@code POST /restaurant/merge}, поэтому строку отчета можно отправить как есть.
+ *
+ * @param city         Ключ города.
+ * @param survivorId   Ресторан, который останется: с наибольшим числом отзывов, при равенстве - с меньшим ID.
+ * @param duplicateIds Рестораны, которые будут объединены с оставшимся и удалены.
+ * @param score        Наименьшее сходство названий среди пар, связавших группу.
+ * @param restaurants  Рестораны группы для проверки человеком.
+ */
+public record MergeSuggestion(String city, long survivorId, List<Long> duplicateIds, double score,
+                              List<Candidate> restaurants) {
+
+    /**
+     * Ресторан группы.
+     */
+    public record Candidate(long id, String name, String averageRating, int votes) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.tmsproject.restaurantcollection.dedup;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Сравнение названий ресторанов: нормализация, триграммы и сходство Джаро-Винклера.
+ */
+public final class NameSimilarity {
+
+    private NameSimilarity() {
+    }
+
+    /**
+     * Нижний регистр, только буквы и цифры: "Burger King" и "BurgerKing" совпадают.
+     */
+    public static String normalize(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Различные триграммы нормализованного названия, дополненного как в pg_trgm (два пробела в начале, один
+     * в конце), по возрастанию. Триграмма кодируется тремя символами UTF-16 в одном long.
+     */
+    public static long[] trigrams(String normalized) {
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        String padded = "  " + normalized + " ";
+        long[] result = new long[padded.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return distinct == result.length ? result : Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * Сходство Джаро-Винклера от 0 до 1; общий префикс до 4 символов повышает сходство.
+     */
+    public static double jaroWinkler(String left, String right) {
+        if (left.equals(right)) {
+            return 1;
+        }
+        int leftLength = left.length();
+        int rightLength = right.length();
+        if (leftLength == 0 || rightLength == 0) {
+            return 0;
+        }
+        int window = Math.max(0, Math.max(leftLength, rightLength) / 2 - 1);
+        boolean[] leftMatched = new boolean[leftLength];
+        boolean[] rightMatched = new boolean[rightLength];
+        int matches = 0;
+        for (int i = 0; i < leftLength; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(rightLength - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!rightMatched[j] && left.charAt(i) == right.charAt(j)) {
+                    leftMatched[i] = true;
+                    rightMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < leftLength; i++) {
+            if (leftMatched[i]) {
+                while (!rightMatched[j]) {
+                    j++;
+                }
+                if (left.charAt(i) != right.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double m = matches;
+        double jaro = (m / leftLength + m / rightLength + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(leftLength, rightLength)) && left.charAt(prefix) == right.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+}
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import jakarta.persistence.*;
 
@@ -17,8 +20,9 @@ import static com.tmsproject.restaurantcollection.domain.ResIdSeq.RES_SEQ_GENERA
 @SuperBuilder
 public class BaseEntity {
     @Id
-    @SequenceGenerator(name = RES_SEQ_GENERATOR, sequenceName = RES_SEQUENCE_NAME, allocationSize = 1)
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = RES_SEQ_GENERATOR)
+    @GenericGenerator(name = RES_SEQ_GENERATOR, type = PooledLoSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = RES_SEQUENCE_NAME))
+    @GeneratedValue(generator = RES_SEQ_GENERATOR)
     @Column(nullable = false, updatable = false)
     private Long id;
 }
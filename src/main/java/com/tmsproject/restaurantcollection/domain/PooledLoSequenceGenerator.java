@@ -0,0 +1,37 @@
+package com.tmsproject.restaurantcollection.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Генератор ID, резервирующий блоки значений последовательности (оптимизатор pooled-lo).
+ * <p>
+ * Каждый {@code nextval} возвращает начало блока из {@value #BLOCK_SIZE_SETTING} значений, которые экземпляр
+ * раздает без обращения к базе. Блоки разных экземпляров не пересекаются, пока шаг последовательности равен размеру
+ * блока; при расхождении Hibernate берет шаг из базы ({@code increment_size_mismatch_strategy=FIX}).
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Настройка Hibernate с размером блока.
+     */
+    public static final String BLOCK_SIZE_SETTING = "restaurant.id.block-size";
+
+    static final int DEFAULT_BLOCK_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Integer blockSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(BLOCK_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_BLOCK_SIZE);
+        parameters.put(INCREMENT_PARAM, String.valueOf(blockSize));
+        parameters.put(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
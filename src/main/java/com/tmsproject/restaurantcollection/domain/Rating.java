@@ -0,0 +1,199 @@
+package com.tmsproject.restaurantcollection.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Рейтинг ресторана с фиксированной точкой: значение хранится как int, умноженный на 10^{@link #SCALE}.
+ * <p>
+ * Разбор и форматирование не создают промежуточных BigDecimal и строк, сравнение - сравнение int.
+ * Текстовое представление совпадает с {@code BigDecimal.stripTrailingZeros().toPlainString()}.
+ */
+public final class Rating implements Comparable<Rating> {
+
+    /**
+     * Число знаков после запятой; совпадает с масштабом колонки {@code average_rating}.
+     */
+    public static final int SCALE = 5;
+
+    /**
+     * Наибольшее значение, помещающееся в колонку {@code numeric(9, 5)}.
+     */
+    public static final int MAX_SCALED = 999_999_999;
+
+    private static final int FACTOR = 100_000;
+
+    private final int scaled;
+
+    private Rating(int scaled) {
+        this.scaled = scaled;
+    }
+
+    /**
+     * Создает рейтинг из масштабированного значения.
+     *
+     * @param scaled Рейтинг, умноженный на 10^5.
+     * @return Рейтинг.
+     */
+    public static Rating ofScaled(int scaled) {
+        if (scaled > MAX_SCALED || scaled < -MAX_SCALED) {
+            throw new IllegalArgumentException("Parameter 'averageRating' is out of range.");
+        }
+        return new Rating(scaled);
+    }
+
+    /**
+     * Создает рейтинг из BigDecimal, округляя до {@link #SCALE} знаков.
+     *
+     * @param value Значение рейтинга.
+     * @return Рейтинг или null, если значение null.
+     */
+    public static Rating valueOf(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        BigDecimal rounded = value.setScale(SCALE, RoundingMode.HALF_UP);
+        if (rounded.precision() > 9) {
+            throw new IllegalArgumentException("Parameter 'averageRating' is out of range.");
+        }
+        return new Rating(rounded.unscaledValue().intValue());
+    }
+
+    /**
+     * Разбирает десятичную запись рейтинга, округляя лишние знаки после запятой по правилу HALF_UP.
+     *
+     * @param text Запись вида {@code [+-]digits[.digits]}.
+     * @return Рейтинг.
+     * @throws IllegalArgumentException Если запись не является десятичным числом или выходит за диапазон.
+     */
+    public static Rating parse(CharSequence text) {
+        return new Rating(parseScaled(text));
+    }
+
+    /**
+     * Разбирает десятичную запись рейтинга в масштабированное значение без создания объектов.
+     *
+     * @param text Запись вида {@code [+-]digits[.digits]}.
+     * @return Рейтинг, умноженный на 10^5.
+     * @throws IllegalArgumentException Если запись не является десятичным числом или выходит за диапазон.
+     */
+    public static int parseScaled(CharSequence text) {
+        int length = text.length();
+        int position = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            position++;
+        }
+        long value = 0;
+        int integerDigits = 0;
+        for (; position < length && isDigit(text.charAt(position)); position++) {
+            value = value * 10 + (text.charAt(position) - '0');
+            integerDigits++;
+            if (value > MAX_SCALED / FACTOR) {
+                throw new IllegalArgumentException("Parameter 'averageRating' is out of range.");
+            }
+        }
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (position < length && text.charAt(position) == '.') {
+            position++;
+            for (; position < length && isDigit(text.charAt(position)); position++) {
+                int digit = text.charAt(position) - '0';
+                if (fractionDigits < SCALE) {
+                    value = value * 10 + digit;
+                } else if (fractionDigits == SCALE) {
+                    roundUp = digit >= 5;
+                }
+                fractionDigits++;
+            }
+        }
+        if (position != length || integerDigits + fractionDigits == 0) {
+            throw new IllegalArgumentException("Parameter 'averageRating' should be Decimal number format.");
+        }
+        for (int digits = Math.min(fractionDigits, SCALE); digits < SCALE; digits++) {
+            value *= 10;
+        }
+        if (roundUp) {
+            value++;
+        }
+        if (value > MAX_SCALED) {
+            throw new IllegalArgumentException("Parameter 'averageRating' is out of range.");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Масштабированное значение рейтинга.
+     */
+    public int scaled() {
+        return scaled;
+    }
+
+    /**
+     * Значение рейтинга в виде BigDecimal с масштабом {@link #SCALE}.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    /**
+     * Дописывает запись рейтинга без лишних нулей в конце дробной части.
+     *
+     * @param target Куда дописать.
+     * @return Тот же target.
+     */
+    public StringBuilder appendTo(StringBuilder target) {
+        int value = scaled;
+        if (value < 0) {
+            target.append('-');
+            value = -value;
+        }
+        target.append(value / FACTOR);
+        int fraction = value % FACTOR;
+        if (fraction != 0) {
+            int digits = SCALE;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            target.append('.');
+            for (int divisor = pow10(digits - 1); divisor > 0; divisor /= 10) {
+                target.append((char) ('0' + fraction / divisor % 10));
+            }
+        }
+        return target;
+    }
+
+    @Override
+    public int compareTo(Rating other) {
+        return Integer.compare(scaled, other.scaled);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof Rating rating && rating.scaled == scaled;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(scaled);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(12)).toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
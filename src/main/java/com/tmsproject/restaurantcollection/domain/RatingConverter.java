@@ -0,0 +1,23 @@
+package com.tmsproject.restaurantcollection.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Преобразует {@link Rating} в колонку {@code numeric(9, 5)} и обратно.
+ */
+@Converter(autoApply = true)
+public class RatingConverter implements AttributeConverter<Rating, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Rating rating) {
+        return rating == null ? null : rating.toBigDecimal();
+    }
+
+    @Override
+    public Rating convertToEntityAttribute(BigDecimal value) {
+        return Rating.valueOf(value);
+    }
+}
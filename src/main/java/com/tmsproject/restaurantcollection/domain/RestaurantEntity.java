@@ -6,11 +6,14 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldNameConstants;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.PartitionKey;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
-import java.math.BigDecimal;
+import java.util.Locale;
 
 @Entity
 @Table(name = RestaurantEntity.TABLE_NAME)
@@ -30,13 +33,36 @@ public class RestaurantEntity extends BaseEntity {
     @Column(nullable = false)
     private String city;
 
+    // Ключ секции таблицы; Hibernate добавляет его в условия UPDATE и DELETE, чтобы они затрагивали одну секцию
+    @PartitionKey
+    @Column(name = "city_key", nullable = false, updatable = false)
+    @EqualsAndHashCode.Exclude
+    private String cityKey;
+
     @Column(name = "estimated_cost", nullable = false)
     private Integer estimatedCost;
 
-    @Column(name = "average_rating", nullable = false)
-    private BigDecimal averageRating;
+    @Column(name = "average_rating", nullable = false, precision = 9, scale = Rating.SCALE)
+    private Rating averageRating;
 
     @Column(nullable = false)
     private Integer votes;
 
+    /**
+     * Нормализованный ключ города, совпадающий с {@code lower(city)} в базе
+     * (ограничение {@code restaurants_city_key_check} проверяет это при записи).
+     *
+     * @param city Название города.
+     * @return Ключ города в нижнем регистре.
+     */
+    public static String cityKey(String city) {
+        return city == null ? null : city.toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void fillCityKey() {
+        cityKey = cityKey(city);
+    }
+
 }
@@ -0,0 +1,36 @@
+package com.tmsproject.restaurantcollection.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(title = "City statistics", description = "Aggregated restaurant statistics of a city")
+public class CityStatsDto {
+
+    @Schema(title = "Normalized (lower-case) city name.")
+    private String city;
+
+    @Schema(title = "Number of restaurants in the city.")
+    private Long restaurants;
+
+    @Schema(title = "Total reviews of all restaurants in the city.")
+    private Long votes;
+
+    @Schema(title = "Average rating weighted by the number of reviews.")
+    private String averageRating;
+
+    @Schema(title = "Median estimated cost for 2 people.")
+    private Integer costP50;
+
+    @Schema(title = "90th percentile of the estimated cost for 2 people.")
+    private Integer costP90;
+
+    @Schema(title = "99th percentile of the estimated cost for 2 people.")
+    private Integer costP99;
+}
@@ -0,0 +1,35 @@
+package com.tmsproject.restaurantcollection.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(title = "Rating history bucket", description = "Rating changes of a restaurant within one hour or day")
+public class RatingHistoryBucketDto {
+
+    @Schema(title = "Start of the bucket (UTC).")
+    private Instant from;
+
+    @Schema(title = "Lowest rating in the bucket.")
+    private String minRating;
+
+    @Schema(title = "Highest rating in the bucket.")
+    private String maxRating;
+
+    @Schema(title = "Average of the recorded ratings.")
+    private String averageRating;
+
+    @Schema(title = "Largest number of reviews recorded in the bucket.")
+    private Integer votes;
+
+    @Schema(title = "Number of recorded changes.")
+    private Long samples;
+}
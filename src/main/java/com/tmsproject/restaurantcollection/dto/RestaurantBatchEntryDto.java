@@ -0,0 +1,26 @@
+package com.tmsproject.restaurantcollection.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(title = "Batch entry", description = "Result for one requested id, in request order")
+public class RestaurantBatchEntryDto {
+
+    @Schema(title = "Requested id.")
+    private Long id;
+
+    @Schema(title = "Whether the restaurant exists; false is the not-found marker.")
+    private boolean found;
+
+    @Schema(title = "Restaurant with the requested fields; absent when not found.", implementation = RestaurantDto.class)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Object restaurant;
+}
@@ -0,0 +1,27 @@
+package com.tmsproject.restaurantcollection.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(title = "Restaurant change", description = "Create, update or delete of a restaurant")
+public class RestaurantChangeDto {
+
+    @Schema(title = "Monotonically increasing sequence number, also sent as the SSE event id.")
+    private Long sequence;
+
+    @Schema(title = "Change type: created, updated or deleted.")
+    private String type;
+
+    @Schema(title = "Id of the changed restaurant.")
+    private Long id;
+
+    @Schema(title = "Restaurant state after the change, absent for deleted restaurants.")
+    private RestaurantDto restaurant;
+}
@@ -0,0 +1,23 @@
+package com.tmsproject.restaurantcollection.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(title = "Restaurant merge", description = "Duplicates to fold into the surviving restaurant of the same city")
+public class RestaurantMergeDto {
+
+    @Schema(title = "Restaurant that stays; gets the combined votes and rating.")
+    private Long survivorId;
+
+    @Schema(title = "Restaurants that are merged into the survivor and deleted.")
+    private List<Long> duplicateIds;
+}
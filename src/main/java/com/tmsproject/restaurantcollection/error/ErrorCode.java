@@ -10,6 +10,9 @@ public enum ErrorCode {
     CONFLICT("conflict"),
     DUPLICATE("duplicate"),
     NOT_SUPPORTED("not-supported"),
+    OVERLOADED("overloaded"),
+    TIMEOUT("timeout"),
+    DEADLINE_EXCEEDED("deadline-exceeded"),
     EXCEPTION("exception");
 
     private final String code;
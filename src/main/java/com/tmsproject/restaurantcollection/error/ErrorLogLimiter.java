@@ -0,0 +1,100 @@
+package com.tmsproject.restaurantcollection.error;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничивает частоту логгирования ошибок для каждой пары {@link ErrorCode} и HTTP статуса.
+ * <p>
+ * В каждую секунду логгируется не больше {@code permitsPerSecond} ошибок с одним кодом и статусом, сверх этого -
+ * каждая {@code sampleRate}-я. Пропущенные записи подсчитываются и сообщаются вместе со следующей записью или сводкой.
+ * Статус входит в ключ, чтобы поток 404 не вытеснял записи 500 с тем же кодом.
+ */
+public class ErrorLogLimiter {
+
+    /**
+     * Запись не логгируется.
+     */
+    public static final long SUPPRESSED = -1;
+
+    private final int permitsPerSecond;
+    private final int sampleRate;
+    private final LongSupplier nanoTime;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public ErrorLogLimiter(int permitsPerSecond, int sampleRate) {
+        this(permitsPerSecond, sampleRate, System::nanoTime);
+    }
+
+    ErrorLogLimiter(int permitsPerSecond, int sampleRate, LongSupplier nanoTime) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.sampleRate = sampleRate;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Решает, логгировать ли очередную ошибку.
+     *
+     * @param code   Код ошибки.
+     * @param status HTTP статус ответа.
+     * @return {@link #SUPPRESSED}, если запись пропускается, иначе число пропущенных с прошлой записи.
+     */
+    public long tryAcquire(ErrorCode code, int status) {
+        Bucket bucket = buckets.computeIfAbsent(code.getCode() + ':' + status, key -> new Bucket(code, status));
+        long second = nanoTime.getAsLong() / 1_000_000_000L;
+        if (bucket.second.get() != second) {
+            long previous = bucket.second.get();
+            if (previous != second && bucket.second.compareAndSet(previous, second)) {
+                bucket.logged.set(0);
+            }
+        }
+        if (bucket.logged.incrementAndGet() <= permitsPerSecond
+                || (sampleRate > 0 && bucket.sampled.incrementAndGet() % sampleRate == 0)) {
+            return bucket.suppressed.sumThenReset();
+        }
+        bucket.suppressed.increment();
+        return SUPPRESSED;
+    }
+
+    /**
+     * Забирает число пропущенных записей для сводки.
+     *
+     * @return Пропущенные записи с прошлой записи или сводки по коду и статусу; пары без пропусков не возвращаются.
+     */
+    public List<Suppressed> drainSuppressed() {
+        List<Suppressed> drained = new ArrayList<>();
+        for (Bucket bucket : buckets.values()) {
+            long suppressed = bucket.suppressed.sumThenReset();
+            if (suppressed > 0) {
+                drained.add(new Suppressed(bucket.code, bucket.status, suppressed));
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Число пропущенных записей с кодом и статусом.
+     */
+    public record Suppressed(ErrorCode code, int status, long count) {
+    }
+
+    private static final class Bucket {
+        private final ErrorCode code;
+        private final int status;
+        private final AtomicLong second = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicInteger logged = new AtomicInteger();
+        private final AtomicLong sampled = new AtomicLong();
+        private final LongAdder suppressed = new LongAdder();
+
+        private Bucket(ErrorCode code, int status) {
+            this.code = code;
+            this.status = status;
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.tmsproject.restaurantcollection.error;
 
+import com.tmsproject.restaurantcollection.exception.DeadlineExceededException;
 import com.tmsproject.restaurantcollection.exception.DuplicateEntityException;
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+import com.tmsproject.restaurantcollection.exception.OverloadedException;
+import com.tmsproject.restaurantcollection.jfr.ErrorEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.ClientAbortException;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,10 +24,19 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 /**
  * Allows to choose the HTTP status code for the given error.
+ * <p>
+ * Expected outcomes (4xx) are logged without stack traces; every error code and status is rate limited and sampled by
+ * {@link ErrorLogLimiter}, so a burst of identical errors costs a counter increment instead of a log write.
  */
 @Slf4j // Аннотация для логгирования
 @ControllerAdvice // Обработчик глобальных исключений
@@ -26,12 +47,29 @@ public class GlobalExceptionHandler {
             String.format("GlobalExceptionHandler: [%s] in [%s %s%s]", ex.getMessage(), request.getMethod(),
                     request.getRequestURI(), (request.getQueryString() == null ? "" : "?" + request.getQueryString()));
 
+    private final ErrorLogLimiter logLimiter;
+
+    private final MeterRegistry meterRegistry;
+
+    // Счетчики ошибок по коду и HTTP статусу
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    // Счетчики прерванных запросов по причине
+    private final Map<String, Counter> cancelledCounters = new ConcurrentHashMap<>();
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry,
+                                  @Value("${restaurant.error-log.permits-per-second:5}") int permitsPerSecond,
+                                  @Value("${restaurant.error-log.sample-rate:100}") int sampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.logLimiter = new ErrorLogLimiter(permitsPerSecond, sampleRate);
+    }
+
     // Обработчик для исключения, когда отсутствует параметр запроса
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler({MissingServletRequestParameterException.class})
     @ResponseBody
     ErrorDescription handleMissingServletRequestParameterException(HttpServletRequest request, MissingServletRequestParameterException ex) {
-        log.warn(defaultMessageBuilder.apply(request, ex), ex); // Логгирование предупреждения
+        record(request, ex, HttpStatus.BAD_REQUEST, ErrorCode.INVALID, Level.WARN, false); // Логгирование предупреждения
         // Возвращение объекта ErrorDescription с информацией об ошибке
         return ErrorDescription.builder()
                 .code(ErrorCode.INVALID)
@@ -40,12 +78,25 @@ public class GlobalExceptionHandler {
                 .build();
     }
 
+    // Обработчик для недопустимого значения параметра запроса
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidParameterException.class)
+    @ResponseBody
+    ErrorDescription handleInvalidParameterException(HttpServletRequest request, InvalidParameterException ex) {
+        record(request, ex, HttpStatus.BAD_REQUEST, ErrorCode.INVALID, Level.WARN, false); // Логгирование предупреждения
+        return ErrorDescription.builder()
+                .code(ErrorCode.INVALID)
+                .severity(ErrorSeverity.FATAL)
+                .message(ex.getMessage())
+                .build();
+    }
+
     // Обработчик для исключения, когда сущность не найдена
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(EntityNotFoundException.class)
     @ResponseBody
     ErrorDescription handleErrorResponseException(HttpServletRequest request, EntityNotFoundException ex) {
-        log.info(defaultMessageBuilder.apply(request, ex), ex); // Логгирование информации
+        record(request, ex, HttpStatus.NOT_FOUND, ErrorCode.EXCEPTION, Level.INFO, false); // Логгирование информации
         // Возвращение объекта ErrorDescription с информацией об ошибке
         return ErrorDescription.builder()
                 .code(ErrorCode.EXCEPTION)
@@ -59,7 +110,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(DuplicateEntityException.class)
     @ResponseBody
     ErrorDescription handleErrorResponseException(HttpServletRequest request, DuplicateEntityException ex) {
-        log.info(defaultMessageBuilder.apply(request, ex), ex); // Логгирование информации
+        record(request, ex, HttpStatus.UNPROCESSABLE_ENTITY, ErrorCode.DUPLICATE, Level.INFO, false); // Логгирование информации
         // Возвращение объекта ErrorDescription с информацией об ошибке
         return ErrorDescription.builder()
                 .code(ErrorCode.DUPLICATE)
@@ -73,7 +124,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(HttpMessageNotReadableException.class)
     @ResponseBody
     ErrorDescription handleHttpMessageNotReadableException(HttpServletRequest request, HttpMessageNotReadableException ex) {
-        log.warn(defaultMessageBuilder.apply(request, ex), ex); // Логгирование предупреждения
+        record(request, ex, HttpStatus.BAD_REQUEST, ErrorCode.INVALID, Level.WARN, false); // Логгирование предупреждения
         // Возвращение объекта ErrorDescription с информацией об ошибке
         return ErrorDescription.builder()
                 .code(ErrorCode.INVALID)
@@ -87,7 +138,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(UnsupportedOperationException.class)
     @ResponseBody
     ErrorDescription handleErrorResponseException(HttpServletRequest request, UnsupportedOperationException ex) {
-        log.warn(defaultMessageBuilder.apply(request, ex), ex); // Логгирование предупреждения
+        record(request, ex, HttpStatus.METHOD_NOT_ALLOWED, ErrorCode.NOT_SUPPORTED, Level.WARN, false); // Логгирование предупреждения
         // Возвращение объекта ErrorDescription с информацией об ошибке
         return ErrorDescription.builder()
                 .code(ErrorCode.NOT_SUPPORTED)
@@ -96,12 +147,68 @@ public class GlobalExceptionHandler {
                 .build();
     }
 
+    // Обработчик для отказа контроля допуска: ответ без логгирования стека, клиенту сообщается время повтора
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(OverloadedException.class)
+    @ResponseBody
+    ErrorDescription handleOverloadedException(HttpServletRequest request, HttpServletResponse response, OverloadedException ex) {
+        record(request, ex, HttpStatus.SERVICE_UNAVAILABLE, ErrorCode.OVERLOADED, Level.DEBUG, false);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return ErrorDescription.builder()
+                .code(ErrorCode.OVERLOADED)
+                .severity(ErrorSeverity.ERROR)
+                .message(ex.getMessage())
+                .build();
+    }
+
+    // Обработчик для превышения времени ожидания запроса к базе
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(QueryTimeoutException.class)
+    @ResponseBody
+    ErrorDescription handleQueryTimeoutException(HttpServletRequest request, QueryTimeoutException ex) {
+        record(request, ex, HttpStatus.SERVICE_UNAVAILABLE, ErrorCode.TIMEOUT, Level.WARN, false); // Логгирование предупреждения без стека
+        return ErrorDescription.builder()
+                .code(ErrorCode.TIMEOUT)
+                .severity(ErrorSeverity.ERROR)
+                .message(ex.getMessage())
+                .build();
+    }
+
+    // Обработчик для истекшего срока запроса: клиент уже не ждет ответа, запрос к базе отменен
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseBody
+    ErrorDescription handleDeadlineExceededException(HttpServletRequest request, DeadlineExceededException ex) {
+        cancelledCounter("deadline").increment();
+        record(request, ex, HttpStatus.GATEWAY_TIMEOUT, ErrorCode.DEADLINE_EXCEEDED, Level.DEBUG, false);
+        return ErrorDescription.builder()
+                .code(ErrorCode.DEADLINE_EXCEEDED)
+                .severity(ErrorSeverity.ERROR)
+                .message(ex.getMessage())
+                .build();
+    }
+
+    // Обработчик для ошибок ввода-вывода: разрыв соединения клиентом (в том числе конец потока событий) учитывается
+    // без логгирования, ответ уже некому отправить; остальные ошибки обрабатываются как неизвестные
+    @ExceptionHandler(IOException.class)
+    @ResponseBody
+    ErrorDescription handleIOException(HttpServletRequest request, HttpServletResponse response, IOException ex) {
+        if (isClientDisconnect(ex)) {
+            cancelledCounter("disconnect").increment();
+            log.debug("Client disconnected.; method: {}; uri: {}; reason: {}", request.getMethod(),
+                    request.getRequestURI(), ex.getMessage());
+            return null;
+        }
+        response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        return handleUnknownException(request, ex);
+    }
+
     // Обработчик для неизвестных исключений
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(Exception.class)
     @ResponseBody
     ErrorDescription handleUnknownException(HttpServletRequest request, Exception ex) {
-        log.error(defaultMessageBuilder.apply(request, ex), ex); // Логгирование ошибки
+        record(request, ex, HttpStatus.INTERNAL_SERVER_ERROR, ErrorCode.EXCEPTION, Level.ERROR, true); // Логгирование ошибки
         // Возвращение объекта ErrorDescription с информацией об ошибке
         return ErrorDescription.builder()
                 .code(ErrorCode.EXCEPTION)
@@ -109,4 +216,62 @@ public class GlobalExceptionHandler {
                 .message(ex.getMessage())
                 .build();
     }
+
+    // Tomcat передает разрыв соединения как ClientAbortException при записи или как исходную ошибку сокета
+    // в асинхронном запросе
+    static boolean isClientDisconnect(IOException ex) {
+        if (ex instanceof ClientAbortException || ex instanceof EOFException) {
+            return true;
+        }
+        String message = ex.getMessage();
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase(Locale.ROOT);
+        return lower.contains("broken pipe") || lower.contains("connection reset");
+    }
+
+    // Счетчик запросов, прерванных до ответа, по причине
+    private Counter cancelledCounter(String reason) {
+        return cancelledCounters.computeIfAbsent(reason, key -> Counter.builder("restaurant.requests.cancelled")
+                .description("Requests abandoned before the response: deadline exceeded or client disconnected")
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Периодически логгирует число записей, пропущенных ограничителем, если после них не было разрешенных записей.
+     */
+    @Scheduled(fixedDelayString = "${restaurant.error-log.summary-interval:PT1M}")
+    public void logSuppressedSummary() {
+        for (ErrorLogLimiter.Suppressed suppressed : logLimiter.drainSuppressed()) {
+            log.warn("GlobalExceptionHandler: suppressed {} log records with code [{}] and status [{}]",
+                    suppressed.count(), suppressed.code().getCode(), suppressed.status());
+        }
+    }
+
+    // Учитывает ошибку в метриках и логгирует ее, если это разрешает ограничитель
+    private void record(HttpServletRequest request, Exception ex, HttpStatus status, ErrorCode code, Level level,
+                        boolean withStackTrace) {
+        errorCounters.computeIfAbsent(code.getCode() + ':' + status.value(), key -> Counter.builder("restaurant.errors")
+                        .tag("code", code.getCode())
+                        .tag("status", String.valueOf(status.value()))
+                        .register(meterRegistry))
+                .increment();
+        ErrorEvent.commit(code.getCode(), status.value(), ex, request.getMethod(), request.getRequestURI());
+        if (!log.isEnabledForLevel(level)) {
+            return;
+        }
+        long suppressed = logLimiter.tryAcquire(code, status.value());
+        if (suppressed == ErrorLogLimiter.SUPPRESSED) {
+            return;
+        }
+        // Сообщение формируется только для записей, которые действительно попадут в лог
+        String message = suppressed == 0
+                ? defaultMessageBuilder.apply(request, ex)
+                : defaultMessageBuilder.apply(request, ex) + " (+" + suppressed + " suppressed)";
+        log.atLevel(level)
+                .setCause(withStackTrace ? ex : null)
+                .log(message);
+    }
 }
@@ -0,0 +1,14 @@
+package com.tmsproject.restaurantcollection.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ChangeType {
+    CREATED("created"),
+    UPDATED("updated"),
+    DELETED("deleted");
+
+    private final String code;
+}
@@ -0,0 +1,20 @@
+package com.tmsproject.restaurantcollection.event;
+
+/**
+ * Событие изменения ресторана, публикуемое {@code RestaurantService}.
+ * Слушатели получают его после фиксации транзакции через {@code @TransactionalEventListener}.
+ *
+ * @param type   Тип изменения.
+ * @param before Состояние до изменения, {@code null} для созданного ресторана.
+ * @param after  Состояние после изменения, {@code null} для удаленного ресторана.
+ */
+public record RestaurantChangedEvent(ChangeType type, RestaurantSnapshot before, RestaurantSnapshot after) {
+
+    public Long id() {
+        return after != null ? after.id() : before.id();
+    }
+
+    public String cityKey() {
+        return after != null ? after.cityKey() : before.cityKey();
+    }
+}
@@ -0,0 +1,20 @@
+package com.tmsproject.restaurantcollection.event;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+
+/**
+ * Неизменяемый снимок ресторана на момент изменения.
+ */
+public record RestaurantSnapshot(Long id, String name, String city, Integer estimatedCost, Rating averageRating,
+                                 Integer votes) {
+
+    public static RestaurantSnapshot of(RestaurantEntity entity) {
+        return new RestaurantSnapshot(entity.getId(), entity.getName(), entity.getCity(), entity.getEstimatedCost(),
+                entity.getAverageRating(), entity.getVotes());
+    }
+
+    public String cityKey() {
+        return RestaurantEntity.cityKey(city);
+    }
+}
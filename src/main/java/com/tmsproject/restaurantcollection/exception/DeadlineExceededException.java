@@ -0,0 +1,23 @@
+package com.tmsproject.restaurantcollection.exception;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * Истек срок запроса: клиент больше не ждет ответа, продолжать работу бессмысленно. Исключение ожидаемое
+ * при перегрузке, поэтому создается без стека вызовов.
+ */
+public class DeadlineExceededException extends QueryTimeoutException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
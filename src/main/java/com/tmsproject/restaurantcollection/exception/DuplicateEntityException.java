@@ -1,7 +1,10 @@
 package com.tmsproject.restaurantcollection.exception;
 
+/**
+ * Сущность с такими же ключевыми полями уже существует. Исключение ожидаемое, поэтому создается без стека вызовов.
+ */
 public class DuplicateEntityException extends RuntimeException{
     public DuplicateEntityException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,10 @@
+package com.tmsproject.restaurantcollection.exception;
+
+/**
+ * Недопустимое значение параметра запроса. Исключение ожидаемое, поэтому создается без стека вызовов.
+ */
+public class InvalidParameterException extends RuntimeException {
+    public InvalidParameterException(String message) {
+        super(message, null, false, false);
+    }
+}
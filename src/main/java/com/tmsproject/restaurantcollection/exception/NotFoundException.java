@@ -0,0 +1,18 @@
+package com.tmsproject.restaurantcollection.exception;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Сущность не найдена. Это ожидаемый результат запроса, поэтому стек вызовов не заполняется.
+ */
+public class NotFoundException extends EntityNotFoundException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,17 @@
+package com.tmsproject.restaurantcollection.exception;
+
+import lombok.Getter;
+
+/**
+ * Запрос отклонен контролем допуска. Исключение ожидаемое и частое, поэтому создается без стека вызовов.
+ */
+@Getter
+public class OverloadedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public OverloadedException(String message, int retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
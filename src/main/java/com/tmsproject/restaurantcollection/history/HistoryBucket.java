@@ -0,0 +1,47 @@
+package com.tmsproject.restaurantcollection.history;
+
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Размер интервала, по которому усредняется история рейтинга.
+ */
+public enum HistoryBucket {
+    HOUR("hour", Duration.ofHours(1)),
+    DAY("day", Duration.ofDays(1));
+
+    private final String unit;
+    private final Duration duration;
+
+    HistoryBucket(String unit, Duration duration) {
+        this.unit = unit;
+        this.duration = duration;
+    }
+
+    /**
+     * Единица {@code date_trunc}.
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Разбирает значение параметра {@code bucket}.
+     *
+     * @throws InvalidParameterException Если значение не {@code hour} и не {@code day}.
+     */
+    public static HistoryBucket parse(String value) {
+        for (HistoryBucket bucket : values()) {
+            if (bucket.unit.equals(value.trim().toLowerCase(Locale.ROOT))) {
+                return bucket;
+            }
+        }
+        throw new InvalidParameterException("Parameter 'bucket' should be 'hour' or 'day'.");
+    }
+}
@@ -0,0 +1,213 @@
+package com.tmsproject.restaurantcollection.history;
+
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.repository.RatingHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пишет изменения рейтинга в {@code restaurant_rating_history} пачками.
+ * <p>
+ * Путь обновления только кладет значение в ограниченную очередь после фиксации транзакции; вставку выполняет
+ * отдельный поток, когда набирается пачка или проходит интервал. При переполненной очереди значение отбрасывается,
+ * чтобы запись истории не замедляла обновления. Значения, не записанные до остановки процесса, теряются.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${restaurant.storage.type:jpa}' == 'jpa' and ${restaurant.rating-history.enabled:true}")
+public class RatingHistoryWriter implements SmartLifecycle {
+
+    private final RatingHistoryRepository repository;
+    private final Clock clock;
+    private final BlockingQueue<RatingSample> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    // Месяцы, секции которых уже созданы
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    @Autowired
+    public RatingHistoryWriter(RatingHistoryRepository repository,
+                               MeterRegistry meterRegistry,
+                               @Value("${restaurant.rating-history.queue-capacity:65536}") int queueCapacity,
+                               @Value("${restaurant.rating-history.batch-size:500}") int batchSize,
+                               @Value("${restaurant.rating-history.flush-interval:PT1S}") Duration flushInterval) {
+        this(repository, meterRegistry, Clock.systemUTC(), queueCapacity, batchSize, flushInterval);
+    }
+
+    RatingHistoryWriter(RatingHistoryRepository repository, MeterRegistry meterRegistry, Clock clock,
+                        int queueCapacity, int batchSize, Duration flushInterval) {
+        this.repository = repository;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writtenCounter = Counter.builder("restaurant.rating-history.samples")
+                .description("Rating changes written to the history")
+                .tag("result", "written")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("restaurant.rating-history.samples")
+                .description("Rating changes dropped because the queue was full")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("restaurant.rating-history.samples")
+                .description("Rating changes lost on insert errors")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        Gauge.builder("restaurant.rating-history.queue", queue, BlockingQueue::size)
+                .description("Rating changes waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит в очередь новый рейтинг созданного или измененного ресторана.
+     *
+     * @param event Событие изменения ресторана.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        RestaurantSnapshot after = event.after();
+        if (after == null || after.averageRating() == null || !ratingChanged(event.before(), after)) {
+            return;
+        }
+        Instant now = clock.instant();
+        long micros = TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + now.getNano() / 1_000;
+        int votes = after.votes() == null ? 0 : after.votes();
+        if (!queue.offer(new RatingSample(after.id(), micros, after.averageRating().scaled(), votes))) {
+            droppedCounter.increment();
+        }
+    }
+
+    private static boolean ratingChanged(RestaurantSnapshot before, RestaurantSnapshot after) {
+        return before == null
+                || !Objects.equals(before.averageRating(), after.averageRating())
+                || !Objects.equals(before.votes(), after.votes());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "restaurant-rating-history");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) * 2 + 1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        List<RatingSample> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+            }
+            flush(batch);
+        }
+        // Остаток очереди дописывается при остановке
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    // Ждет пачку или окончания интервала с момента первого значения
+    private void collect(List<RatingSample> batch) throws InterruptedException {
+        RatingSample first = queue.take();
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            RatingSample next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    void flush(List<RatingSample> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (RatingSample sample : batch) {
+                ensurePartition(sample.recordedAtMicros());
+            }
+            repository.insert(batch);
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.warn("Rating history batch lost.; samples: {}; reason: {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void ensurePartition(long recordedAtMicros) {
+        LocalDate day = LocalDate.ofInstant(Instant.ofEpochSecond(Math.floorDiv(recordedAtMicros, 1_000_000)),
+                ZoneOffset.UTC);
+        YearMonth month = YearMonth.from(day);
+        if (knownPartitions.contains(month)) {
+            return;
+        }
+        String partition = repository.ensurePartition(day);
+        knownPartitions.add(month);
+        log.debug("Partition ensured.; month: {}; partition: {}", month, partition);
+    }
+}
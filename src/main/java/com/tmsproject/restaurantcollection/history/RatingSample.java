@@ -0,0 +1,12 @@
+package com.tmsproject.restaurantcollection.history;
+
+/**
+ * Значение рейтинга ресторана в момент изменения.
+ *
+ * @param restaurantId     ID ресторана.
+ * @param recordedAtMicros Время изменения, микросекунды от эпохи.
+ * @param averageRating    Рейтинг в масштабе {@link com.tmsproject.restaurantcollection.domain.Rating#SCALE}.
+ * @param votes            Число отзывов.
+ */
+public record RatingSample(long restaurantId, long recordedAtMicros, int averageRating, int votes) {
+}
@@ -0,0 +1,44 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+/**
+ * Откуда операция сервиса взяла данные; попадает в {@link ServiceEvent}.
+ * <p>
+ * Операция отмечает исход в потоке вызова через {@link #record}; инструментирование сбрасывает его до вызова
+ * и читает после. Без инструментирования отметка - одна запись в поле потока.
+ */
+public enum CacheOutcome {
+    /** Кеш не участвовал: запись или чтение, которое всегда идет в хранилище. */
+    NONE,
+    /** Все данные из реплики в памяти. */
+    READ_MODEL,
+    /** Часть данных из реплики, остальное из хранилища. */
+    PARTIAL,
+    /** Результат чужого одинакового запроса к хранилищу, выполнявшегося в это время. */
+    COALESCED,
+    /** Реплика не готова, запрос к хранилищу. */
+    MISS;
+
+    private static final ThreadLocal<CacheOutcome[]> CURRENT = ThreadLocal.withInitial(() -> new CacheOutcome[]{NONE});
+
+    /**
+     * Отмечает исход текущей операции.
+     *
+     * @param outcome Исход.
+     */
+    public static void record(CacheOutcome outcome) {
+        CURRENT.get()[0] = outcome;
+    }
+
+    /**
+     * Заменяет исход в текущем потоке.
+     *
+     * @param outcome Новый исход.
+     * @return Прежний исход.
+     */
+    static CacheOutcome swap(CacheOutcome outcome) {
+        CacheOutcome[] current = CURRENT.get();
+        CacheOutcome previous = current[0];
+        current[0] = outcome;
+        return previous;
+    }
+}
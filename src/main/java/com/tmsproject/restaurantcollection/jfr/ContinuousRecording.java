@@ -0,0 +1,148 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.management.jfr.FlightRecorderMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Непрерывная запись JFR в кольцевой буфер на диске: хранятся последние {@code max-age} записи, но не больше
+ * {@code max-size}; старые фрагменты удаляются.
+ * <p>
+ * Настройки JDK {@code default} рассчитаны на постоянную работу в продакшене; события приложения пишутся,
+ * если длятся дольше порога, ошибки - все. События из {@code excluded-events} выключаются: по умолчанию это
+ * переменные окружения, системные свойства, аргументы JVM и командные строки процессов, в которых бывают пароли.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.jfr.recording.enabled", matchIfMissing = true)
+public class ContinuousRecording implements SmartLifecycle {
+
+    static final String NAME = "restaurant-continuous";
+    static final String DEFAULT_EXCLUDED_EVENTS = "jdk.InitialEnvironmentVariable,jdk.InitialSystemProperty,"
+            + "jdk.InitialSecurityProperty,jdk.JVMInformation,jdk.SystemProcess";
+
+    private final String settings;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final Duration threshold;
+    private final List<String> excludedEvents;
+
+    private volatile Recording recording;
+
+    public ContinuousRecording(@Value("${restaurant.jfr.recording.settings:default}") String settings,
+                               @Value("${restaurant.jfr.recording.max-age:PT30M}") Duration maxAge,
+                               @Value("${restaurant.jfr.recording.max-size:256MB}") DataSize maxSize,
+                               @Value("${restaurant.jfr.threshold:10ms}") Duration threshold,
+                               @Value("${restaurant.jfr.recording.excluded-events:" + DEFAULT_EXCLUDED_EVENTS + "}")
+                               List<String> excludedEvents) {
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+        this.threshold = threshold;
+        this.excludedEvents = excludedEvents;
+    }
+
+    @Override
+    public void start() {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("JFR settings '" + settings + "' can't be read", e);
+        }
+        Map<String, String> recordingSettings = new HashMap<>(configuration.getSettings());
+        for (String event : excludedEvents) {
+            recordingSettings.put(event.trim() + "#enabled", "false");
+        }
+        Recording started = new Recording(recordingSettings);
+        started.setName(NAME);
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSize.toBytes());
+        started.enable(RequestEvent.class).withThreshold(threshold);
+        started.enable(ServiceEvent.class).withThreshold(threshold);
+        started.enable(QueryEvent.class).withThreshold(threshold);
+        started.enable(ErrorEvent.class);
+        started.start();
+        recording = started;
+        log.info("Flight recording started.; settings: {}; max age: {}; max size: {}; threshold: {}; excluded: {}",
+                settings, maxAge, maxSize, threshold, excludedEvents);
+    }
+
+    @Override
+    public void stop() {
+        Recording started = recording;
+        recording = null;
+        if (started != null) {
+            started.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Наибольший период, который может быть в записи.
+     */
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Сохраняет последние минуты записи, не останавливая ее. Запись хранится фрагментами, поэтому в файл попадают
+     * все фрагменты, пересекающиеся с периодом, и начало файла может быть раньше запрошенного.
+     *
+     * @param period Период до текущего момента.
+     * @param target Файл записи.
+     * @return Размер файла в байтах.
+     * @throws IOException           Если запись не удалось прочитать или сохранить.
+     * @throws IllegalStateException Если запись не идет.
+     */
+    public long dump(Duration period, Path target) throws IOException {
+        Recording started = recording;
+        if (started == null) {
+            throw new IllegalStateException("Flight recording is not running");
+        }
+        FlightRecorderMXBean flightRecorder = ManagementFactory.getPlatformMXBean(FlightRecorderMXBean.class);
+        // Копия останавливается сразу: в нее попадают данные на текущий момент, основная запись продолжается
+        long copyId = flightRecorder.cloneRecording(started.getId(), true);
+        long written = 0;
+        try {
+            long streamId = flightRecorder.openStream(copyId,
+                    Map.of("startTime", Instant.now().minus(period).toString()));
+            try (OutputStream out = Files.newOutputStream(target)) {
+                byte[] block;
+                while ((block = flightRecorder.readStream(streamId)) != null) {
+                    out.write(block);
+                    written += block.length;
+                }
+            } finally {
+                flightRecorder.closeStream(streamId);
+            }
+        } finally {
+            flightRecorder.closeRecording(copyId);
+        }
+        log.info("Flight recording dumped.; period: {}; bytes: {}; file: {}", period, written, target);
+        return written;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: ошибка, обработанная глобальным обработчиком исключений. Записывается без ограничения частоты,
+ * в отличие от журнала ошибок.
+ */
+@Name("com.tmsproject.restaurant.Error")
+@Label("Restaurant Error")
+@Description("Error returned by the global exception handler")
+@Category({"Restaurant Collection", "HTTP"})
+@StackTrace(false)
+public final class ErrorEvent extends Event {
+
+    @Label("Code")
+    String code;
+
+    @Label("Status")
+    int status;
+
+    @Label("Exception")
+    String exception;
+
+    @Label("Message")
+    String message;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    /**
+     * Записывает ошибку, если событие включено в одной из записей.
+     *
+     * @param code      Код ошибки.
+     * @param status    HTTP статус ответа.
+     * @param exception Исключение.
+     * @param method    HTTP метод запроса.
+     * @param path      Путь запроса без параметров.
+     */
+    public static void commit(String code, int status, Throwable exception, String method, String path) {
+        ErrorEvent event = new ErrorEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.code = code;
+        event.status = status;
+        event.exception = exception.getClass().getName();
+        event.message = exception.getMessage();
+        event.method = method;
+        event.path = path;
+        event.commit();
+    }
+}
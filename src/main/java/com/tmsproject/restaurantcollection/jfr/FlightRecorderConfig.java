@@ -0,0 +1,143 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import com.tmsproject.restaurantcollection.conf.BeanInstrumentation;
+import com.tmsproject.restaurantcollection.service.BaseService;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+/**
+ * Подключает события JFR к сервисам, хранилищу ресторанов и репозиториям.
+ * <p>
+ * Пока событие не включено ни в одной записи JFR, обертка только создает пустое событие, которое JIT обычно
+ * убирает. Поля заполняются только для событий дольше порога записи.
+ */
+@Configuration
+@ConditionalOnProperty(name = "restaurant.jfr.enabled", matchIfMissing = true)
+public class FlightRecorderConfig {
+
+    @Bean
+    static BeanPostProcessor flightRecorderInstrumentation() {
+        return new FlightRecorderBeanPostProcessor();
+    }
+
+    /**
+     * Оборачивает бины последним из обработчиков инструментирования, чтобы событие сервиса охватывало его
+     * транзакцию, фазы Server-Timing и перевод ошибок срока.
+     */
+    static final class FlightRecorderBeanPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof BaseService<?>) {
+                return BeanInstrumentation.withInterceptor(bean, serviceInterceptor(beanName));
+            }
+            if (bean instanceof RestaurantStore
+                    || AnnotatedElementUtils.hasAnnotation(AopUtils.getTargetClass(bean), Repository.class)) {
+                return BeanInstrumentation.withInterceptor(bean, queryInterceptor(beanName));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return BeanInstrumentation.FLIGHT_RECORDER_ORDER;
+        }
+
+        private static MethodInterceptor serviceInterceptor(String beanName) {
+            return invocation -> {
+                ServiceEvent event = new ServiceEvent();
+                if (!event.isEnabled()) {
+                    return invocation.proceed();
+                }
+                // Исход внешней операции восстанавливается после вложенной
+                CacheOutcome outer = CacheOutcome.swap(CacheOutcome.NONE);
+                Object result = null;
+                Throwable failure = null;
+                event.begin();
+                try {
+                    result = invocation.proceed();
+                    return result;
+                } catch (Throwable e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    event.end();
+                    CacheOutcome outcome = CacheOutcome.swap(outer);
+                    if (event.shouldCommit()) {
+                        event.service = beanName;
+                        event.operation = invocation.getMethod().getName();
+                        event.rows = rows(result);
+                        event.cacheOutcome = outcome.name();
+                        event.exception = failure == null ? null : failure.getClass().getName();
+                        event.commit();
+                    }
+                }
+            };
+        }
+
+        private static MethodInterceptor queryInterceptor(String beanName) {
+            return invocation -> {
+                QueryEvent event = new QueryEvent();
+                if (!event.isEnabled()) {
+                    return invocation.proceed();
+                }
+                Object result = null;
+                Throwable failure = null;
+                event.begin();
+                try {
+                    result = invocation.proceed();
+                    return result;
+                } catch (Throwable e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.repository = beanName;
+                        event.operation = invocation.getMethod().getName();
+                        event.rows = rows(result);
+                        event.exception = failure == null ? null : failure.getClass().getName();
+                        event.commit();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Число строк результата: размер коллекции, 0 или 1 для одиночных значений, -1 для потоков и курсоров.
+     */
+    static int rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Iterable<?> || result instanceof Iterator<?>
+                || result instanceof BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Эндпоинт администратора {@code GET /actuator/flightrecording?minutes=N}: последние минуты непрерывной записи JFR
+ * файлом для JDK Mission Control или {@code jfr print}.
+ * <p>
+ * Запись сохраняется во временный файл, который удаляется после отправки. Одновременно выполняется одно сохранение,
+ * остальные запросы получают 429. Эндпоинты actuator обслуживаются на отдельном порту {@code management.server.port},
+ * который не должен быть доступен снаружи: запись содержит SQL-ошибки, пути запросов и данные о JVM.
+ */
+@Slf4j
+@Component
+@WebEndpoint(id = "flightrecording")
+@ConditionalOnProperty(name = "restaurant.jfr.recording.enabled", matchIfMissing = true)
+public class FlightRecordingEndpoint {
+
+    private final ContinuousRecording recording;
+    private final int defaultMinutes;
+    private final Lock lock = new ReentrantLock();
+
+    public FlightRecordingEndpoint(ContinuousRecording recording,
+                                   @Value("${restaurant.jfr.dump.default-minutes:5}") int defaultMinutes) {
+        this.recording = recording;
+        this.defaultMinutes = defaultMinutes;
+    }
+
+    /**
+     * Сохраняет последние минуты записи.
+     *
+     * @param minutes Период в минутах (необязательный); не больше времени хранения записи.
+     * @return Файл записи или статус ошибки.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Nullable Integer minutes) {
+        int period = minutes == null ? defaultMinutes : minutes;
+        if (period < 1 || Duration.ofMinutes(period).compareTo(recording.getMaxAge()) > 0) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        try {
+            if (!lock.tryLock(5, TimeUnit.SECONDS)) {
+                return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("restaurant-", ".jfr");
+            recording.dump(Duration.ofMinutes(period), file);
+            return new WebEndpointResponse<>(new TemporaryFileResource(file.toFile()));
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Flight recording dump failed.; minutes: {}; error: {}", period, e.toString());
+            deleteQuietly(file);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Temporary flight recording can't be deleted.; file: {}", file);
+        }
+    }
+
+    /**
+     * Временный файл, удаляемый после чтения.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(File file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deleteQuietly(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        // Не файл для конвертеров ответа: иначе файл мог бы быть отправлен без чтения потока и не удален
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+    }
+}
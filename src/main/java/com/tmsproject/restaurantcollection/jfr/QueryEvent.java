@@ -0,0 +1,32 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: запрос к хранилищу или репозиторию.
+ */
+@Name("com.tmsproject.restaurant.Query")
+@Label("Restaurant Query")
+@Description("Restaurant store or repository call")
+@Category({"Restaurant Collection", "Database"})
+@StackTrace(false)
+public final class QueryEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    @Description("Result size; 0 or 1 for single values, -1 when unknown")
+    int rows;
+
+    @Label("Exception")
+    String exception;
+}
@@ -0,0 +1,35 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: обработка запроса контроллером ресторанов, включая сериализацию ответа.
+ */
+@Name("com.tmsproject.restaurant.Request")
+@Label("Restaurant Request")
+@Description("Request handled by a restaurant controller")
+@Category({"Restaurant Collection", "HTTP"})
+@StackTrace(false)
+public final class RequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    @Description("Matched path pattern, e.g. /restaurant/{id}/history")
+    String route;
+
+    @Label("Handler")
+    String handler;
+
+    @Label("Status")
+    int status;
+
+    @Label("Exception")
+    String exception;
+}
@@ -0,0 +1,60 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Записывает {@link RequestEvent} для запросов к контроллерам. Пока событие не включено ни в одной записи JFR,
+ * перехватчик ничего не создает.
+ */
+public class RequestEventInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = RequestEventInterceptor.class.getName() + ".event";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Повторная диспетчеризация асинхронного запроса уже учтена
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        RequestEvent event = new RequestEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            request.setAttribute(EVENT_ATTRIBUTE, event);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Для потоков событий учитывается только открытие потока
+        commit(request, response, handler, null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        commit(request, response, handler, ex);
+    }
+
+    private static void commit(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestEvent event = (RequestEvent) request.getAttribute(EVENT_ATTRIBUTE);
+        if (event == null) {
+            return;
+        }
+        request.removeAttribute(EVENT_ATTRIBUTE);
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.method = request.getMethod();
+        event.route = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        event.handler = handler instanceof HandlerMethod handlerMethod ? handlerMethod.getMethod().getName() : null;
+        event.status = response.getStatus();
+        event.exception = ex == null ? null : ex.getClass().getName();
+        event.commit();
+    }
+}
@@ -0,0 +1,35 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: операция сервиса с числом строк результата и исходом обращения к кешу.
+ */
+@Name("com.tmsproject.restaurant.ServiceOperation")
+@Label("Restaurant Service Operation")
+@Description("Service method call with result size and cache outcome")
+@Category({"Restaurant Collection", "Service"})
+@StackTrace(false)
+public final class ServiceEvent extends Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    @Description("Result size; 0 or 1 for single values, -1 when unknown")
+    int rows;
+
+    @Label("Cache Outcome")
+    String cacheOutcome;
+
+    @Label("Exception")
+    String exception;
+}
@@ -0,0 +1,131 @@
+package com.tmsproject.restaurantcollection.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Адаптивный лимит конкурентности в стиле gradient-алгоритма.
+ * <p>
+ * Лимит растет, пока кратковременная задержка близка к долговременной, и уменьшается, когда кратковременная
+ * задержка растет (запросы начинают стоять в очереди к базе).
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // Сглаживание долговременной задержки (окно примерно в 600 замеров)
+    private static final double LONG_RTT_FACTOR = 2.0 / 601;
+
+    // Сглаживание кратковременной задержки (окно примерно в 10 замеров)
+    private static final double SHORT_RTT_FACTOR = 2.0 / 11;
+
+    // Допустимое превышение долговременной задержки до начала снижения лимита
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double criticalReserve;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rejectedCritical = new LongAdder();
+
+    private volatile int limit;
+
+    // Состояние алгоритма изменяется только под монитором в onSample
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double criticalReserve) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.criticalReserve = criticalReserve;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * Пытается занять слот. Некритичным запросам недоступна зарезервированная часть лимита, но хотя бы один слот
+     * им остается: без допущенных запросов нет замеров, и лимит, упавший до минимума, не смог бы вырасти.
+     *
+     * @param critical Является ли запрос критичным.
+     * @return true, если запрос допущен и после завершения необходимо вызвать {@link #release}.
+     */
+    public boolean tryAcquire(boolean critical) {
+        int current = limit;
+        int reserved = Math.min(current - 1, (int) Math.ceil(current * criticalReserve));
+        int available = critical ? current : current - reserved;
+        while (true) {
+            int used = inFlight.get();
+            if (used >= available) {
+                (critical ? rejectedCritical : rejected).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(used, used + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает слот и учитывает замер задержки.
+     *
+     * @param rttNanos Время обработки запроса.
+     * @param dropped  Запрос завершился ошибкой сервера, что считается признаком перегрузки.
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int used = inFlight.getAndDecrement();
+        onSample(rttNanos, used, dropped);
+    }
+
+    private synchronized void onSample(long rttNanos, int used, boolean dropped) {
+        if (dropped) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+            limit = (int) estimatedLimit;
+            return;
+        }
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+            shortRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_RTT_FACTOR;
+        longRtt += (shortRtt - longRtt) * LONG_RTT_FACTOR;
+
+        // После длительной перегрузки долговременная задержка завышена - возвращаем ее быстрее
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // Лимит не растет, пока он используется меньше чем наполовину
+        if (used < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getRejectedCritical() {
+        return rejectedCritical.sum();
+    }
+}
@@ -0,0 +1,24 @@
+package com.tmsproject.restaurantcollection.limit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Явно задает класс эндпоинта для контроля допуска.
+ * Без аннотации GET-запросы относятся к {@link EndpointClass#READ}, остальные - к {@link EndpointClass#WRITE}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionClass {
+
+    EndpointClass value();
+
+    /**
+     * Критичные запросы могут использовать резерв лимита, недоступный остальным.
+     */
+    boolean critical() default false;
+}
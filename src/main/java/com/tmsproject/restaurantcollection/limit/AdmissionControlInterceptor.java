@@ -0,0 +1,112 @@
+package com.tmsproject.restaurantcollection.limit;
+
+import com.tmsproject.restaurantcollection.exception.OverloadedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограничивает число одновременно обрабатываемых запросов для каждого класса эндпоинтов.
+ * Запросы сверх лимита сразу отклоняются с {@link OverloadedException}, а не ждут в очереди к пулу соединений.
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final AdmissionProperties properties;
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+
+    // Класс эндпоинта вычисляется один раз для каждого метода контроллера
+    private final Map<HandlerMethod, Admission> admissions = new ConcurrentHashMap<>();
+
+    public AdmissionControlInterceptor(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdmissionProperties.Limit settings = properties.getLimits().get(endpointClass);
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(settings.getInitial(), settings.getMin(),
+                    settings.getMax(), properties.getCriticalReserve());
+            limits.put(endpointClass, limit);
+
+            Gauge.builder("restaurant.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("class", endpointClass.getCode())
+                    .register(meterRegistry);
+            Gauge.builder("restaurant.admission.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("class", endpointClass.getCode())
+                    .register(meterRegistry);
+            FunctionCounter.builder("restaurant.admission.rejected", limit, AdaptiveConcurrencyLimit::getRejected)
+                    .tag("class", endpointClass.getCode())
+                    .tag("critical", "false")
+                    .register(meterRegistry);
+            FunctionCounter.builder("restaurant.admission.rejected", limit, AdaptiveConcurrencyLimit::getRejectedCritical)
+                    .tag("class", endpointClass.getCode())
+                    .tag("critical", "true")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Повторная диспетчеризация асинхронного запроса уже прошла контроль допуска
+        if (!properties.isEnabled() || request.getDispatcherType() != DispatcherType.REQUEST
+                || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        Admission admission = admissions.computeIfAbsent(handlerMethod, AdmissionControlInterceptor::resolveAdmission);
+        AdaptiveConcurrencyLimit limit = limits.get(admission.endpointClass());
+        if (!limit.tryAcquire(admission.critical())) {
+            throw new OverloadedException("Too many concurrent " + admission.endpointClass().getCode() + " requests",
+                    properties.getRetryAfterSeconds());
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limit, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Долгоживущие асинхронные ответы (потоки событий) не должны занимать слот
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.limit().release(System.nanoTime() - permit.startNanos(), false);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            boolean dropped = ex != null || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            permit.limit().release(System.nanoTime() - permit.startNanos(), dropped);
+        }
+    }
+
+    /**
+     * Текущие лимиты по классам эндпоинтов.
+     */
+    public Map<EndpointClass, AdaptiveConcurrencyLimit> getLimits() {
+        return limits;
+    }
+
+    private static Admission resolveAdmission(HandlerMethod handlerMethod) {
+        AdmissionClass annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), AdmissionClass.class);
+        return new Admission(EndpointClass.of(handlerMethod), annotation != null && annotation.critical());
+    }
+
+    private record Admission(EndpointClass endpointClass, boolean critical) {
+    }
+
+    private record Permit(AdaptiveConcurrencyLimit limit, long startNanos) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.tmsproject.restaurantcollection.limit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Настройки адаптивного контроля допуска запросов.
+ */
+@Data
+@ConfigurationProperties(prefix = "restaurant.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    // Значение заголовка Retry-After при отказе, в секундах
+    private int retryAfterSeconds = 1;
+
+    // Доля лимита, зарезервированная для критичных запросов
+    private double criticalReserve = 0.2;
+
+    private Map<EndpointClass, Limit> limits = new EnumMap<>(Map.of(
+            EndpointClass.READ, new Limit(50, 5, 200),
+            EndpointClass.WRITE, new Limit(20, 2, 100),
+            EndpointClass.EXPORT, new Limit(4, 1, 20)));
+
+    @Data
+    public static class Limit {
+        private int initial;
+        private int min;
+        private int max;
+
+        public Limit() {
+        }
+
+        public Limit(int initial, int min, int max) {
+            this.initial = initial;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.tmsproject.restaurantcollection.limit;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Класс эндпоинта, для каждого из которых ведется отдельный лимит конкурентности и срок запроса по умолчанию.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum EndpointClass {
+    READ("read"),
+    WRITE("write"),
+    EXPORT("export");
+
+    private final String code;
+
+    /**
+     * Класс эндпоинта метода контроллера: из {@link AdmissionClass}, без аннотации GET-запросы относятся
+     * к {@link #READ}, остальные - к {@link #WRITE}.
+     *
+     * @param handlerMethod Метод контроллера.
+     * @return Класс эндпоинта.
+     */
+    public static EndpointClass of(HandlerMethod handlerMethod) {
+        AdmissionClass annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), AdmissionClass.class);
+        if (annotation != null) {
+            return annotation.value();
+        }
+        return AnnotatedElementUtils.hasAnnotation(handlerMethod.getMethod(), GetMapping.class) ? READ : WRITE;
+    }
+}
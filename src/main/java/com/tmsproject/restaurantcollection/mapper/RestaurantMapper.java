@@ -1,12 +1,11 @@
 package com.tmsproject.restaurantcollection.mapper;
 
+import com.tmsproject.restaurantcollection.domain.Rating;
 import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
 import com.tmsproject.restaurantcollection.dto.RestaurantDto;
-import org.apache.commons.lang3.math.NumberUtils;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-
 /**
  * Маппер для преобразования между сущностью RestaurantEntity и DTO RestaurantDto.
  */
@@ -32,30 +31,43 @@ public class RestaurantMapper implements EntityMapper<RestaurantEntity, Restaura
                 .name(entity.getName())
                 .city(entity.getCity())
                 .estimatedCost(entity.getEstimatedCost())
-                .averageRating(String.valueOf(entity.getAverageRating())) // Преобразует BigDecimal в строку
+                .averageRating(String.valueOf(entity.getAverageRating())) // Форматирует рейтинг без BigDecimal
                 .votes(entity.getVotes())
                 .build();
     }
 
+    /**
+     * Преобразует снимок ресторана в DTO RestaurantDto.
+     *
+     * @param snapshot Снимок ресторана.
+     * @return DTO ресторана.
+     */
+    public RestaurantDto toDto(RestaurantSnapshot snapshot) {
+        return RestaurantDto.builder()
+                .id(snapshot.id())
+                .name(snapshot.name())
+                .city(snapshot.city())
+                .estimatedCost(snapshot.estimatedCost())
+                .averageRating(String.valueOf(snapshot.averageRating()))
+                .votes(snapshot.votes())
+                .build();
+    }
+
     /**
      * Преобразует DTO RestaurantDto в сущность RestaurantEntity.
      *
      * @param dto DTO ресторана.
      * @return Сущность ресторана.
-     * @throws IllegalArgumentException Если значение averageRating не может быть преобразовано в BigDecimal.
+     * @throws IllegalArgumentException Если значение averageRating не является десятичным числом или выходит за диапазон.
      */
     @Override
     public RestaurantEntity fromDto(RestaurantDto dto) {
-        // Проверка, является ли значение averageRating числовым
-        if (dto.getAverageRating() != null && !NumberUtils.isCreatable(dto.getAverageRating())) {
-            throw new IllegalArgumentException("Parameter 'averageRating' should be Decimal number format.");
-        }
         return RestaurantEntity.builder()
                 .id(dto.getId())
                 .name(dto.getName())
                 .city(dto.getCity())
                 .estimatedCost(dto.getEstimatedCost())
-                .averageRating(dto.getAverageRating() == null ? null : new BigDecimal(dto.getAverageRating())) // Преобразует строку в BigDecimal
+                .averageRating(dto.getAverageRating() == null ? null : Rating.parse(dto.getAverageRating())) // Разбирает строку с проверкой формата
                 .votes(dto.getVotes())
                 .build();
     }
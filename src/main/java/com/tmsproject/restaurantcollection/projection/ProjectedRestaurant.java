@@ -0,0 +1,50 @@
+package com.tmsproject.restaurantcollection.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+
+/**
+ * Ресторан с частью полей; сериализуется в JSON только с полями своей проекции.
+ *
+ * @param projection Проекция, по которой выбраны значения.
+ * @param values     Значения полей в порядке проекции.
+ */
+@JsonSerialize(using = ProjectedRestaurant.Serializer.class)
+public record ProjectedRestaurant(RestaurantProjection projection, Object[] values) {
+
+    /**
+     * Значение поля или null, если поле не входит в проекцию.
+     */
+    public Object get(RestaurantField field) {
+        for (int i = 0; i < values.length; i++) {
+            if (projection.field(i) == field) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    public static final class Serializer extends JsonSerializer<ProjectedRestaurant> {
+
+        @Override
+        public void serialize(ProjectedRestaurant restaurant, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            Object[] values = restaurant.values();
+            for (int i = 0; i < values.length; i++) {
+                RestaurantField field = restaurant.projection().field(i);
+                generator.writeFieldName(field.jsonName());
+                if (values[i] == null) {
+                    generator.writeNull();
+                } else {
+                    field.write(generator, values[i]);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.tmsproject.restaurantcollection.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Поле {@link com.tmsproject.restaurantcollection.dto.RestaurantDto}, которое можно запросить параметром
+ * {@code fields}: имя в JSON, выражение для выборки из restaurants и способы чтения и записи значения.
+ * Порядок констант - порядок полей в ответе.
+ */
+public enum RestaurantField {
+    ID("id", "id") {
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            long value = resultSet.getLong(column);
+            return resultSet.wasNull() ? null : value;
+        }
+
+        @Override
+        Object extract(RestaurantEntity entity) {
+            return entity.getId();
+        }
+
+        @Override
+        void write(JsonGenerator generator, Object value) throws IOException {
+            generator.writeNumber((Long) value);
+        }
+    },
+    NAME("name", "name") {
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getString(column);
+        }
+
+        @Override
+        Object extract(RestaurantEntity entity) {
+            return entity.getName();
+        }
+    },
+    CITY("city", "city") {
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getString(column);
+        }
+
+        @Override
+        Object extract(RestaurantEntity entity) {
+            return entity.getCity();
+        }
+    },
+    ESTIMATED_COST("estimatedCost", "estimated_cost") {
+        @Override
+        Object extract(RestaurantEntity entity) {
+            return entity.getEstimatedCost();
+        }
+    },
+    // Рейтинг выбирается масштабированным целым, как в RestaurantRepository.streamAllRows
+    AVERAGE_RATING("averageRating", "cast(average_rating * 100000 as integer)") {
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            int value = resultSet.getInt(column);
+            return resultSet.wasNull() ? null : Rating.ofScaled(value);
+        }
+
+        @Override
+        Object extract(RestaurantEntity entity) {
+            return entity.getAverageRating();
+        }
+
+        @Override
+        void write(JsonGenerator generator, Object value) throws IOException {
+            generator.writeString(value.toString()); // В DTO рейтинг - строка
+        }
+    },
+    VOTES("votes", "votes") {
+        @Override
+        Object extract(RestaurantEntity entity) {
+            return entity.getVotes();
+        }
+    };
+
+    private final String jsonName;
+    private final String column;
+
+    RestaurantField(String jsonName, String column) {
+        this.jsonName = jsonName;
+        this.column = column;
+    }
+
+    /**
+     * Имя поля в JSON и в параметре {@code fields}.
+     */
+    public String jsonName() {
+        return jsonName;
+    }
+
+    /**
+     * Выражение выборки поля из restaurants.
+     */
+    String column() {
+        return column;
+    }
+
+    // По умолчанию поле - целое число
+    Object read(ResultSet resultSet, int column) throws SQLException {
+        int value = resultSet.getInt(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    abstract Object extract(RestaurantEntity entity);
+
+    void write(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else {
+            generator.writeString((String) value);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.tmsproject.restaurantcollection.projection;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * Набор полей ресторана, запрошенный параметром {@code fields}, с подготовленными SQL-запросами.
+ * <p>
+ * Полей шесть, поэтому проекция определяется битовой маской, а все 63 возможные проекции кэшируются:
+ * разбор параметра не создает объектов, кроме строк разбиения.
+ */
+public final class RestaurantProjection {
+
+    private static final RestaurantField[] FIELDS = RestaurantField.values();
+
+    private static final AtomicReferenceArray<RestaurantProjection> CACHE = new AtomicReferenceArray<>(1 << FIELDS.length);
+
+    private static final String ALLOWED = Arrays.stream(FIELDS)
+            .map(RestaurantField::jsonName)
+            .collect(Collectors.joining(", "));
+
+    private final int mask;
+    private final RestaurantField[] fields;
+    private final String selectAll;
+    private final String selectById;
+    private final String selectByCityKey;
+    private final String selectOrderByRating;
+    private final String selectTopByRating;
+    private final String selectByIds;
+
+    private RestaurantProjection(int mask) {
+        this.mask = mask;
+        this.fields = Arrays.stream(FIELDS)
+                .filter(field -> (mask & 1 << field.ordinal()) != 0)
+                .toArray(RestaurantField[]::new);
+        String columns = Arrays.stream(fields)
+                .map(RestaurantField::column)
+                .collect(Collectors.joining(", "));
+        String select = "select " + columns + " from " + RestaurantEntity.TABLE_NAME;
+        this.selectAll = select;
+        this.selectById = select + " where id = ?";
+        this.selectByCityKey = select + " where city_key = ?";
+        this.selectOrderByRating = select + " order by average_rating desc nulls last";
+        this.selectTopByRating = selectOrderByRating + " limit ?";
+        // ID выбирается первой колонкой всегда, чтобы сопоставить строки с запрошенными ID
+        this.selectByIds = "select id, " + columns + " from " + RestaurantEntity.TABLE_NAME + " where id = any(?)";
+    }
+
+    /**
+     * Проекция со всеми полями {@link com.tmsproject.restaurantcollection.dto.RestaurantDto}.
+     */
+    public static RestaurantProjection all() {
+        return cached((1 << FIELDS.length) - 1);
+    }
+
+    /**
+     * Разбирает список полей через запятую.
+     *
+     * @param fields Значение параметра {@code fields}, например {@code id,name,averageRating}.
+     * @return Проекция из кэша.
+     * @throws InvalidParameterException Если поле неизвестно или список пуст.
+     */
+    public static RestaurantProjection parse(String fields) {
+        int mask = 0;
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            RestaurantField field = find(trimmed);
+            if (field == null) {
+                throw new InvalidParameterException("Parameter 'fields' contains unknown field '" + trimmed
+                        + "'. Allowed fields: " + ALLOWED + ".");
+            }
+            mask |= 1 << field.ordinal();
+        }
+        if (mask == 0) {
+            throw new InvalidParameterException("Parameter 'fields' should list at least one of: " + ALLOWED + ".");
+        }
+        return cached(mask);
+    }
+
+    private static RestaurantProjection cached(int mask) {
+        RestaurantProjection projection = CACHE.get(mask);
+        if (projection == null) {
+            // Гонка безвредна: проекции одной маски равнозначны
+            projection = new RestaurantProjection(mask);
+            CACHE.set(mask, projection);
+        }
+        return projection;
+    }
+
+    public String selectAll() {
+        return selectAll;
+    }
+
+    public String selectById() {
+        return selectById;
+    }
+
+    public String selectByCityKey() {
+        return selectByCityKey;
+    }
+
+    public String selectOrderByRating() {
+        return selectOrderByRating;
+    }
+
+    public String selectTopByRating() {
+        return selectTopByRating;
+    }
+
+    /**
+     * Запрос по массиву ID; первая колонка результата - ID, поля проекции начинаются со второй.
+     */
+    public String selectByIds() {
+        return selectByIds;
+    }
+
+    /**
+     * Читает текущую строку результата запроса этой проекции.
+     */
+    public ProjectedRestaurant map(ResultSet resultSet) throws SQLException {
+        return map(resultSet, 1);
+    }
+
+    /**
+     * Читает текущую строку результата, поля проекции в которой начинаются с колонки firstColumn.
+     */
+    public ProjectedRestaurant map(ResultSet resultSet, int firstColumn) throws SQLException {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].read(resultSet, firstColumn + i);
+        }
+        return new ProjectedRestaurant(this, values);
+    }
+
+    /**
+     * Выбирает поля проекции из сущности, например из реплики в памяти.
+     */
+    public ProjectedRestaurant map(RestaurantEntity entity) {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].extract(entity);
+        }
+        return new ProjectedRestaurant(this, values);
+    }
+
+    /**
+     * Ключ проекции для объединения одинаковых запросов.
+     */
+    public String key() {
+        return Integer.toString(mask);
+    }
+
+    RestaurantField field(int index) {
+        return fields[index];
+    }
+
+    private static RestaurantField find(String name) {
+        for (RestaurantField field : FIELDS) {
+            if (field.jsonName().equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.stream(fields).map(RestaurantField::jsonName).collect(Collectors.joining(","));
+    }
+}
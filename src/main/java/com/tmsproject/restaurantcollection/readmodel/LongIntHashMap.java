@@ -0,0 +1,135 @@
+package com.tmsproject.restaurantcollection.readmodel;
+
+import java.util.Arrays;
+
+/**
+ * Хэш-таблица с открытой адресацией из long в int без упаковки ключей и значений.
+ * Не потокобезопасна, синхронизация выполняется владельцем.
+ */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private static final long FREE = 0;
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int used;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    int get(long key) {
+        long stored = encode(key);
+        int mask = keys.length - 1;
+        for (int index = mix(stored) & mask; ; index = (index + 1) & mask) {
+            long current = keys[index];
+            if (current == FREE) {
+                return MISSING;
+            }
+            if (current == stored) {
+                return values[index];
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if ((used + 1) * 2 > keys.length) {
+            rehash(size * 2 + 2 > keys.length ? keys.length * 2 : keys.length);
+        }
+        long stored = encode(key);
+        int mask = keys.length - 1;
+        int firstRemoved = -1;
+        for (int index = mix(stored) & mask; ; index = (index + 1) & mask) {
+            long current = keys[index];
+            if (current == stored) {
+                values[index] = value;
+                return;
+            }
+            if (current == REMOVED && firstRemoved < 0) {
+                firstRemoved = index;
+            }
+            if (current == FREE) {
+                int target = firstRemoved >= 0 ? firstRemoved : index;
+                if (target == index) {
+                    used++;
+                }
+                keys[target] = stored;
+                values[target] = value;
+                size++;
+                return;
+            }
+        }
+    }
+
+    int remove(long key) {
+        long stored = encode(key);
+        int mask = keys.length - 1;
+        for (int index = mix(stored) & mask; ; index = (index + 1) & mask) {
+            long current = keys[index];
+            if (current == FREE) {
+                return MISSING;
+            }
+            if (current == stored) {
+                keys[index] = REMOVED;
+                size--;
+                return values[index];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        used = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        used = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE && oldKeys[i] != REMOVED) {
+                put(decode(oldKeys[i]), oldValues[i]);
+            }
+        }
+    }
+
+    // 0 и Long.MIN_VALUE зарезервированы под пустые и удаленные ячейки, поэтому ключи сдвигаются на единицу
+    private static long encode(long key) {
+        if (key == -1 || key == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported key " + key);
+        }
+        return key + 1;
+    }
+
+    private static long decode(long stored) {
+        return stored - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        return Math.max(capacity, 8);
+    }
+}
@@ -0,0 +1,239 @@
+package com.tmsproject.restaurantcollection.readmodel;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Колоночное представление ресторанов в примитивных массивах.
+ * <p>
+ * Каждая строка занимает слот с одинаковым индексом во всех колонках. Рейтинг хранится с фиксированной точкой,
+ * город кодируется словарем, а для каждого нормализованного города поддерживается битовая карта слотов.
+ * Индекс сортировки по рейтингу перестраивается лениво после изменений. Класс не потокобезопасен.
+ */
+final class RestaurantColumns {
+
+    /**
+     * Отсутствующее значение в int-колонках.
+     */
+    static final int NULL = Integer.MIN_VALUE;
+
+    private int capacity;
+    private int slots;
+
+    private long[] ids;
+    private int[] costs;
+    private int[] votes;
+    private int[] ratings;
+    private int[] cityCodes;
+    private String[] names;
+    private final BitSet live = new BitSet();
+
+    // Освобожденные слоты для повторного использования
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private final LongIntHashMap slotById;
+
+    // Словарь точных названий городов, их нормализованные ключи и битовые карты слотов по ключу
+    private final List<String> cities = new ArrayList<>();
+    private final List<String> cityKeys = new ArrayList<>();
+    private final Map<String, Integer> cityCodeByName = new HashMap<>();
+    private final Map<String, BitSet> slotsByCityKey = new HashMap<>();
+
+    // Слоты, упорядоченные по рейтингу: (рейтинг << 32 | слот) по возрастанию
+    private long[] ratingOrder = new long[0];
+    private int ratingOrderSize;
+    private boolean ratingOrderDirty = true;
+
+    RestaurantColumns(int expectedRows) {
+        capacity = Math.max(16, expectedRows);
+        ids = new long[capacity];
+        costs = new int[capacity];
+        votes = new int[capacity];
+        ratings = new int[capacity];
+        cityCodes = new int[capacity];
+        names = new String[capacity];
+        slotById = new LongIntHashMap(capacity);
+    }
+
+    /**
+     * Добавляет или заменяет строку.
+     */
+    void upsert(long id, String name, String city, int cost, int rating, int voteCount) {
+        int slot = slotById.get(id);
+        if (slot == LongIntHashMap.MISSING) {
+            slot = allocateSlot();
+            slotById.put(id, slot);
+            live.set(slot);
+        } else {
+            slotsByCityKey.get(cityKey(slot)).clear(slot);
+        }
+        ids[slot] = id;
+        names[slot] = name;
+        int cityCode = cityCode(city);
+        cityCodes[slot] = cityCode;
+        costs[slot] = cost;
+        ratings[slot] = rating;
+        votes[slot] = voteCount;
+        slotsByCityKey.computeIfAbsent(cityKeys.get(cityCode), key -> new BitSet()).set(slot);
+        ratingOrderDirty = true;
+    }
+
+    /**
+     * Удаляет строку.
+     *
+     * @return true, если строка существовала.
+     */
+    boolean remove(long id) {
+        int slot = slotById.remove(id);
+        if (slot == LongIntHashMap.MISSING) {
+            return false;
+        }
+        slotsByCityKey.get(cityKey(slot)).clear(slot);
+        live.clear(slot);
+        names[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        ratingOrderDirty = true;
+        return true;
+    }
+
+    void clear() {
+        slotById.clear();
+        live.clear();
+        Arrays.fill(names, 0, slots, null);
+        slots = 0;
+        freeCount = 0;
+        cities.clear();
+        cityKeys.clear();
+        cityCodeByName.clear();
+        slotsByCityKey.clear();
+        ratingOrderSize = 0;
+        ratingOrderDirty = true;
+    }
+
+    int slotOf(long id) {
+        return slotById.get(id);
+    }
+
+    /**
+     * Слоты города в порядке возрастания слота.
+     */
+    BitSet citySlots(String cityKey) {
+        return slotsByCityKey.get(cityKey);
+    }
+
+    /**
+     * Число живых строк.
+     */
+    int size() {
+        return slotById.size();
+    }
+
+    boolean isRatingOrderDirty() {
+        return ratingOrderDirty;
+    }
+
+    /**
+     * Перестраивает индекс сортировки по рейтингу. Массив переиспользуется, пока хватает его размера.
+     */
+    void rebuildRatingOrder() {
+        int size = size();
+        if (ratingOrder.length < size) {
+            ratingOrder = new long[Math.max(size, ratingOrder.length * 2)];
+        }
+        int position = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            ratingOrder[position++] = ((long) ratings[slot] << 32) | slot;
+        }
+        Arrays.sort(ratingOrder, 0, position);
+        ratingOrderSize = position;
+        ratingOrderDirty = false;
+    }
+
+    /**
+     * Слот на позиции в порядке убывания рейтинга.
+     */
+    int slotByRatingDesc(int position) {
+        return (int) ratingOrder[ratingOrderSize - 1 - position];
+    }
+
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    String name(int slot) {
+        return names[slot];
+    }
+
+    String city(int slot) {
+        return cities.get(cityCodes[slot]);
+    }
+
+    int cost(int slot) {
+        return costs[slot];
+    }
+
+    int rating(int slot) {
+        return ratings[slot];
+    }
+
+    int votes(int slot) {
+        return votes[slot];
+    }
+
+    /**
+     * Оценка памяти колонок и индексов на одну строку, без учета строк названий.
+     */
+    long estimatedBytesPerRow() {
+        int rows = Math.max(1, size());
+        long columns = (long) capacity * (Long.BYTES + 4L * Integer.BYTES + 4);
+        long index = (long) slotById.capacity() * (Long.BYTES + Integer.BYTES);
+        long order = (long) ratingOrder.length * Long.BYTES;
+        long bitmaps = (long) (slotsByCityKey.size() + 1) * (capacity / 8);
+        return (columns + index + order + bitmaps) / rows;
+    }
+
+    private String cityKey(int slot) {
+        return cityKeys.get(cityCodes[slot]);
+    }
+
+    private int cityCode(String city) {
+        Integer code = cityCodeByName.get(city);
+        if (code == null) {
+            code = cities.size();
+            cities.add(city);
+            cityKeys.add(RestaurantEntity.cityKey(city));
+            cityCodeByName.put(city, code);
+        }
+        return code;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slots == capacity) {
+            grow();
+        }
+        return slots++;
+    }
+
+    private void grow() {
+        capacity = capacity + (capacity >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        votes = Arrays.copyOf(votes, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        cityCodes = Arrays.copyOf(cityCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+}
@@ -0,0 +1,363 @@
+package com.tmsproject.restaurantcollection.readmodel;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import com.tmsproject.restaurantcollection.sync.RestaurantsInvalidatedEvent;
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Колоночная реплика ресторанов в памяти для сортировки и фильтрации без обращения к базе.
+ * <p>
+ * Загружается при старте и дальше обновляется по {@link RestaurantChangedEvent} после фиксации транзакций
+ * и по {@link RestaurantsInvalidatedEvent} с изменениями других экземпляров; {@link RestaurantsResyncEvent}
+ * перезагружает реплику. Изменения, пришедшие во время загрузки, откладываются и применяются после нее;
+ * применение идемпотентно, поэтому изменение, уже попавшее в загруженные данные, ничего не портит. Очередь
+ * отложенных изменений ограничена: при переполнении она очищается, а загрузка повторяется.
+ */
+@Slf4j
+@Component
+public class RestaurantReadModel {
+
+    private final RestaurantStore store;
+    private final boolean enabled;
+    private final int maxPending;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private RestaurantColumns columns = new RestaurantColumns(0);
+
+    // Изменения, пришедшие во время загрузки; очередь и состояние загрузки меняются под stateLock
+    private final Object stateLock = new Object();
+    private final Queue<Consumer<RestaurantColumns>> pending = new ArrayDeque<>();
+    private boolean pendingOverflowed;
+    private boolean loading;
+    private volatile boolean ready;
+
+    // Загрузки при старте и при полной синхронизации не выполняются одновременно
+    private final Object loadLock = new Object();
+
+    public RestaurantReadModel(RestaurantStore store,
+                               @Value("${restaurant.read-model.enabled:true}") boolean enabled,
+                               @Value("${restaurant.read-model.max-pending:100000}") int maxPending) {
+        this.store = store;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Загружает реплику до того, как приложение начнет принимать трафик.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE) // Раньше прогрева, который обращается к загруженным данным
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (loadLock) {
+            reload();
+        }
+    }
+
+    /**
+     * Перезагружает реплику после пропущенных уведомлений. До окончания перезагрузки запросы обслуживает
+     * прежняя реплика.
+     *
+     * @param event Событие полной синхронизации.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE) // Раньше сброса кеша ответов, который строится из реплики
+    public void onResync(RestaurantsResyncEvent event) {
+        load();
+    }
+
+    private void reload() {
+        while (loadColumns()) {
+            log.warn("Restaurant read model reloads: pending changes overflowed during load.; max pending: {}",
+                    maxPending);
+        }
+    }
+
+    // Возвращает true, если отложенные изменения были отброшены и загрузку нужно повторить
+    private boolean loadColumns() {
+        synchronized (stateLock) {
+            loading = true;
+        }
+        long start = System.nanoTime();
+        RestaurantColumns loaded = null;
+        boolean overflowed;
+        try {
+            // Количество строк - только начальная емкость, расхождение с выборкой допустимо
+            RestaurantColumns target = new RestaurantColumns((int) store.count());
+            store.forEachRow(row -> target.upsert(row.getId(), row.getName(), row.getCity(),
+                    toInt(row.getEstimatedCost()), toInt(row.getAverageRating()), toInt(row.getVotes())));
+            target.rebuildRatingOrder();
+            loaded = target;
+        } finally {
+            // При ошибке загрузки отложенные изменения применяются к прежней реплике
+            overflowed = finishLoading(loaded);
+        }
+        log.info("Restaurant read model loaded.; rows: {}; bytes per row: {}; took: {} ms", loaded.size(),
+                loaded.estimatedBytesPerRow(), (System.nanoTime() - start) / 1_000_000);
+        return overflowed;
+    }
+
+    private boolean finishLoading(RestaurantColumns loaded) {
+        lock.writeLock().lock();
+        try {
+            synchronized (stateLock) {
+                loading = false;
+                if (pendingOverflowed) {
+                    // Отброшенных изменений может не быть ни в загруженной, ни в прежней реплике
+                    pendingOverflowed = false;
+                    pending.clear();
+                    if (loaded == null) {
+                        ready = false; // До следующей загрузки запросы обслуживает хранилище
+                        return false;
+                    }
+                    columns = loaded;
+                    ready = true;
+                    return true;
+                }
+                if (loaded != null) {
+                    columns = loaded;
+                    ready = true;
+                }
+                if (ready) {
+                    Consumer<RestaurantColumns> change;
+                    while ((change = pending.poll()) != null) {
+                        change.accept(columns);
+                    }
+                } else {
+                    pending.clear();
+                }
+                return false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Применяет изменение ресторана к реплике после фиксации транзакции.
+     *
+     * @param event Событие изменения ресторана.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE) // Раньше сброса кеша ответов, который строится из реплики
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        RestaurantSnapshot after = event.after();
+        long id = event.id();
+        submit(target -> {
+            if (after == null) {
+                target.remove(id);
+            } else {
+                upsert(target, after);
+            }
+        });
+    }
+
+    /**
+     * Применяет изменения других экземпляров.
+     *
+     * @param event Событие с текущим состоянием измененных ресторанов.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE) // Раньше сброса кеша ответов, который строится из реплики
+    public void onRestaurantsInvalidated(RestaurantsInvalidatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        submit(target -> {
+            event.removed().forEach(target::remove);
+            event.upserted().values().forEach(snapshot -> upsert(target, snapshot));
+        });
+    }
+
+    /**
+     * Готова ли реплика обслуживать запросы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Находит ресторан по ID.
+     *
+     * @param id ID ресторана.
+     * @return Optional с рестораном, если он есть в реплике.
+     */
+    public Optional<RestaurantEntity> findById(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = columns.slotOf(id);
+            return slot == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(toEntity(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Находит рестораны по набору ID под одной блокировкой чтения.
+     *
+     * @param ids ID ресторанов.
+     * @return Найденные в реплике рестораны по ID.
+     */
+    public Map<Long, RestaurantEntity> findAllById(Collection<Long> ids) {
+        Map<Long, RestaurantEntity> found = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                int slot = columns.slotOf(id);
+                if (slot != LongIntHashMap.MISSING) {
+                    found.put(id, toEntity(slot));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Находит все рестораны города.
+     *
+     * @param cityKey Нормализованный ключ города.
+     * @return Неизменяемый список ресторанов города.
+     */
+    public List<RestaurantEntity> findAllByCity(String cityKey) {
+        lock.readLock().lock();
+        try {
+            BitSet slots = columns.citySlots(cityKey);
+            if (slots == null || slots.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<RestaurantEntity> result = new ArrayList<>(slots.cardinality());
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                result.add(toEntity(slot));
+            }
+            return Collections.unmodifiableList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает рестораны в порядке убывания рейтинга.
+     *
+     * @param limit Максимальное число ресторанов; 0 - без ограничения.
+     * @return Неизменяемый список ресторанов.
+     */
+    public List<RestaurantEntity> findAllOrderByAverageRating(int limit) {
+        lock.readLock().lock();
+        try {
+            if (columns.isRatingOrderDirty()) {
+                // Индекс перестраивается под блокировкой записи, затем блокировка понижается до чтения
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    if (columns.isRatingOrderDirty()) {
+                        columns.rebuildRatingOrder();
+                    }
+                } finally {
+                    // Блокировка чтения берется до снятия блокировки записи и при ошибке перестроения:
+                    // внешний finally снимает именно ее
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
+            }
+            int size = limit > 0 ? Math.min(limit, columns.size()) : columns.size();
+            List<RestaurantEntity> result = new ArrayList<>(size);
+            for (int position = 0; position < size; position++) {
+                result.add(toEntity(columns.slotByRatingDesc(position)));
+            }
+            return Collections.unmodifiableList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Применяет изменение сразу или откладывает его до окончания загрузки
+    private void submit(Consumer<RestaurantColumns> change) {
+        lock.writeLock().lock();
+        try {
+            synchronized (stateLock) {
+                if (!loading && !ready) {
+                    return; // Реплика не загружена, следующая загрузка прочитает изменение из хранилища
+                }
+                if (loading) {
+                    if (pendingOverflowed) {
+                        return;
+                    }
+                    if (pending.size() >= maxPending) {
+                        pending.clear();
+                        pendingOverflowed = true;
+                        return;
+                    }
+                    pending.add(change);
+                    return;
+                }
+            }
+            change.accept(columns);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void upsert(RestaurantColumns target, RestaurantSnapshot snapshot) {
+        target.upsert(snapshot.id(), snapshot.name(), snapshot.city(), toInt(snapshot.estimatedCost()),
+                toScaled(snapshot.averageRating()), toInt(snapshot.votes()));
+    }
+
+    private RestaurantEntity toEntity(int slot) {
+        int cost = columns.cost(slot);
+        int votes = columns.votes(slot);
+        return RestaurantEntity.builder()
+                .id(columns.id(slot))
+                .name(columns.name(slot))
+                .city(columns.city(slot))
+                .estimatedCost(cost == RestaurantColumns.NULL ? null : cost)
+                .averageRating(toRating(columns.rating(slot)))
+                .votes(votes == RestaurantColumns.NULL ? null : votes)
+                .build();
+    }
+
+    private static int toInt(Integer value) {
+        return value == null ? RestaurantColumns.NULL : value;
+    }
+
+    private static int toScaled(Rating rating) {
+        return rating == null ? RestaurantColumns.NULL : rating.scaled();
+    }
+
+    private static Rating toRating(int rating) {
+        return rating == RestaurantColumns.NULL ? null : Rating.ofScaled(rating);
+    }
+}
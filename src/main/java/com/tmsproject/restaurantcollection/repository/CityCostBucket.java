@@ -0,0 +1,18 @@
+package com.tmsproject.restaurantcollection.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Агрегаты ресторанов города с одинаковой стоимостью.
+ */
+public interface CityCostBucket {
+    String getCity();
+
+    Integer getCost();
+
+    Long getRestaurants();
+
+    Long getVotes();
+
+    BigDecimal getWeightedRating();
+}
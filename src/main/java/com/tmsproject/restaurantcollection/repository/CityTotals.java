@@ -0,0 +1,16 @@
+package com.tmsproject.restaurantcollection.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоговые агрегаты ресторанов города.
+ */
+public interface CityTotals {
+    String getCity();
+
+    Long getRestaurants();
+
+    Long getVotes();
+
+    BigDecimal getWeightedRating();
+}
@@ -0,0 +1,99 @@
+package com.tmsproject.restaurantcollection.repository;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.dto.RatingHistoryBucketDto;
+import com.tmsproject.restaurantcollection.history.HistoryBucket;
+import com.tmsproject.restaurantcollection.history.RatingSample;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Запись и чтение истории рейтинга ресторанов ({@code restaurant_rating_history}).
+ */
+@Repository
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class RatingHistoryRepository {
+
+    // Пачка передается массивами в один запрос; время - микросекунды от эпохи, рейтинг - масштабированное целое
+    private static final String INSERT = "insert into restaurant_rating_history "
+            + "(restaurant_id, recorded_at, average_rating, votes) "
+            + "select id, timestamptz 'epoch' + micros * interval '1 microsecond', rating::numeric / "
+            + (int) Math.pow(10, Rating.SCALE) + ", votes "
+            + "from unnest(?::bigint[], ?::bigint[], ?::int[], ?::int[]) as s(id, micros, rating, votes)";
+
+    // Агрегаты считаются в базе; границы интервалов - в UTC
+    private static final String SELECT_BUCKETS = "select date_trunc(?, recorded_at, 'UTC') as bucket, "
+            + "min(average_rating), max(average_rating), round(avg(average_rating), " + Rating.SCALE + "), "
+            + "max(votes), count(*) "
+            + "from restaurant_rating_history where restaurant_id = ? and recorded_at >= ? and recorded_at < ? "
+            + "group by bucket order by bucket";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RatingHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Создает секцию месяца, если ее еще нет.
+     *
+     * @param month Любой день месяца.
+     * @return Имя секции.
+     */
+    public String ensurePartition(LocalDate month) {
+        return jdbcTemplate.queryForObject("select ensure_rating_history_partition(?)", String.class, month);
+    }
+
+    /**
+     * Добавляет пачку значений одним запросом.
+     */
+    public void insert(List<RatingSample> samples) {
+        Long[] ids = new Long[samples.size()];
+        Long[] micros = new Long[samples.size()];
+        Integer[] ratings = new Integer[samples.size()];
+        Integer[] votes = new Integer[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            RatingSample sample = samples.get(i);
+            ids[i] = sample.restaurantId();
+            micros[i] = sample.recordedAtMicros();
+            ratings[i] = sample.averageRating();
+            votes[i] = sample.votes();
+        }
+        jdbcTemplate.update(INSERT, (PreparedStatement statement) -> {
+            Connection connection = statement.getConnection();
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("bigint", micros));
+            statement.setArray(3, connection.createArrayOf("int4", ratings));
+            statement.setArray(4, connection.createArrayOf("int4", votes));
+        });
+    }
+
+    /**
+     * История рейтинга ресторана по интервалам.
+     *
+     * @param restaurantId ID ресторана.
+     * @param from         Начало периода, включительно.
+     * @param to           Конец периода, не включая.
+     * @param bucket       Размер интервала.
+     * @return Непустые интервалы по возрастанию времени.
+     */
+    public List<RatingHistoryBucketDto> findBuckets(long restaurantId, Instant from, Instant to, HistoryBucket bucket) {
+        return jdbcTemplate.query(SELECT_BUCKETS, (resultSet, row) -> RatingHistoryBucketDto.builder()
+                        .from(resultSet.getTimestamp(1).toInstant())
+                        .minRating(Rating.valueOf(resultSet.getBigDecimal(2)).toString())
+                        .maxRating(Rating.valueOf(resultSet.getBigDecimal(3)).toString())
+                        .averageRating(Rating.valueOf(resultSet.getBigDecimal(4)).toString())
+                        .votes(resultSet.getInt(5))
+                        .samples(resultSet.getLong(6))
+                        .build(),
+                bucket.getUnit(), restaurantId, Timestamp.from(from), Timestamp.from(to));
+    }
+}
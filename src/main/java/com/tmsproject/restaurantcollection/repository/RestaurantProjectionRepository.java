@@ -0,0 +1,68 @@
+package com.tmsproject.restaurantcollection.repository;
+
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Запросы ресторанов с выборкой только полей проекции, без создания сущностей.
+ */
+@Repository
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class RestaurantProjectionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RestaurantProjectionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<ProjectedRestaurant> findAll(RestaurantProjection projection) {
+        return jdbcTemplate.query(projection.selectAll(), (resultSet, row) -> projection.map(resultSet));
+    }
+
+    public Optional<ProjectedRestaurant> findById(RestaurantProjection projection, long id) {
+        return jdbcTemplate.query(projection.selectById(), (resultSet, row) -> projection.map(resultSet), id)
+                .stream()
+                .findFirst();
+    }
+
+    public List<ProjectedRestaurant> findAllByCityKey(RestaurantProjection projection, String cityKey) {
+        return jdbcTemplate.query(projection.selectByCityKey(), (resultSet, row) -> projection.map(resultSet), cityKey);
+    }
+
+    /**
+     * Рестораны по убыванию рейтинга.
+     *
+     * @param limit Максимальное число ресторанов; 0 - без ограничения.
+     */
+    public List<ProjectedRestaurant> findOrderByAverageRatingDesc(RestaurantProjection projection, int limit) {
+        if (limit > 0) {
+            return jdbcTemplate.query(projection.selectTopByRating(),
+                    (resultSet, row) -> projection.map(resultSet), limit);
+        }
+        return jdbcTemplate.query(projection.selectOrderByRating(), (resultSet, row) -> projection.map(resultSet));
+    }
+
+    /**
+     * Находит рестораны по набору ID одним запросом {@code where id = any(?)}.
+     *
+     * @return Найденные рестораны по ID; отсутствующих ID в результате нет.
+     */
+    public Map<Long, ProjectedRestaurant> findAllById(RestaurantProjection projection, Collection<Long> ids) {
+        Map<Long, ProjectedRestaurant> found = new HashMap<>();
+        jdbcTemplate.query(projection.selectByIds(),
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("bigint", ids.toArray())),
+                (RowCallbackHandler) resultSet -> found.put(resultSet.getLong(1), projection.map(resultSet, 2)));
+        return found;
+    }
+}
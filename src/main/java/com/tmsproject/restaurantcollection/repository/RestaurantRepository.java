@@ -1,18 +1,67 @@
 package com.tmsproject.restaurantcollection.repository;
 
 import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface RestaurantRepository extends CrudRepository<RestaurantEntity, Long> {
 
     @Override
     List<RestaurantEntity> findAll();
-    List<RestaurantEntity> findAllByCityIgnoreCase(String city);
+    List<RestaurantEntity> findAllByCityKey(String cityKey);
+    // Рестораны без рейтинга в конце, как в реплике в памяти
+    @Query("select r from RestaurantEntity r order by r.averageRating desc nulls last")
     List<RestaurantEntity> findByOrderByAverageRatingDesc();
-    RestaurantEntity findByNameAndCity(String name, String city);
+    @Query("select r from RestaurantEntity r order by r.averageRating desc nulls last")
+    List<RestaurantEntity> findByOrderByAverageRatingDesc(Pageable pageable);
+    RestaurantEntity findByCityKeyAndNameAndCity(String cityKey, String name, String city);
+
+    // Порядок по ID - одинаковый порядок блокировок у одновременных транзакций
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from RestaurantEntity r where r.id in :ids order by r.id")
+    List<RestaurantEntity> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Создает секцию города, если ее еще нет; возвращает имя секции.
+     */
+    @Query(value = "select ensure_restaurants_partition(:cityKey)", nativeQuery = true)
+    String ensurePartition(@Param("cityKey") String cityKey);
+
+    @Query(value = "select city_key as city, estimated_cost as cost, count(*) as restaurants, "
+            + "coalesce(sum(votes), 0) as votes, coalesce(sum(average_rating * votes), 0) as \"weightedRating\" "
+            + "from restaurants group by city_key, estimated_cost", nativeQuery = true)
+    List<CityCostBucket> findCityCostBuckets();
+
+    @Query(value = "select city_key as city, estimated_cost as cost, count(*) as restaurants, "
+            + "coalesce(sum(votes), 0) as votes, coalesce(sum(average_rating * votes), 0) as \"weightedRating\" "
+            + "from restaurants where city_key = :cityKey group by city_key, estimated_cost", nativeQuery = true)
+    List<CityCostBucket> findCityCostBuckets(@Param("cityKey") String cityKey);
+
+    @Query(value = "select city_key as city, count(*) as restaurants, coalesce(sum(votes), 0) as votes, "
+            + "coalesce(sum(average_rating * votes), 0) as \"weightedRating\" "
+            + "from restaurants group by city_key", nativeQuery = true)
+    List<CityTotals> findCityTotals();
+
+    /**
+     * Потоковое чтение всех строк курсором; должно выполняться внутри транзакции.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query(value = "select id, name, city, estimated_cost as \"estimatedCost\", "
+            + "cast(average_rating * 100000 as integer) as \"averageRating\", votes "
+            + "from restaurants order by id", nativeQuery = true)
+    Stream<RestaurantRow> streamAllRows();
 
 }
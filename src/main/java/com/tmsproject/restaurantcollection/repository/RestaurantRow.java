@@ -0,0 +1,21 @@
+package com.tmsproject.restaurantcollection.repository;
+
+/**
+ * Строка таблицы ресторанов без создания управляемой сущности.
+ */
+public interface RestaurantRow {
+    Long getId();
+
+    String getName();
+
+    String getCity();
+
+    Integer getEstimatedCost();
+
+    /**
+     * Рейтинг в масштабе {@link com.tmsproject.restaurantcollection.domain.Rating#SCALE}.
+     */
+    Integer getAverageRating();
+
+    Integer getVotes();
+}
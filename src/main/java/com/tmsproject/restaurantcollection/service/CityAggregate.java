@@ -0,0 +1,103 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.dto.CityStatsDto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Инкрементально поддерживаемые агрегаты ресторанов одного города.
+ * Стоимость хранится гистограммой, поэтому перцентили считаются за число различных значений стоимости.
+ * Сумма рейтингов, взвешенных голосами, хранится в масштабе {@link Rating#SCALE}, поэтому изменения не создают BigDecimal.
+ */
+class CityAggregate {
+
+    private long restaurants;
+    private long votes;
+    private long weightedRating;
+    private final TreeMap<Integer, Long> costHistogram = new TreeMap<>();
+
+    synchronized void add(Integer cost, Rating rating, Integer votes) {
+        apply(cost, rating, votes, 1);
+    }
+
+    synchronized void remove(Integer cost, Rating rating, Integer votes) {
+        apply(cost, rating, votes, -1);
+    }
+
+    synchronized void addBucket(Integer cost, long restaurants, long votes, BigDecimal weightedRating) {
+        this.restaurants += restaurants;
+        this.votes += votes;
+        this.weightedRating += toScaled(weightedRating);
+        if (cost != null) {
+            costHistogram.merge(cost, restaurants, Long::sum);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return restaurants <= 0;
+    }
+
+    /**
+     * Совпадают ли агрегаты с итогами, посчитанными в базе.
+     */
+    synchronized boolean matches(long restaurants, long votes, BigDecimal weightedRating) {
+        return this.restaurants == restaurants && this.votes == votes
+                && BigDecimal.valueOf(this.weightedRating, Rating.SCALE).compareTo(weightedRating) == 0;
+    }
+
+    synchronized CityStatsDto toDto(String city) {
+        return CityStatsDto.builder()
+                .city(city)
+                .restaurants(restaurants)
+                .votes(votes)
+                .averageRating(votes == 0 ? null : BigDecimal.valueOf(weightedRating, Rating.SCALE)
+                        .divide(BigDecimal.valueOf(votes), Rating.SCALE, RoundingMode.HALF_UP)
+                        .stripTrailingZeros()
+                        .toPlainString())
+                .costP50(costPercentile(0.5))
+                .costP90(costPercentile(0.9))
+                .costP99(costPercentile(0.99))
+                .build();
+    }
+
+    private void apply(Integer cost, Rating rating, Integer votes, int sign) {
+        long restaurantVotes = votes == null ? 0 : votes;
+        restaurants += sign;
+        this.votes += sign * restaurantVotes;
+        if (rating != null) {
+            weightedRating += sign * rating.scaled() * restaurantVotes;
+        }
+        if (cost != null) {
+            costHistogram.merge(cost, (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    // Сумма из базы имеет масштаб колонки average_rating
+    private static long toScaled(BigDecimal weightedRating) {
+        return weightedRating.setScale(Rating.SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Перцентиль по методу ближайшего ранга
+    private Integer costPercentile(double percentile) {
+        long total = 0;
+        for (long count : costHistogram.values()) {
+            total += count;
+        }
+        if (total == 0) {
+            return null;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : costHistogram.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return entry.getKey();
+            }
+        }
+        return costHistogram.lastKey();
+    }
+}
@@ -0,0 +1,82 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.dto.RatingHistoryBucketDto;
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+import com.tmsproject.restaurantcollection.exception.NotFoundException;
+import com.tmsproject.restaurantcollection.history.HistoryBucket;
+import com.tmsproject.restaurantcollection.repository.RatingHistoryRepository;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * История рейтинга ресторанов, усредненная по часам или дням.
+ */
+@Service
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class RatingHistoryService {
+
+    private final RatingHistoryRepository repository;
+    private final RestaurantService restaurantService;
+    private final int maxBuckets;
+    private final Clock clock = Clock.systemUTC();
+
+    /**
+     * Конструктор, принимающий репозиторий истории и сервис ресторанов.
+     *
+     * @param repository        Репозиторий истории рейтинга.
+     * @param restaurantService Сервис для проверки существования ресторана.
+     * @param maxBuckets        Максимальное число интервалов в одном запросе.
+     */
+    public RatingHistoryService(RatingHistoryRepository repository, RestaurantService restaurantService,
+                                @Value("${restaurant.rating-history.max-buckets:2000}") int maxBuckets) {
+        this.repository = repository;
+        this.restaurantService = restaurantService;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Находит историю рейтинга ресторана за период.
+     *
+     * @param id     ID ресторана.
+     * @param from   Начало периода, ISO-8601 (необязательный); по умолчанию 30 дней или 2 суток до конца периода.
+     * @param to     Конец периода, ISO-8601, не включая (необязательный); по умолчанию текущий момент.
+     * @param bucket {@code hour} или {@code day} (необязательный); по умолчанию {@code day}.
+     * @return Непустые интервалы по возрастанию времени.
+     * @throws NotFoundException         Если ресторана нет.
+     * @throws InvalidParameterException Если параметры некорректны или период содержит слишком много интервалов.
+     */
+    public List<RatingHistoryBucketDto> findHistory(long id, String from, String to, String bucket) {
+        HistoryBucket size = StringUtils.isBlank(bucket) ? HistoryBucket.DAY : HistoryBucket.parse(bucket);
+        Instant end = StringUtils.isBlank(to) ? clock.instant() : parseInstant("to", to);
+        Instant start = StringUtils.isBlank(from)
+                ? end.minus(size == HistoryBucket.DAY ? Duration.ofDays(30) : Duration.ofDays(2))
+                : parseInstant("from", from);
+        if (!start.isBefore(end)) {
+            throw new InvalidParameterException("Parameter 'from' should be before 'to'.");
+        }
+        if (Duration.between(start, end).dividedBy(size.getDuration()) >= maxBuckets) {
+            throw new InvalidParameterException("Period should contain at most " + maxBuckets + " buckets.");
+        }
+        if (restaurantService.findById(id).isEmpty()) {
+            throw new NotFoundException("Entity with id '" + id + "' can't be found.");
+        }
+        return repository.findBuckets(id, start, end, size);
+    }
+
+    private static Instant parseInstant(String name, String value) {
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new InvalidParameterException("Parameter '" + name + "' should be an ISO-8601 instant, e.g. "
+                    + "2026-10-01T00:00:00Z.");
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tmsproject.restaurantcollection.dto.RestaurantChangeDto;
+import com.tmsproject.restaurantcollection.event.ChangeType;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.exception.OverloadedException;
+import com.tmsproject.restaurantcollection.mapper.RestaurantMapper;
+import com.tmsproject.restaurantcollection.sync.RestaurantsInvalidatedEvent;
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Лента изменений ресторанов для Server-Sent Events.
+ * <p>
+ * Изменения после фиксации транзакции записываются в кольцевой буфер ограниченного размера с монотонно
+ * растущими номерами. Пишущий поток только кладет запись в буфер и будит поток рассылки, поэтому медленные
+ * клиенты не задерживают запись. Клиент, отставший больше чем на размер буфера, получает событие {@code reset}
+ * и должен заново загрузить список ресторанов.
+ * <p>
+ * Изменения других экземпляров ({@link RestaurantsInvalidatedEvent}) попадают в ленту как {@code updated} и
+ * {@code deleted}: операции, объединенные в одном уведомлении, не различают создание и изменение. После полной
+ * синхронизации ({@link RestaurantsResyncEvent}) изменения могли быть пропущены, поэтому в буфер записывается
+ * отметка, на которой все подписчики получают {@code reset}.
+ * <p>
+ * Разрыв соединения клиентом - обычное завершение потока: подписчик удаляется и учитывается в метрике без
+ * логгирования ошибки. Отправка, которая длится дольше {@code send-timeout}, отключает подписчика, а на время,
+ * пока его поток заблокирован записью в сокет, пул отправки получает дополнительный поток, поэтому зависшие
+ * соединения не задерживают остальных подписчиков.
+ */
+@Slf4j
+@Service
+public class RestaurantChangeFeed {
+
+    static final String RESET_EVENT = "reset";
+
+    // Сколько событий отправляется одному клиенту за один проход, чтобы не занимать поток рассылки надолго
+    private static final int DRAIN_BATCH = 256;
+
+    private final RestaurantMapper mapper;
+    private final ObjectMapper objectMapper;
+
+    private final int mask;
+    private final AtomicReferenceArray<ChangeRecord> ring;
+    private final long firstSequence;
+
+    // Номер следующей записи, изменяется только под appendLock
+    private final Object appendLock = new Object();
+    private long nextSequence;
+
+    // Номер последней опубликованной записи
+    private volatile long lastSequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int maxSubscribers;
+    private final long emitterTimeoutMillis;
+
+    private final ThreadPoolExecutor senders;
+    private final long sendTimeoutNanos;
+    private final ScheduledExecutorService heartbeats;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final Counter laggedCounter;
+    private final Counter disconnectedCounter;
+    private final Counter stalledCounter;
+
+    public RestaurantChangeFeed(RestaurantMapper mapper,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${restaurant.changes.capacity:4096}") int capacity,
+                                @Value("${restaurant.changes.max-subscribers:1000}") int maxSubscribers,
+                                @Value("${restaurant.changes.sender-threads:4}") int senderThreads,
+                                @Value("${restaurant.changes.emitter-timeout:PT30M}") Duration emitterTimeout,
+                                @Value("${restaurant.changes.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+                                @Value("${restaurant.changes.send-timeout:PT10S}") Duration sendTimeout) {
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.maxSubscribers = maxSubscribers;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+
+        // Номера продолжают расти после перезапуска, поэтому старый Last-Event-ID распознается как устаревший
+        this.firstSequence = System.currentTimeMillis() * 1000;
+        this.nextSequence = firstSequence;
+        this.lastSequence = firstSequence - 1;
+
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        long stallCheckMillis = Math.max(100, sendTimeout.toMillis() / 2);
+        this.heartbeats.scheduleWithFixedDelay(this::disconnectStalled, stallCheckMillis, stallCheckMillis,
+                TimeUnit.MILLISECONDS);
+        this.dispatcher = new Thread(this::dispatch, "change-feed-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+
+        Gauge.builder("restaurant.changes.subscribers", subscribers, Set::size).register(meterRegistry);
+        this.laggedCounter = Counter.builder("restaurant.changes.lagged")
+                .description("Subscribers that fell behind the ring buffer and were reset")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("restaurant.changes.disconnected")
+                .description("Subscribers that left the feed: the client closed the connection or stopped reading")
+                .tag("reason", "client")
+                .register(meterRegistry);
+        this.stalledCounter = Counter.builder("restaurant.changes.disconnected")
+                .description("Subscribers that left the feed: the client closed the connection or stopped reading")
+                .tag("reason", "slow")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Добавляет изменение в буфер после фиксации транзакции. Не выполняет сериализацию и отправку.
+     *
+     * @param event Событие изменения ресторана.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        append(List.of(event));
+    }
+
+    /**
+     * Добавляет в буфер изменения других экземпляров.
+     *
+     * @param event Событие с текущим состоянием измененных ресторанов.
+     */
+    @EventListener
+    public void onRestaurantsInvalidated(RestaurantsInvalidatedEvent event) {
+        List<RestaurantChangedEvent> changes = new ArrayList<>(event.upserted().size() + event.removed().size());
+        event.upserted().values().forEach(snapshot ->
+                changes.add(new RestaurantChangedEvent(ChangeType.UPDATED, null, snapshot)));
+        event.removed().forEach(id -> changes.add(new RestaurantChangedEvent(ChangeType.DELETED,
+                new RestaurantSnapshot(id, null, null, null, null, null), null)));
+        append(changes);
+    }
+
+    /**
+     * Записывает в буфер отметку полной синхронизации: подписчики, дошедшие до нее, получают {@code reset}.
+     *
+     * @param event Событие полной синхронизации.
+     */
+    @EventListener
+    public void onRestaurantsResync(RestaurantsResyncEvent event) {
+        append(Collections.singletonList(null));
+    }
+
+    // Изменение null - отметка полной синхронизации
+    private void append(List<RestaurantChangedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        synchronized (appendLock) {
+            for (RestaurantChangedEvent event : events) {
+                long sequence = nextSequence++;
+                ring.set((int) sequence & mask, new ChangeRecord(sequence, event));
+                lastSequence = sequence;
+            }
+        }
+        LockSupport.unpark(dispatcher);
+    }
+
+    /**
+     * Подписывает клиента на изменения.
+     *
+     * @param lastEventId Номер последнего полученного клиентом события (необязательный).
+     * @return Emitter для потока событий.
+     * @throws OverloadedException Если достигнуто максимальное число подписчиков.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new OverloadedException("Too many change feed subscribers", 5);
+        }
+        long last = lastSequence;
+        long oldest = Math.max(firstSequence, last - mask);
+        SseEmitter emitter = createEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        if (lastEventId == null) {
+            subscriber.cursor = last + 1;
+        } else if (lastEventId < oldest - 1 || lastEventId > last) {
+            // События после lastEventId уже вытеснены или номер выдан до перезапуска
+            subscriber.cursor = last + 1;
+            subscriber.pendingReset = true;
+        } else {
+            subscriber.cursor = lastEventId + 1;
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ex -> subscriber.close());
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return emitter;
+    }
+
+    // Отдельный метод, чтобы тесты могли подставить emitter без контейнера сервлетов
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    // Поток рассылки: при появлении новых записей планирует отправку всем подписчикам
+    private void dispatch() {
+        long dispatched = lastSequence;
+        while (running) {
+            long last = lastSequence;
+            if (last != dispatched) {
+                dispatched = last;
+                subscribers.forEach(Subscriber::schedule);
+            } else {
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.forEach(subscriber -> {
+            subscriber.pendingHeartbeat = true;
+            subscriber.schedule();
+        });
+    }
+
+    // Отключает подписчиков, отправка которым длится дольше send-timeout
+    private void disconnectStalled() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> {
+            if (subscriber.isSendingSince(now - sendTimeoutNanos) && subscriber.markStalled()) {
+                stalledCounter.increment();
+                log.debug("Change feed subscriber is too slow and disconnected.");
+                subscriber.close();
+                resizeSenders(1);
+            }
+        });
+    }
+
+    // Изменяет размер пула отправки; при увеличении сначала растет максимум, при уменьшении - основной размер
+    private synchronized void resizeSenders(int delta) {
+        int size = senders.getCorePoolSize() + delta;
+        if (delta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private String toJson(ChangeRecord record) {
+        RestaurantChangedEvent event = record.event();
+        RestaurantChangeDto dto = RestaurantChangeDto.builder()
+                .sequence(record.sequence())
+                .type(event.type().getCode())
+                .id(event.id())
+                .restaurant(event.after() == null ? null : mapper.toDto(event.after()))
+                .build();
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class ChangeRecord {
+        private final long sequence;
+        // null - отметка полной синхронизации
+        private final RestaurantChangedEvent event;
+
+        // JSON строится один раз потоком рассылки и переиспользуется для всех подписчиков
+        private volatile String json;
+
+        private ChangeRecord(long sequence, RestaurantChangedEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        RestaurantChangedEvent event() {
+            return event;
+        }
+
+        String json() {
+            String value = json;
+            if (value == null) {
+                value = toJson(this);
+                json = value;
+            }
+            return value;
+        }
+    }
+
+    private final class Subscriber {
+        private static final int IDLE = 0;
+        private static final int SENDING = 1;
+        private static final int STALLED = 2;
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Состояние отправки: поток отправки переводит IDLE -> SENDING -> IDLE, проверка зависания - SENDING -> STALLED
+        private final AtomicInteger sendState = new AtomicInteger(IDLE);
+        private volatile long sendStartedNanos;
+
+        // Изменяются только внутри drain, который выполняется не более чем одним потоком одновременно
+        private long cursor;
+        private volatile boolean pendingReset;
+        private volatile boolean pendingHeartbeat;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void schedule() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        boolean isSendingSince(long nanos) {
+            return sendState.get() == SENDING && sendStartedNanos - nanos < 0;
+        }
+
+        boolean markStalled() {
+            return sendState.compareAndSet(SENDING, STALLED);
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartedNanos = System.nanoTime();
+            sendState.set(SENDING);
+            boolean stalled;
+            try {
+                emitter.send(event);
+            } finally {
+                stalled = sendState.getAndSet(IDLE) == STALLED;
+                if (stalled) {
+                    // Поток освободился: дополнительный поток пула больше не нужен
+                    resizeSenders(-1);
+                }
+            }
+            if (stalled) {
+                // Отправка завершилась после отключения подписчика: поток закрывается
+                throw new IOException("Change feed subscriber is too slow");
+            }
+        }
+
+        private void drain() {
+            try {
+                if (pendingReset) {
+                    sendReset();
+                }
+                if (pendingHeartbeat) {
+                    pendingHeartbeat = false;
+                    send(SseEmitter.event().comment("heartbeat"));
+                }
+                int sent = 0;
+                while (!closed && cursor <= lastSequence && sent < DRAIN_BATCH) {
+                    ChangeRecord record = ring.get((int) cursor & mask);
+                    if (record == null || record.sequence() != cursor) {
+                        // Запись уже перезаписана: клиент отстал больше чем на размер буфера
+                        laggedCounter.increment();
+                        sendReset();
+                        continue;
+                    }
+                    if (record.event() == null) {
+                        // Отметка полной синхронизации: пропущенные изменения не известны
+                        sendReset();
+                        continue;
+                    }
+                    send(SseEmitter.event()
+                            .id(String.valueOf(record.sequence()))
+                            .name(record.event().type().getCode())
+                            .data(record.json(), MediaType.APPLICATION_JSON));
+                    cursor++;
+                    sent++;
+                }
+            } catch (IOException e) {
+                // Разрыв соединения - обычное завершение потока событий, а не ошибка
+                log.debug("Change feed subscriber disconnected.; reason: {}", e.getMessage());
+                if (!closed) {
+                    disconnectedCounter.increment();
+                }
+                close();
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // Emitter уже завершен по таймауту или контейнером
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            if (!closed && (cursor <= lastSequence || pendingHeartbeat)) {
+                schedule();
+            }
+        }
+
+        private void sendReset() throws IOException {
+            long last = lastSequence;
+            pendingReset = false;
+            cursor = last + 1;
+            send(SseEmitter.event()
+                    .id(String.valueOf(last))
+                    .name(RESET_EVENT)
+                    .data("{\"sequence\":" + last + "}", MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package com.tmsproject.restaurantcollection.service;
 
+import com.tmsproject.restaurantcollection.deadline.RequestDeadline;
+import com.tmsproject.restaurantcollection.domain.Rating;
 import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.event.ChangeType;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
 import com.tmsproject.restaurantcollection.exception.DuplicateEntityException;
-import com.tmsproject.restaurantcollection.repository.RestaurantRepository;
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+import com.tmsproject.restaurantcollection.exception.NotFoundException;
+import com.tmsproject.restaurantcollection.jfr.CacheOutcome;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.readmodel.RestaurantReadModel;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления сущностями ресторанов.
@@ -18,15 +39,51 @@ import java.util.Optional;
 @Service
 public class RestaurantService implements BaseService<RestaurantEntity> {
 
-    private final RestaurantRepository repository;
+    private static final String SORT_KEY = "sort";
+    private static final String CITY_KEY_PREFIX = "city:";
+
+    // Хранилище ресторанов: Postgres или встроенное, по свойству restaurant.storage.type
+    private final RestaurantStore store;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Колоночная реплика для сортировки и фильтрации без обращения к базе
+    private final RestaurantReadModel readModel;
+
+    // Одинаковые одновременные запросы списков выполняют один запрос к базе
+    private final SingleFlight<String, List<RestaurantEntity>> listQueries = new SingleFlight<>();
+    private final SingleFlight<String, List<ProjectedRestaurant>> projectedQueries = new SingleFlight<>();
+
+    // Ожидание общих запросов дополнительно ограничено сроком каждого запроса, а сама загрузка выполняется
+    // со сроком, равным времени ожидания, а не со сроком первого вызывающего
+    private final Duration cityQueryTimeout;
+    private final Duration sortQueryTimeout;
+
+    // Максимальное число дублей в одном объединении
+    private final int mergeMaxDuplicates;
 
     /**
-     * Конструктор, принимающий репозиторий ресторанов.
+     * Конструктор, принимающий хранилище ресторанов.
      *
-     * @param repository Репозиторий для управления сущностями ресторанов.
+     * @param store              Хранилище ресторанов.
+     * @param eventPublisher     Публикатор событий изменения ресторанов.
+     * @param readModel          Колоночная реплика ресторанов в памяти.
+     * @param cityQueryTimeout   Сколько ожидать общий запрос ресторанов по городу.
+     * @param sortQueryTimeout   Сколько ожидать общий запрос сортировки по рейтингу.
+     * @param mergeMaxDuplicates Максимальное число дублей в одном объединении.
      */
-    protected RestaurantService(RestaurantRepository repository) {
-        this.repository = repository;
+    protected RestaurantService(RestaurantStore store,
+                                ApplicationEventPublisher eventPublisher,
+                                RestaurantReadModel readModel,
+                                @Value("${restaurant.coalescing.city-timeout:5s}") Duration cityQueryTimeout,
+                                @Value("${restaurant.coalescing.sort-timeout:10s}") Duration sortQueryTimeout,
+                                @Value("${restaurant.merge.max-duplicates:100}") int mergeMaxDuplicates) {
+        this.store = store;
+        this.eventPublisher = eventPublisher;
+        this.readModel = readModel;
+        this.cityQueryTimeout = cityQueryTimeout;
+        this.sortQueryTimeout = sortQueryTimeout;
+        this.mergeMaxDuplicates = mergeMaxDuplicates;
     }
 
     /**
@@ -38,7 +95,7 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
     @Override
     @Transactional
     public Optional<RestaurantEntity> findById(Long id) {
-        return repository.findById(id);
+        return store.findById(id);
     }
 
     /**
@@ -49,28 +106,140 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
     @Override
     @Transactional
     public List<RestaurantEntity> findAll() {
-        return repository.findAll();
+        return store.findAll();
     }
 
     /**
      * Находит все рестораны в указанном городе.
+     * Пока реплика в памяти не загружена, одновременные запросы одного города объединяются в один запрос к базе.
+     * Метод не транзакционный, чтобы ожидающие вызовы не занимали соединения из пула.
      *
      * @param city Город для фильтрации ресторанов.
-     * @return Список сущностей ресторанов в указанном городе.
+     * @return Неизменяемый список сущностей ресторанов в указанном городе.
      */
-    @Transactional
     public List<RestaurantEntity> findAllByCity(String city) {
-        return repository.findAllByCityIgnoreCase(city.toLowerCase());
+        String normalizedCity = RestaurantEntity.cityKey(city.trim());
+        if (readModel.isReady()) {
+            CacheOutcome.record(CacheOutcome.READ_MODEL);
+            return readModel.findAllByCity(normalizedCity);
+        }
+        return listQueries.execute(CITY_KEY_PREFIX + normalizedCity, RequestDeadline.cap(cityQueryTimeout),
+                RequestDeadline.detach(cityQueryTimeout, () -> Collections.unmodifiableList(store.findAllByCityKey(normalizedCity))));
     }
 
     /**
      * Возвращает список ресторанов, отсортированных по среднему рейтингу.
+     * Пока реплика в памяти не загружена, одновременные запросы объединяются в один запрос к базе.
      *
-     * @return Список сущностей ресторанов, отсортированных по среднему рейтингу.
+     * @return Неизменяемый список сущностей ресторанов, отсортированных по среднему рейтингу.
      */
-    @Transactional
     public List<RestaurantEntity> findAllOrderByAverageRating() {
-        return repository.findByOrderByAverageRatingDesc();
+        if (readModel.isReady()) {
+            CacheOutcome.record(CacheOutcome.READ_MODEL);
+            return readModel.findAllOrderByAverageRating(0);
+        }
+        return listQueries.execute(SORT_KEY, RequestDeadline.cap(sortQueryTimeout),
+                RequestDeadline.detach(sortQueryTimeout, () -> Collections.unmodifiableList(store.findOrderByAverageRatingDesc(0))));
+    }
+
+    /**
+     * Возвращает первые рестораны по убыванию среднего рейтинга.
+     *
+     * @param limit Максимальное число ресторанов.
+     * @return Неизменяемый список сущностей ресторанов.
+     */
+    public List<RestaurantEntity> findTopByAverageRating(int limit) {
+        if (readModel.isReady()) {
+            CacheOutcome.record(CacheOutcome.READ_MODEL);
+            return readModel.findAllOrderByAverageRating(limit);
+        }
+        return listQueries.execute(SORT_KEY + ':' + limit, RequestDeadline.cap(sortQueryTimeout),
+                RequestDeadline.detach(sortQueryTimeout, () -> Collections.unmodifiableList(store.findOrderByAverageRatingDesc(limit))));
+    }
+
+    /**
+     * Находит ресторан по ID, выбирая только поля проекции.
+     *
+     * @param id         ID ресторана.
+     * @param projection Запрошенные поля.
+     * @return Optional с рестораном, если найден.
+     */
+    public Optional<ProjectedRestaurant> findById(Long id, RestaurantProjection projection) {
+        return store.findById(id, projection);
+    }
+
+    /**
+     * Находит рестораны по набору ID. Рестораны из готовой реплики в памяти берутся без обращения к базе,
+     * остальные ID ищутся одним запросом {@code where id = any(?)}: реплика может отставать от базы.
+     *
+     * @param ids        Уникальные ID ресторанов.
+     * @param projection Запрошенные поля.
+     * @return Найденные рестораны по ID.
+     */
+    public Map<Long, ProjectedRestaurant> findAllById(Collection<Long> ids, RestaurantProjection projection) {
+        if (!readModel.isReady()) {
+            CacheOutcome.record(CacheOutcome.MISS);
+            return store.findAllById(ids, projection);
+        }
+        Map<Long, ProjectedRestaurant> found = new HashMap<>();
+        readModel.findAllById(ids).forEach((id, entity) -> found.put(id, projection.map(entity)));
+        CacheOutcome.record(CacheOutcome.READ_MODEL);
+        if (found.size() < ids.size()) {
+            CacheOutcome.record(CacheOutcome.PARTIAL);
+            List<Long> missing = new ArrayList<>(ids.size() - found.size());
+            for (Long id : ids) {
+                if (!found.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            found.putAll(store.findAllById(missing, projection));
+        }
+        return found;
+    }
+
+    /**
+     * Возвращает все рестораны, выбирая только поля проекции.
+     *
+     * @param projection Запрошенные поля.
+     * @return Список ресторанов.
+     */
+    public List<ProjectedRestaurant> findAll(RestaurantProjection projection) {
+        return store.findAll(projection);
+    }
+
+    /**
+     * Находит все рестораны в указанном городе, выбирая только поля проекции.
+     * Готовая реплика в памяти обслуживает запрос без базы; иначе одновременные запросы одного города
+     * с одинаковой проекцией объединяются.
+     *
+     * @param city       Город для фильтрации ресторанов.
+     * @param projection Запрошенные поля.
+     * @return Неизменяемый список ресторанов в указанном городе.
+     */
+    public List<ProjectedRestaurant> findAllByCity(String city, RestaurantProjection projection) {
+        String normalizedCity = RestaurantEntity.cityKey(city.trim());
+        if (readModel.isReady()) {
+            CacheOutcome.record(CacheOutcome.READ_MODEL);
+            return project(readModel.findAllByCity(normalizedCity), projection);
+        }
+        return projectedQueries.execute(CITY_KEY_PREFIX + normalizedCity + ':' + projection.key(), RequestDeadline.cap(cityQueryTimeout),
+                RequestDeadline.detach(cityQueryTimeout, () -> Collections.unmodifiableList(store.findAllByCityKey(normalizedCity, projection))));
+    }
+
+    /**
+     * Возвращает рестораны по убыванию среднего рейтинга, выбирая только поля проекции.
+     *
+     * @param limit      Максимальное число ресторанов; 0 - без ограничения.
+     * @param projection Запрошенные поля.
+     * @return Неизменяемый список ресторанов.
+     */
+    public List<ProjectedRestaurant> findTopByAverageRating(int limit, RestaurantProjection projection) {
+        if (readModel.isReady()) {
+            CacheOutcome.record(CacheOutcome.READ_MODEL);
+            return project(readModel.findAllOrderByAverageRating(limit), projection);
+        }
+        return projectedQueries.execute(SORT_KEY + ':' + limit + ':' + projection.key(), RequestDeadline.cap(sortQueryTimeout),
+                RequestDeadline.detach(sortQueryTimeout, () -> Collections.unmodifiableList(store.findOrderByAverageRatingDesc(limit, projection))));
     }
 
     /**
@@ -84,7 +253,8 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
     public RestaurantEntity create(RestaurantEntity entity) {
         log.trace("Create Entity.; class: {}", entity.getClass());
         ensureUniqueOrThrow(entity); // Проверка уникальности ресторана
-        RestaurantEntity restaurant = repository.save(entity); // Сохранение ресторана в репозитории
+        RestaurantEntity restaurant = store.save(entity); // Сохранение ресторана в хранилище
+        eventPublisher.publishEvent(new RestaurantChangedEvent(ChangeType.CREATED, null, RestaurantSnapshot.of(restaurant)));
         log.info("Entity created.; id: {}; class: {}", restaurant.getId(), restaurant.getClass());
         return restaurant;
     }
@@ -99,17 +269,23 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
     @Transactional
     public RestaurantEntity update(RestaurantEntity input) {
         log.trace("Update Entity.; id: {}; class: {}", input.getId(), input.getClass());
-        Optional<RestaurantEntity> entityOpt = input.getId() == null ? Optional.empty() : findById(input.getId());
+        // Строка блокируется до конца транзакции, чтобы не перезаписать одновременное объединение дублей
+        Optional<RestaurantEntity> entityOpt = input.getId() == null
+                ? Optional.empty()
+                : Optional.ofNullable(store.findAllByIdForUpdate(List.of(input.getId())).get(input.getId()));
         if (entityOpt.isEmpty()) {
             return create(input); // Если ресторан не найден, создать новый
         }
         RestaurantEntity entity = entityOpt.get();
+        RestaurantSnapshot before = RestaurantSnapshot.of(entity);
         if (input.getAverageRating() != null) {
             entity.setAverageRating(input.getAverageRating());
         }
         if (input.getVotes() != null) {
             entity.setVotes(input.getVotes());
         }
+        entity = store.save(entity); // Встроенное хранилище не отслеживает изменения сущностей
+        eventPublisher.publishEvent(new RestaurantChangedEvent(ChangeType.UPDATED, before, RestaurantSnapshot.of(entity)));
         log.info("Entity updated.; id: {}; class: {}", entity.getId(), entity.getClass());
         return entity;
     }
@@ -126,7 +302,7 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
         delete(
                 findById(id)
                         .orElseThrow(() ->
-                                new EntityNotFoundException(String.format("Entity with id '%s' can't be found.", id)))
+                                new NotFoundException("Entity with id '" + id + "' can't be found."))
         );
     }
 
@@ -139,10 +315,100 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
     @Transactional
     public void delete(RestaurantEntity entity) {
         log.trace("Delete entity.; id: {}", entity.getId());
-        repository.delete(entity);
+        store.delete(entity);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(ChangeType.DELETED, RestaurantSnapshot.of(entity), null));
         log.info("Entity deleted.; id: {}; class: {}", entity.getId(), entity.getClass());
     }
 
+    /**
+     * Объединяет дубли с оставшимся рестораном того же города: отзывы складываются, рейтинг усредняется
+     * с весом числа отзывов, дубли удаляются.
+     *
+     * @param survivorId   ID ресторана, который останется.
+     * @param duplicateIds ID дублей.
+     * @return Оставшийся ресторан с объединенными отзывами и рейтингом.
+     * @throws InvalidParameterException Если список дублей пуст, слишком длинный, содержит оставшийся ресторан
+     *                                   или рестораны другого города.
+     * @throws NotFoundException         Если одного из ресторанов нет.
+     */
+    @Transactional
+    public RestaurantEntity merge(Long survivorId, Collection<Long> duplicateIds) {
+        if (survivorId == null || duplicateIds == null || duplicateIds.isEmpty()
+                || duplicateIds.size() > mergeMaxDuplicates) {
+            throw new InvalidParameterException("Merge should have a survivorId and from 1 to " + mergeMaxDuplicates
+                    + " duplicateIds.");
+        }
+        Set<Long> unique = new LinkedHashSet<>(duplicateIds);
+        if (unique.contains(null) || unique.contains(survivorId)) {
+            throw new InvalidParameterException("Parameter 'duplicateIds' should not contain nulls or the survivorId.");
+        }
+        // Все строки блокируются до конца транзакции: одновременное обновление отзывов или рейтинга
+        // не будет перезаписано суммой, посчитанной по прочитанным значениям
+        List<Long> ids = new ArrayList<>(unique.size() + 1);
+        ids.add(survivorId);
+        ids.addAll(unique);
+        Map<Long, RestaurantEntity> found = store.findAllByIdForUpdate(ids);
+        RestaurantEntity survivor = found.get(survivorId);
+        if (survivor == null) {
+            throw new NotFoundException("Entity with id '" + survivorId + "' can't be found.");
+        }
+        List<RestaurantEntity> duplicates = new ArrayList<>(unique.size());
+        for (Long id : unique) {
+            RestaurantEntity duplicate = found.get(id);
+            if (duplicate == null) {
+                throw new NotFoundException("Entity with id '" + id + "' can't be found.");
+            }
+            if (!duplicate.getCityKey().equals(survivor.getCityKey())) {
+                throw new InvalidParameterException("Restaurants to merge should be in the same city.");
+            }
+            duplicates.add(duplicate);
+        }
+
+        RestaurantSnapshot before = RestaurantSnapshot.of(survivor);
+        List<RestaurantEntity> merged = new ArrayList<>(duplicates.size() + 1);
+        merged.add(survivor);
+        merged.addAll(duplicates);
+        survivor.setAverageRating(weightedRating(merged));
+        survivor.setVotes(merged.stream().mapToInt(entity -> entity.getVotes() == null ? 0 : entity.getVotes()).sum());
+        // Дубли удаляются первыми: событие обновления оставшегося ресторана приходит уже без них
+        for (RestaurantEntity duplicate : duplicates) {
+            delete(duplicate);
+        }
+        survivor = store.save(survivor);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(ChangeType.UPDATED, before, RestaurantSnapshot.of(survivor)));
+        log.info("Entities merged.; id: {}; merged ids: {}; votes: {}; rating: {}", survivor.getId(), unique,
+                survivor.getVotes(), survivor.getAverageRating());
+        return survivor;
+    }
+
+    /**
+     * Средний рейтинг с весом числа отзывов, округленный до {@link Rating#SCALE} знаков; без отзывов -
+     * простое среднее.
+     */
+    static Rating weightedRating(List<RestaurantEntity> restaurants) {
+        long weighted = 0;
+        long votes = 0;
+        long sum = 0;
+        int rated = 0;
+        for (RestaurantEntity restaurant : restaurants) {
+            if (restaurant.getAverageRating() == null) {
+                continue;
+            }
+            int scaled = restaurant.getAverageRating().scaled();
+            int restaurantVotes = restaurant.getVotes() == null ? 0 : restaurant.getVotes();
+            weighted += (long) scaled * restaurantVotes;
+            votes += restaurantVotes;
+            sum += scaled;
+            rated++;
+        }
+        if (rated == 0) {
+            return null;
+        }
+        return votes > 0
+                ? Rating.ofScaled((int) Math.round((double) weighted / votes))
+                : Rating.ofScaled((int) Math.round((double) sum / rated));
+    }
+
     /**
      * Проверяет уникальность ресторана по имени и городу.
      *
@@ -150,11 +416,16 @@ public class RestaurantService implements BaseService<RestaurantEntity> {
      * @throws DuplicateEntityException Если ресторан с таким именем и городом уже существует.
      */
     protected void ensureUniqueOrThrow(RestaurantEntity input) {
-        RestaurantEntity existing = repository.findByNameAndCity(input.getName(), input.getCity());
-        if (existing != null) {
+        if (store.findByNameAndCity(input.getName(), input.getCity()).isPresent()) {
             throw new DuplicateEntityException(
                     String.format("Restaurant already exist with name %s and city %s", input.getName(), input.getCity())
             );
         }
     }
+
+    private static List<ProjectedRestaurant> project(List<RestaurantEntity> restaurants, RestaurantProjection projection) {
+        return restaurants.stream()
+                .map(projection::map)
+                .collect(Collectors.toUnmodifiableList());
+    }
 }
@@ -0,0 +1,289 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.dto.CityStatsDto;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import com.tmsproject.restaurantcollection.sync.RestaurantsInvalidatedEvent;
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Статистика ресторанов по городам.
+ * <p>
+ * Агрегаты загружаются один раз при старте и дальше поддерживаются инкрементально по событиям
+ * {@link RestaurantChangedEvent}, поэтому запрос статистики не обращается к базе. Города, измененные другими
+ * экземплярами, перестраиваются по {@link RestaurantsInvalidatedEvent}.
+ * Периодическая сверка с базой находит и исправляет расхождения.
+ * <p>
+ * Перестроение города по базе заменяет его агрегаты, только если за время чтения к городу не применялись изменения
+ * и нет зафиксированных, но еще не примененных: иначе изменение потерялось бы или было бы учтено дважды.
+ */
+@Slf4j
+@Service
+public class RestaurantStatsService {
+
+    private final RestaurantStore store;
+
+    // Сколько раз перечитывать город, если во время чтения к нему применялись изменения
+    private static final int REFRESH_ATTEMPTS = 3;
+
+    private final ConcurrentMap<String, CityAggregate> aggregates = new ConcurrentHashMap<>();
+
+    // Локальные изменения по городам; записи не удаляются, их не больше, чем городов
+    private final ConcurrentMap<String, CityChanges> changes = new ConcurrentHashMap<>();
+
+    private final Counter driftCounter;
+
+    /**
+     * Конструктор, принимающий хранилище ресторанов.
+     *
+     * @param store         Хранилище для загрузки и сверки агрегатов.
+     * @param meterRegistry Реестр метрик для счетчика расхождений.
+     */
+    public RestaurantStatsService(RestaurantStore store, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.driftCounter = Counter.builder("restaurant.stats.drift")
+                .description("Cities whose aggregates differed from the database during reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Загружает агрегаты всех городов до того, как приложение начнет принимать трафик.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE) // Раньше прогрева, который обращается к загруженным данным
+    public void load() {
+        long start = System.nanoTime();
+        Map<String, Long> sequences = new HashMap<>();
+        changes.forEach((city, cityChanges) -> sequences.put(city, cityChanges.sequence.get()));
+        Map<String, CityAggregate> loaded = new HashMap<>();
+        for (CityCostBucket bucket : store.findCityCostBuckets()) {
+            loaded.computeIfAbsent(bucket.getCity(), city -> new CityAggregate()).addBucket(bucket.getCost(),
+                    bucket.getRestaurants(), bucket.getVotes(), bucket.getWeightedRating());
+        }
+        // Без промежуточной очистки, чтобы при повторной загрузке запросы не видели пустую статистику
+        Set<String> cities = new HashSet<>(loaded.keySet());
+        cities.addAll(aggregates.keySet());
+        for (String city : cities) {
+            if (!replace(city, loaded.get(city), sequences.getOrDefault(city, 0L))) {
+                refresh(city);
+            }
+        }
+        log.info("City statistics loaded.; cities: {}; took: {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Применяет изменение ресторана к агрегатам после фиксации транзакции. До фиксации город отмечается как
+     * имеющий еще не примененное изменение, чтобы одновременное перестроение по базе не заменило агрегаты.
+     *
+     * @param event Событие изменения ресторана.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(event);
+            return;
+        }
+        List<String> cities = cityKeys(event);
+        cities.forEach(city -> changes(city).inFlight.incrementAndGet());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        apply(event);
+                    }
+                } finally {
+                    cities.forEach(city -> changes(city).inFlight.decrementAndGet());
+                }
+            }
+        });
+    }
+
+    private void apply(RestaurantChangedEvent event) {
+        // Номер меняется до применения: перестроение, прочитавшее базу раньше, не заменит агрегаты
+        cityKeys(event).forEach(city -> changes(city).sequence.incrementAndGet());
+        RestaurantSnapshot before = event.before();
+        if (before != null) {
+            aggregates.computeIfPresent(before.cityKey(), (city, aggregate) -> {
+                aggregate.remove(before.estimatedCost(), before.averageRating(), before.votes());
+                return aggregate.isEmpty() ? null : aggregate;
+            });
+        }
+        RestaurantSnapshot after = event.after();
+        if (after != null) {
+            aggregates.compute(after.cityKey(), (city, aggregate) -> {
+                CityAggregate target = aggregate == null ? new CityAggregate() : aggregate;
+                target.add(after.estimatedCost(), after.averageRating(), after.votes());
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Перестраивает агрегаты городов, измененных другими экземплярами.
+     *
+     * @param event Событие изменений других экземпляров.
+     */
+    @EventListener
+    public void onRestaurantsInvalidated(RestaurantsInvalidatedEvent event) {
+        event.cityKeys().forEach(this::refresh);
+    }
+
+    /**
+     * Перезагружает все агрегаты после пропущенных уведомлений.
+     *
+     * @param event Событие полной синхронизации.
+     */
+    @EventListener
+    public void onResync(RestaurantsResyncEvent event) {
+        load();
+    }
+
+    /**
+     * Возвращает статистику города.
+     *
+     * @param city Город (регистр не учитывается).
+     * @return Optional со статистикой, если в городе есть рестораны.
+     */
+    public Optional<CityStatsDto> findByCity(String city) {
+        String cityKey = RestaurantEntity.cityKey(city.trim());
+        CityAggregate aggregate = aggregates.get(cityKey);
+        return aggregate == null ? Optional.empty() : Optional.of(aggregate.toDto(cityKey));
+    }
+
+    /**
+     * Возвращает статистику всех городов, упорядоченную по названию города.
+     *
+     * @return Список статистики городов.
+     */
+    public List<CityStatsDto> findAll() {
+        return aggregates.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Сверяет агрегаты с итогами, посчитанными в базе, и перестраивает расходящиеся города.
+     */
+    @Scheduled(initialDelayString = "${restaurant.stats.reconcile-interval:PT5M}",
+            fixedDelayString = "${restaurant.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        Set<String> seen = new HashSet<>();
+        for (CityTotals totals : store.findCityTotals()) {
+            seen.add(totals.getCity());
+            CityAggregate aggregate = aggregates.get(totals.getCity());
+            if (aggregate == null
+                    || !aggregate.matches(totals.getRestaurants(), totals.getVotes(), totals.getWeightedRating())) {
+                rebuild(totals.getCity());
+            }
+        }
+        for (String city : aggregates.keySet()) {
+            if (!seen.contains(city)) {
+                rebuild(city);
+            }
+        }
+    }
+
+    /**
+     * Перестраивает агрегаты города по данным базы.
+     *
+     * @param cityKey Нормализованный ключ города.
+     */
+    void rebuild(String cityKey) {
+        driftCounter.increment();
+        refresh(cityKey);
+        log.warn("City statistics drift repaired.; city: {}", cityKey);
+    }
+
+    // Заменяет агрегаты города посчитанными в базе; при постоянных изменениях города оставляет их сверке
+    void refresh(String cityKey) {
+        for (int attempt = 0; attempt < REFRESH_ATTEMPTS; attempt++) {
+            long sequence = sequence(cityKey);
+            CityAggregate rebuilt = new CityAggregate();
+            for (CityCostBucket bucket : store.findCityCostBuckets(cityKey)) {
+                rebuilt.addBucket(bucket.getCost(), bucket.getRestaurants(), bucket.getVotes(),
+                        bucket.getWeightedRating());
+            }
+            if (replace(cityKey, rebuilt, sequence)) {
+                return;
+            }
+        }
+        log.debug("City statistics refresh skipped, city is changing.; city: {}", cityKey);
+    }
+
+    // Заменяет агрегаты города, если с момента чтения номера изменений к нему ничего не применялось
+    private boolean replace(String cityKey, CityAggregate rebuilt, long sequence) {
+        boolean[] replaced = new boolean[1];
+        aggregates.compute(cityKey, (city, current) -> {
+            CityChanges cityChanges = changes.get(city);
+            boolean unchanged = cityChanges == null
+                    ? sequence == 0
+                    : cityChanges.sequence.get() == sequence && cityChanges.inFlight.get() == 0;
+            if (!unchanged) {
+                return current;
+            }
+            replaced[0] = true;
+            return rebuilt == null || rebuilt.isEmpty() ? null : rebuilt;
+        });
+        return replaced[0];
+    }
+
+    private long sequence(String cityKey) {
+        CityChanges cityChanges = changes.get(cityKey);
+        return cityChanges == null ? 0 : cityChanges.sequence.get();
+    }
+
+    private CityChanges changes(String cityKey) {
+        return changes.computeIfAbsent(cityKey, city -> new CityChanges());
+    }
+
+    private static List<String> cityKeys(RestaurantChangedEvent event) {
+        List<String> cities = new ArrayList<>(2);
+        if (event.before() != null) {
+            cities.add(event.before().cityKey());
+        }
+        if (event.after() != null && !cities.contains(event.after().cityKey())) {
+            cities.add(event.after().cityKey());
+        }
+        return cities;
+    }
+
+    /**
+     * Локальные изменения города: номер последнего примененного и число зафиксированных, но еще не примененных.
+     */
+    private static final class CityChanges {
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+    }
+}
@@ -0,0 +1,87 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.jfr.CacheOutcome;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Объединяет одновременные одинаковые запросы: первый вызывающий выполняет загрузку,
+ * остальные с тем же ключом ждут и получают тот же результат или ту же ошибку.
+ * Результат не кэшируется - после завершения загрузки следующий вызов выполнит ее заново.
+ *
+ * @param <K> Тип нормализованного ключа запроса.
+ * @param <V> Тип результата.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Выполняет загрузку или присоединяется к уже выполняющейся загрузке с тем же ключом.
+     *
+     * @param key     Нормализованный ключ запроса.
+     * @param timeout Сколько ожидающий вызов ждет чужую загрузку.
+     * @param loader  Загрузка, выполняемая в потоке первого вызывающего.
+     * @return Результат загрузки.
+     * @throws QueryTimeoutException Если чужая загрузка не завершилась за отведенное время.
+     */
+    public V execute(K key, Duration timeout, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing == null) {
+            CacheOutcome.record(CacheOutcome.MISS);
+            return load(key, own, loader);
+        }
+        CacheOutcome.record(CacheOutcome.COALESCED);
+        return await(key, existing, timeout);
+    }
+
+    /**
+     * Количество ключей, для которых сейчас выполняется загрузка.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private V load(K key, CompletableFuture<V> own, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Удаляем только свою загрузку; ожидающие уже держат ссылку на future
+            inFlight.remove(key, own);
+        }
+    }
+
+    private V await(K key, CompletableFuture<V> existing, Duration timeout) {
+        try {
+            return existing.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException(String.format("Shared query '%s' did not complete in %s", key, timeout));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException(String.format("Interrupted while waiting for shared query '%s'", key));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import com.tmsproject.restaurantcollection.repository.RestaurantProjectionRepository;
+import com.tmsproject.restaurantcollection.repository.RestaurantRepository;
+import com.tmsproject.restaurantcollection.repository.RestaurantRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище ресторанов в Postgres через JPA. Запросы с проекцией выбирают из базы только запрошенные колонки.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaRestaurantStore implements RestaurantStore {
+
+    // Ограничивает ожидание блокировок при создании секции, в том числе строк города, заблокированных самой вставкой
+    private static final int PARTITION_TIMEOUT_SECONDS = 5;
+
+    private final RestaurantRepository repository;
+    private final RestaurantProjectionRepository projectionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate partitionTransaction;
+
+    // Города, секции которых точно существуют; пополняется после фиксации транзакции, создавшей секцию
+    private final Set<String> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    public JpaRestaurantStore(RestaurantRepository repository,
+                              RestaurantProjectionRepository projectionRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.projectionRepository = projectionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.partitionTransaction.setTimeout(PARTITION_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public Optional<RestaurantEntity> findById(long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Map<Long, RestaurantEntity> findAllById(Collection<Long> ids) {
+        Map<Long, RestaurantEntity> found = new HashMap<>();
+        repository.findAllById(ids).forEach(entity -> found.put(entity.getId(), entity));
+        return found;
+    }
+
+    @Override
+    public Map<Long, RestaurantEntity> findAllByIdForUpdate(Collection<Long> ids) {
+        Map<Long, RestaurantEntity> found = new HashMap<>();
+        repository.findAllByIdForUpdate(ids).forEach(entity -> found.put(entity.getId(), entity));
+        return found;
+    }
+
+    @Override
+    public List<RestaurantEntity> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public List<RestaurantEntity> findAllByCityKey(String cityKey) {
+        return repository.findAllByCityKey(cityKey);
+    }
+
+    @Override
+    public List<RestaurantEntity> findOrderByAverageRatingDesc(int limit) {
+        return limit > 0
+                ? repository.findByOrderByAverageRatingDesc(PageRequest.of(0, limit))
+                : repository.findByOrderByAverageRatingDesc();
+    }
+
+    @Override
+    public Optional<RestaurantEntity> findByNameAndCity(String name, String city) {
+        return Optional.ofNullable(repository.findByCityKeyAndNameAndCity(RestaurantEntity.cityKey(city), name, city));
+    }
+
+    @Override
+    public RestaurantEntity save(RestaurantEntity entity) {
+        if (entity.getId() == null) {
+            ensurePartition(RestaurantEntity.cityKey(entity.getCity())); // Секция города для новой строки
+        }
+        return repository.save(entity);
+    }
+
+    @Override
+    public void delete(RestaurantEntity entity) {
+        repository.delete(entity);
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    @Override
+    public void forEachRow(Consumer<RestaurantRow> action) {
+        // Курсор Postgres живет только внутри транзакции
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<RestaurantRow> rows = repository.streamAllRows()) {
+                rows.forEach(action);
+            }
+        });
+    }
+
+    @Override
+    public List<CityCostBucket> findCityCostBuckets() {
+        return repository.findCityCostBuckets();
+    }
+
+    @Override
+    public List<CityCostBucket> findCityCostBuckets(String cityKey) {
+        return repository.findCityCostBuckets(cityKey);
+    }
+
+    @Override
+    public List<CityTotals> findCityTotals() {
+        return repository.findCityTotals();
+    }
+
+    @Override
+    public Optional<ProjectedRestaurant> findById(long id, RestaurantProjection projection) {
+        return projectionRepository.findById(projection, id);
+    }
+
+    @Override
+    public Map<Long, ProjectedRestaurant> findAllById(Collection<Long> ids, RestaurantProjection projection) {
+        return projectionRepository.findAllById(projection, ids);
+    }
+
+    @Override
+    public List<ProjectedRestaurant> findAll(RestaurantProjection projection) {
+        return projectionRepository.findAll(projection);
+    }
+
+    @Override
+    public List<ProjectedRestaurant> findAllByCityKey(String cityKey, RestaurantProjection projection) {
+        return projectionRepository.findAllByCityKey(projection, cityKey);
+    }
+
+    @Override
+    public List<ProjectedRestaurant> findOrderByAverageRatingDesc(int limit, RestaurantProjection projection) {
+        return projectionRepository.findOrderByAverageRatingDesc(projection, limit);
+    }
+
+    /**
+     * Создает секцию таблицы для города, если она еще не известна этому экземпляру.
+     * Без секции строка попала бы в секцию по умолчанию, и запросы города не сокращались бы до одной секции.
+     * <p>
+     * Секция создается в собственной короткой транзакции до вставки: блокировки присоединения секции и
+     * advisory-блокировка не держатся до конца транзакции вызывающего. Если секцию создать не удалось, строка
+     * попадает в секцию по умолчанию, а секцию создаст следующая вставка города.
+     *
+     * @param cityKey Нормализованный ключ города.
+     */
+    private void ensurePartition(String cityKey) {
+        if (cityKey == null || knownPartitions.contains(cityKey)) {
+            return;
+        }
+        try {
+            String partition = partitionTransaction.execute(status -> repository.ensurePartition(cityKey));
+            knownPartitions.add(cityKey);
+            log.debug("Partition ensured.; city: {}; partition: {}", cityKey, partition);
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Partition was not created.; city: {}; error: {}", cityKey, e.getMessage());
+        }
+    }
+}
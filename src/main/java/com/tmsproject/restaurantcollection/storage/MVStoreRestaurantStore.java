@@ -0,0 +1,404 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import com.tmsproject.restaurantcollection.repository.RestaurantRow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище ресторанов во встроенном файловом хранилище MVStore (H2) для развертываний без Postgres.
+ * <p>
+ * Строки хранятся в карте {@code restaurants} (ID -> закодированная строка). Вторичные индексы - отдельные
+ * упорядоченные карты с составными строковыми ключами:
+ * <ul>
+ *     <li>{@code by_city}: {@code cityKey \0 id} - рестораны города;</li>
+ *     <li>{@code by_name_city}: {@code cityKey \0 city \0 name} - уникальность (name, city);</li>
+ *     <li>{@code by_rating}: {@code (MAX - rating) id} - обход по убыванию рейтинга.</li>
+ * </ul>
+ * ID и рейтинг в ключах записаны шестнадцатеричными числами фиксированной ширины, поэтому порядок строк совпадает
+ * с числовым. Записи выполняются по одной под блокировкой и фиксируются на диске сразу; чтение идет без блокировок.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "mvstore")
+public class MVStoreRestaurantStore implements RestaurantStore {
+
+    private static final char SEPARATOR = '\0';
+    private static final String NEXT_ID = "next-id";
+
+    private final MVStore store;
+    private final MVMap<Long, byte[]> restaurants;
+    private final MVMap<String, Long> byCity;
+    private final MVMap<String, Long> byNameCity;
+    private final MVMap<String, Long> byRating;
+    private final MVMap<String, Long> meta;
+
+    private final Object writeLock = new Object();
+    private long nextId;
+
+    /**
+     * Открывает хранилище.
+     *
+     * @param file        Файл хранилища; пустое значение - хранилище только в памяти. Префикс {@code nioMapped:}
+     *                    отображает файл в память вне кучи.
+     * @param cacheSizeMb Размер кэша страниц в куче, МБ.
+     */
+    public MVStoreRestaurantStore(@Value("${restaurant.storage.mvstore.file:}") String file,
+                                  @Value("${restaurant.storage.mvstore.cache-size-mb:16}") int cacheSizeMb) {
+        MVStore.Builder builder = new MVStore.Builder()
+                .cacheSize(cacheSizeMb)
+                .autoCommitDisabled();
+        if (StringUtils.isNotBlank(file)) {
+            builder.fileName(file);
+        }
+        this.store = builder.open();
+        this.restaurants = store.openMap("restaurants");
+        this.byCity = store.openMap("by_city");
+        this.byNameCity = store.openMap("by_name_city");
+        this.byRating = store.openMap("by_rating");
+        this.meta = store.openMap("meta");
+        Long lastId = restaurants.lastKey();
+        this.nextId = Math.max(meta.getOrDefault(NEXT_ID, 1L), lastId == null ? 1 : lastId + 1);
+        log.info("MVStore restaurant storage opened.; file: {}; restaurants: {}",
+                StringUtils.defaultIfBlank(file, "<memory>"), restaurants.sizeAsLong());
+    }
+
+    @PreDestroy
+    public void close() {
+        store.close();
+    }
+
+    @Override
+    public Optional<RestaurantEntity> findById(long id) {
+        return Optional.ofNullable(decode(id, restaurants.get(id)));
+    }
+
+    @Override
+    public Map<Long, RestaurantEntity> findAllById(Collection<Long> ids) {
+        Map<Long, RestaurantEntity> found = new HashMap<>();
+        for (Long id : ids) {
+            RestaurantEntity entity = decode(id, restaurants.get(id));
+            if (entity != null) {
+                found.put(id, entity);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<RestaurantEntity> findAll() {
+        List<RestaurantEntity> result = new ArrayList<>(restaurants.size());
+        Cursor<Long, byte[]> cursor = restaurants.cursor(null);
+        while (cursor.hasNext()) {
+            Long id = cursor.next();
+            result.add(decode(id, cursor.getValue()));
+        }
+        return result;
+    }
+
+    @Override
+    public List<RestaurantEntity> findAllByCityKey(String cityKey) {
+        String prefix = cityKey + SEPARATOR;
+        List<RestaurantEntity> result = new ArrayList<>();
+        Cursor<String, Long> cursor = byCity.cursor(prefix);
+        while (cursor.hasNext() && cursor.next().startsWith(prefix)) {
+            // Строка могла быть удалена между чтением индекса и карты
+            RestaurantEntity entity = decode(cursor.getValue(), restaurants.get(cursor.getValue()));
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<RestaurantEntity> findOrderByAverageRatingDesc(int limit) {
+        int size = limit > 0 ? Math.min(limit, restaurants.size()) : restaurants.size();
+        List<RestaurantEntity> result = new ArrayList<>(size);
+        Cursor<String, Long> cursor = byRating.cursor(null);
+        while (cursor.hasNext() && (limit <= 0 || result.size() < limit)) {
+            cursor.next();
+            RestaurantEntity entity = decode(cursor.getValue(), restaurants.get(cursor.getValue()));
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<RestaurantEntity> findByNameAndCity(String name, String city) {
+        Long id = byNameCity.get(nameCityKey(name, city));
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public RestaurantEntity save(RestaurantEntity entity) {
+        validate(entity);
+        String nameCityKey = nameCityKey(entity.getName(), entity.getCity());
+        synchronized (writeLock) {
+            byte[] previous = entity.getId() == null ? null : restaurants.get(entity.getId());
+            Long owner = byNameCity.get(nameCityKey);
+            if (owner != null && (previous == null || !owner.equals(entity.getId()))) {
+                throw new DataIntegrityViolationException("Restaurant with name '" + entity.getName()
+                        + "' and city '" + entity.getCity() + "' already exists.");
+            }
+            if (previous == null) {
+                // Как и в JPA, неизвестный ID не сохраняется: ресторан получает новый ID
+                entity.setId(nextId++);
+                meta.put(NEXT_ID, nextId);
+            } else {
+                removeIndexes(decode(entity.getId(), previous));
+            }
+            entity.setCityKey(RestaurantEntity.cityKey(entity.getCity()));
+            restaurants.put(entity.getId(), encode(entity));
+            addIndexes(entity, nameCityKey);
+            store.commit();
+        }
+        return entity;
+    }
+
+    @Override
+    public void delete(RestaurantEntity entity) {
+        synchronized (writeLock) {
+            byte[] previous = restaurants.remove(entity.getId());
+            if (previous != null) {
+                removeIndexes(decode(entity.getId(), previous));
+                store.commit();
+            }
+        }
+    }
+
+    @Override
+    public long count() {
+        return restaurants.sizeAsLong();
+    }
+
+    @Override
+    public void forEachRow(Consumer<RestaurantRow> action) {
+        Cursor<Long, byte[]> cursor = restaurants.cursor(null);
+        while (cursor.hasNext()) {
+            Long id = cursor.next();
+            action.accept(new StoredRow(decode(id, cursor.getValue())));
+        }
+    }
+
+    @Override
+    public List<CityCostBucket> findCityCostBuckets() {
+        Map<String, Map<Integer, Bucket>> cities = new TreeMap<>();
+        Cursor<Long, byte[]> cursor = restaurants.cursor(null);
+        while (cursor.hasNext()) {
+            RestaurantEntity entity = decode(cursor.next(), cursor.getValue());
+            cities.computeIfAbsent(entity.getCityKey(), city -> new TreeMap<>())
+                    .computeIfAbsent(entity.getEstimatedCost(), cost -> new Bucket(entity.getCityKey(), cost))
+                    .add(entity);
+        }
+        List<CityCostBucket> result = new ArrayList<>();
+        cities.values().forEach(buckets -> result.addAll(buckets.values()));
+        return result;
+    }
+
+    @Override
+    public List<CityCostBucket> findCityCostBuckets(String cityKey) {
+        Map<Integer, Bucket> buckets = new TreeMap<>();
+        for (RestaurantEntity entity : findAllByCityKey(cityKey)) {
+            buckets.computeIfAbsent(entity.getEstimatedCost(), cost -> new Bucket(cityKey, cost)).add(entity);
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    @Override
+    public List<CityTotals> findCityTotals() {
+        Map<String, Bucket> totals = new TreeMap<>();
+        Cursor<Long, byte[]> cursor = restaurants.cursor(null);
+        while (cursor.hasNext()) {
+            RestaurantEntity entity = decode(cursor.next(), cursor.getValue());
+            totals.computeIfAbsent(entity.getCityKey(), city -> new Bucket(city, null)).add(entity);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(totals.values()));
+    }
+
+    private void addIndexes(RestaurantEntity entity, String nameCityKey) {
+        byCity.put(cityIndexKey(entity.getCityKey(), entity.getId()), entity.getId());
+        byNameCity.put(nameCityKey, entity.getId());
+        byRating.put(ratingIndexKey(entity.getAverageRating(), entity.getId()), entity.getId());
+    }
+
+    private void removeIndexes(RestaurantEntity entity) {
+        byCity.remove(cityIndexKey(entity.getCityKey(), entity.getId()));
+        byNameCity.remove(nameCityKey(entity.getName(), entity.getCity()));
+        byRating.remove(ratingIndexKey(entity.getAverageRating(), entity.getId()));
+    }
+
+    // Обязательные поля, как NOT NULL в таблице restaurants
+    private static void validate(RestaurantEntity entity) {
+        if (entity.getName() == null || entity.getCity() == null || entity.getEstimatedCost() == null
+                || entity.getAverageRating() == null || entity.getVotes() == null) {
+            throw new DataIntegrityViolationException("Restaurant fields name, city, estimatedCost, averageRating "
+                    + "and votes are required.");
+        }
+    }
+
+    private static String cityIndexKey(String cityKey, long id) {
+        return hex(new StringBuilder(cityKey.length() + 17).append(cityKey).append(SEPARATOR), id).toString();
+    }
+
+    private static String nameCityKey(String name, String city) {
+        return RestaurantEntity.cityKey(city) + SEPARATOR + city + SEPARATOR + name;
+    }
+
+    // Больший рейтинг дает меньший ключ; при равном рейтинге порядок по ID
+    private static String ratingIndexKey(Rating rating, long id) {
+        StringBuilder key = new StringBuilder(32);
+        hex(key, (long) Rating.MAX_SCALED - rating.scaled());
+        return hex(key, id).toString();
+    }
+
+    private static StringBuilder hex(StringBuilder target, long value) {
+        String digits = Long.toHexString(value);
+        for (int i = digits.length(); i < 16; i++) {
+            target.append('0');
+        }
+        return target.append(digits);
+    }
+
+    private static byte[] encode(RestaurantEntity entity) {
+        byte[] name = entity.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] city = entity.getCity().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(8 + name.length + city.length + 12)
+                .putInt(name.length).put(name)
+                .putInt(city.length).put(city)
+                .putInt(entity.getEstimatedCost())
+                .putInt(entity.getAverageRating().scaled())
+                .putInt(entity.getVotes())
+                .array();
+    }
+
+    private static RestaurantEntity decode(Long id, byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        String name = readString(buffer);
+        String city = readString(buffer);
+        return RestaurantEntity.builder()
+                .id(id)
+                .name(name)
+                .city(city)
+                .cityKey(RestaurantEntity.cityKey(city))
+                .estimatedCost(buffer.getInt())
+                .averageRating(Rating.ofScaled(buffer.getInt()))
+                .votes(buffer.getInt())
+                .build();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Агрегаты ресторанов города, с одинаковой стоимостью или итоговые.
+     */
+    private static final class Bucket implements CityCostBucket, CityTotals {
+        private final String city;
+        private final Integer cost;
+        private long restaurants;
+        private long votes;
+        private long weightedRating; // В масштабе Rating.SCALE
+
+        Bucket(String city, Integer cost) {
+            this.city = city;
+            this.cost = cost;
+        }
+
+        void add(RestaurantEntity entity) {
+            restaurants++;
+            votes += entity.getVotes();
+            weightedRating += (long) entity.getAverageRating().scaled() * entity.getVotes();
+        }
+
+        @Override
+        public String getCity() {
+            return city;
+        }
+
+        @Override
+        public Integer getCost() {
+            return cost;
+        }
+
+        @Override
+        public Long getRestaurants() {
+            return restaurants;
+        }
+
+        @Override
+        public Long getVotes() {
+            return votes;
+        }
+
+        @Override
+        public BigDecimal getWeightedRating() {
+            return BigDecimal.valueOf(weightedRating, Rating.SCALE);
+        }
+    }
+
+    private record StoredRow(RestaurantEntity entity) implements RestaurantRow {
+        @Override
+        public Long getId() {
+            return entity.getId();
+        }
+
+        @Override
+        public String getName() {
+            return entity.getName();
+        }
+
+        @Override
+        public String getCity() {
+            return entity.getCity();
+        }
+
+        @Override
+        public Integer getEstimatedCost() {
+            return entity.getEstimatedCost();
+        }
+
+        @Override
+        public Integer getAverageRating() {
+            return entity.getAverageRating().scaled();
+        }
+
+        @Override
+        public Integer getVotes() {
+            return entity.getVotes();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import com.tmsproject.restaurantcollection.repository.RestaurantRow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище ресторанов, на котором работает {@link com.tmsproject.restaurantcollection.service.RestaurantService}.
+ * <p>
+ * Реализация выбирается свойством {@code restaurant.storage.type}: {@code jpa} (Postgres, по умолчанию),
+ * {@code mvstore} (встроенное файловое хранилище) или {@code sharded} (несколько баз Postgres по городу).
+ * Все реализации проходят один набор контрактных тестов.
+ * Нарушение уникальности (name, city) и пустые обязательные поля при сохранении -
+ * {@link org.springframework.dao.DataIntegrityViolationException}.
+ */
+public interface RestaurantStore {
+
+    Optional<RestaurantEntity> findById(long id);
+
+    /**
+     * Рестораны по набору ID; отсутствующих ID в результате нет.
+     */
+    Map<Long, RestaurantEntity> findAllById(Collection<Long> ids);
+
+    /**
+     * Рестораны по набору ID для чтения-изменения-записи: строки блокируются до конца транзакции, чтобы
+     * одновременное изменение не было перезаписано. Реализация по умолчанию не блокирует.
+     */
+    default Map<Long, RestaurantEntity> findAllByIdForUpdate(Collection<Long> ids) {
+        return findAllById(ids);
+    }
+
+    List<RestaurantEntity> findAll();
+
+    List<RestaurantEntity> findAllByCityKey(String cityKey);
+
+    /**
+     * Рестораны по убыванию рейтинга.
+     *
+     * @param limit Максимальное число ресторанов; 0 - без ограничения.
+     */
+    List<RestaurantEntity> findOrderByAverageRatingDesc(int limit);
+
+    Optional<RestaurantEntity> findByNameAndCity(String name, String city);
+
+    /**
+     * Сохраняет новый (без ID) или изменяет существующий ресторан.
+     *
+     * @return Сохраненный ресторан с ID.
+     */
+    RestaurantEntity save(RestaurantEntity entity);
+
+    void delete(RestaurantEntity entity);
+
+    long count();
+
+    /**
+     * Передает все рестораны получателю по одному, не загружая их в память целиком.
+     */
+    void forEachRow(Consumer<RestaurantRow> action);
+
+    List<CityCostBucket> findCityCostBuckets();
+
+    List<CityCostBucket> findCityCostBuckets(String cityKey);
+
+    List<CityTotals> findCityTotals();
+
+    // Запросы с проекцией; реализации, умеющие выбирать только нужные поля, переопределяют их
+
+    default Optional<ProjectedRestaurant> findById(long id, RestaurantProjection projection) {
+        return findById(id).map(projection::map);
+    }
+
+    default Map<Long, ProjectedRestaurant> findAllById(Collection<Long> ids, RestaurantProjection projection) {
+        Map<Long, ProjectedRestaurant> found = new HashMap<>();
+        findAllById(ids).forEach((id, entity) -> found.put(id, projection.map(entity)));
+        return found;
+    }
+
+    default List<ProjectedRestaurant> findAll(RestaurantProjection projection) {
+        return findAll().stream().map(projection::map).toList();
+    }
+
+    default List<ProjectedRestaurant> findAllByCityKey(String cityKey, RestaurantProjection projection) {
+        return findAllByCityKey(cityKey).stream().map(projection::map).toList();
+    }
+
+    default List<ProjectedRestaurant> findOrderByAverageRatingDesc(int limit, RestaurantProjection projection) {
+        return findOrderByAverageRatingDesc(limit).stream().map(projection::map).toList();
+    }
+}
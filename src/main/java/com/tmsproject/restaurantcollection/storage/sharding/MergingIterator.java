@@ -0,0 +1,67 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Слияние k упорядоченных потоков в один упорядоченный поток. В памяти только по одному текущему элементу
+ * каждого потока, следующий элемент потока читается, когда выдан предыдущий; выдача {@code n} элементов стоит
+ * {@code O(n log k)}.
+ *
+ * @param <T> Тип элементов.
+ */
+public final class MergingIterator<T> implements Iterator<T> {
+
+    private final PriorityQueue<Head<T>> heads;
+
+    /**
+     * @param sources    Потоки, каждый упорядочен по {@code comparator}.
+     * @param comparator Порядок элементов; при равенстве раньше выдается элемент потока с меньшим индексом.
+     */
+    public MergingIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> comparator) {
+        Comparator<Head<T>> byValue = (left, right) -> comparator.compare(left.value, right.value);
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                byValue.thenComparingInt(head -> head.source));
+        for (int i = 0; i < sources.size(); i++) {
+            Iterator<? extends T> source = sources.get(i);
+            if (source.hasNext()) {
+                heads.add(new Head<>(i, source, source.next()));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        T value = head.value;
+        if (head.iterator.hasNext()) {
+            // Голова переиспользуется: на каждый элемент не создается новый объект
+            head.value = head.iterator.next();
+            heads.add(head);
+        }
+        return value;
+    }
+
+    private static final class Head<T> {
+        private final int source;
+        private final Iterator<? extends T> iterator;
+        private T value;
+
+        Head(int source, Iterator<? extends T> iterator, T value) {
+            this.source = source;
+            this.iterator = iterator;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import com.tmsproject.restaurantcollection.deadline.DeadlineDataSource;
+import com.tmsproject.restaurantcollection.sync.SyncConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Одна база Postgres шарда: пул соединений и шаблоны запросов к ней.
+ */
+@Slf4j
+@Getter
+public final class Shard implements AutoCloseable {
+
+    private final int index;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public Shard(int index, DataSource dataSource) {
+        if (index < 0 || index > ShardIds.MAX_SHARD) {
+            throw new IllegalArgumentException("Shard index should be from 0 to " + ShardIds.MAX_SHARD + ": " + index);
+        }
+        this.index = index;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Открывает пул соединений шарда.
+     */
+    public static Shard open(int index, String url, String username, String password, String driverClassName,
+                             int poolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("restaurant-shard-" + index);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setDriverClassName(driverClassName);
+        dataSource.setMaximumPoolSize(poolSize);
+        // Как у пула без шардирования: по application_name экземпляр пропускает собственные уведомления
+        dataSource.addDataSourceProperty("ApplicationName", SyncConfig.INSTANCE_ID);
+        // Пулы шардов не бины Spring, срок запроса переносится в них явно
+        return new Shard(index, new DeadlineDataSource(dataSource));
+    }
+
+    /**
+     * Применяет к шарду тот же changelog, что и к базе без шардирования.
+     */
+    public void migrate(String changeLog, Map<String, String> parameters, ResourceLoader resourceLoader) {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(changeLog);
+        liquibase.setChangeLogParameters(parameters);
+        liquibase.setResourceLoader(resourceLoader);
+        try {
+            liquibase.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("Shard " + index + " migration failed.", e);
+        }
+    }
+
+    /**
+     * Ограничивает последовательность ID диапазоном шарда ({@link ShardIds}). Идемпотентно; последовательность,
+     * уже ушедшая за диапазон, означает, что номер шарда в настройках перепутан.
+     */
+    public void reserveIdRange() {
+        long first = ShardIds.first(index);
+        long last = ShardIds.last(index);
+        long current = jdbcTemplate.queryForObject("select last_value from res_id_seq", Long.class);
+        if (current > last) {
+            throw new IllegalStateException("Sequence res_id_seq of shard " + index + " is at " + current
+                    + ", past the shard id range " + first + ".." + last + "; check the shard numbers.");
+        }
+        String restart = current < first ? " restart with " + first : "";
+        jdbcTemplate.execute("alter sequence res_id_seq minvalue " + first + " maxvalue " + last + " start with " + first
+                + restart);
+        log.info("Shard id range reserved.; shard: {}; first: {}; last: {}", index, first, last);
+    }
+
+    @Override
+    public void close() {
+        DataSource pool = dataSource instanceof DelegatingDataSource delegating
+                ? delegating.getTargetDataSource()
+                : dataSource;
+        if (pool instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Shard pool close failed.; shard: {}; reason: {}", index, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Агрегаты города, посчитанные шардом; {@code cost} - {@code null} для итоговых агрегатов.
+ */
+@Value
+class ShardCityBucket implements CityCostBucket, CityTotals {
+    String city;
+    Integer cost;
+    Long restaurants;
+    Long votes;
+    BigDecimal weightedRating;
+}
@@ -0,0 +1,111 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Курсор Postgres на одном шарде: строки читаются порциями по {@code fetchSize}, а не загружаются все сразу.
+ * Курсор держит соединение пула и транзакцию до {@link #close()}.
+ *
+ * @param <T> Тип строки.
+ */
+final class ShardCursor<T> implements Iterator<T>, AutoCloseable {
+
+    private final Shard shard;
+    private final String sql;
+    private final RowMapper<T> mapper;
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+
+    private boolean fetched;
+    private boolean hasRow;
+    private int row;
+
+    private ShardCursor(Shard shard, String sql, RowMapper<T> mapper, Connection connection,
+                        PreparedStatement statement, ResultSet resultSet) {
+        this.shard = shard;
+        this.sql = sql;
+        this.mapper = mapper;
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+    }
+
+    /**
+     * Выполняет запрос и открывает курсор; курсор Postgres работает только вне автофиксации.
+     */
+    static <T> ShardCursor<T> open(Shard shard, String sql, RowMapper<T> mapper, int fetchSize, Object... args) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = shard.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return new ShardCursor<>(shard, sql, mapper, connection, statement, statement.executeQuery());
+        } catch (SQLException e) {
+            JdbcUtils.closeStatement(statement);
+            release(connection);
+            throw shard.getJdbcTemplate().getExceptionTranslator().translate("Shard " + shard.getIndex(), sql, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            try {
+                hasRow = resultSet.next();
+            } catch (SQLException e) {
+                throw shard.getJdbcTemplate().getExceptionTranslator().translate("Shard " + shard.getIndex(), sql, e);
+            }
+            fetched = true;
+        }
+        return hasRow;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return mapper.mapRow(resultSet, row++);
+        } catch (SQLException e) {
+            throw shard.getJdbcTemplate().getExceptionTranslator().translate("Shard " + shard.getIndex(), sql, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        JdbcUtils.closeResultSet(resultSet);
+        JdbcUtils.closeStatement(statement);
+        release(connection);
+    }
+
+    private static void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+            connection.setReadOnly(false);
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            // Соединение все равно возвращается в пул; Hikari сбросит или закроет его
+        }
+        JdbcUtils.closeConnection(connection);
+    }
+}
@@ -0,0 +1,35 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+/**
+ * Диапазоны ID шардов. Шард {@code n} раздает ID из {@code [n * 2^40 + 1, (n + 1) * 2^40)}, поэтому ID
+ * уникальны во всех шардах без общей последовательности. Ресторан сохраняет ID при переносе на другой шард,
+ * и по ID всегда видно, на каком шарде он был создан. Существующая база без шардирования становится шардом 0:
+ * ее ID уже лежат в диапазоне шарда 0.
+ */
+public final class ShardIds {
+
+    static final int SHARD_BITS = 40;
+
+    /**
+     * Наибольший номер шарда, при котором ID остаются положительными.
+     */
+    public static final int MAX_SHARD = (1 << (63 - SHARD_BITS)) - 1;
+
+    private ShardIds() {
+    }
+
+    public static long first(int shard) {
+        return ((long) shard << SHARD_BITS) + 1;
+    }
+
+    public static long last(int shard) {
+        return ((long) (shard + 1) << SHARD_BITS) - 1;
+    }
+
+    /**
+     * Номер шарда, на котором был создан ресторан с этим ID.
+     */
+    public static int originOf(long id) {
+        return (int) (id >>> SHARD_BITS);
+    }
+}
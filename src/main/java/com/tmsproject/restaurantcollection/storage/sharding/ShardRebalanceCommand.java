@@ -0,0 +1,47 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Запуск перебалансировки из командной строки: {@code --restaurant.storage.sharding.rebalance=true}.
+ * Код выхода 1 означает, что часть городов не перенесена.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = ShardRebalanceCommand.REBALANCE_PROPERTY, havingValue = "true")
+public class ShardRebalanceCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String REBALANCE_PROPERTY = "restaurant.storage.sharding.rebalance";
+
+    private final ShardRebalancer rebalancer;
+
+    private int exitCode;
+
+    public ShardRebalanceCommand(ShardRebalancer rebalancer) {
+        this.rebalancer = rebalancer;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            ShardRebalancer.RebalanceReport report = rebalancer.rebalance();
+            if (!report.conflicts().isEmpty()) {
+                exitCode = 1;
+                log.warn("Rebalance left cities in place.; cities: {}", report.conflicts());
+            }
+        } catch (Exception e) {
+            exitCode = 1;
+            log.error("Rebalance failed; moved batches stay moved, rerun to continue.", e);
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
@@ -0,0 +1,158 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Переносит города на шарды, которым они принадлежат по текущему набору шардов. Запускается после добавления
+ * шарда с новым списком шардов; повторный запуск безопасен и переносит только то, что осталось.
+ * <p>
+ * Город переносится пачками по ID. Пачка блокируется на исходном шарде ({@code for update}), копируется на
+ * целевой шард в отдельной транзакции, после ее фиксации удаляется с исходного шарда, и только затем
+ * фиксируется транзакция исходного шарда. Обновление, ждавшее блокировку строки, не находит ее на исходном
+ * шарде и повторяется на целевом ({@link ShardedRestaurantStore#save}). Если на целевом шарде уже есть другой
+ * ресторан с тем же (name, city), перенос города останавливается, а конфликт попадает в отчет.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "sharded")
+public class ShardRebalancer {
+
+    private static final String SELECT_BATCH = "select " + ShardedRestaurantStore.COLUMNS + " from restaurants "
+            + "where city_key = ? and id > ? order by id limit ? for update";
+    private static final String COPY = "insert into restaurants "
+            + "(id, name, city, city_key, estimated_cost, average_rating, votes) "
+            + "select * from unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[], ?::int[], ?::numeric[], "
+            + "?::int[]) "
+            + "on conflict (city_key, id) do update set name = excluded.name, estimated_cost = excluded.estimated_cost, "
+            + "average_rating = excluded.average_rating, votes = excluded.votes";
+    private static final String DELETE_BATCH = "delete from restaurants where city_key = ? and id = any(?)";
+
+    private final Shards shards;
+    private final ShardedRestaurantStore store;
+    private final int batchSize;
+
+    public ShardRebalancer(Shards shards,
+                           ShardedRestaurantStore store,
+                           @Value("${restaurant.storage.sharding.rebalance-batch-size:1000}") int batchSize) {
+        this.shards = shards;
+        this.store = store;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Переносит все города, лежащие не на своем шарде.
+     *
+     * @return Отчет о перенесенных городах, строках и конфликтах.
+     */
+    public RebalanceReport rebalance() {
+        long start = System.nanoTime();
+        int cities = 0;
+        long rows = 0;
+        List<String> conflicts = new ArrayList<>();
+        for (Shard source : shards.all()) {
+            List<String> cityKeys = source.getJdbcTemplate()
+                    .queryForList("select distinct city_key from restaurants order by city_key", String.class);
+            for (String cityKey : cityKeys) {
+                Shard target = shards.forCity(cityKey);
+                if (target == source) {
+                    continue;
+                }
+                try {
+                    long moved = moveCity(source, target, cityKey);
+                    cities++;
+                    rows += moved;
+                    log.info("City moved.; city: {}; from shard: {}; to shard: {}; rows: {}", cityKey,
+                            source.getIndex(), target.getIndex(), moved);
+                } catch (DataIntegrityViolationException e) {
+                    conflicts.add(cityKey);
+                    log.error("City not moved, conflicting restaurant on target shard.; city: {}; from shard: {}; "
+                            + "to shard: {}; reason: {}", cityKey, source.getIndex(), target.getIndex(), e.getMessage());
+                }
+            }
+        }
+        RebalanceReport report = new RebalanceReport(cities, rows, conflicts);
+        log.info("Rebalance finished.; cities: {}; rows: {}; conflicts: {}; took: {} ms", cities, rows,
+                conflicts.size(), (System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private long moveCity(Shard source, Shard target, String cityKey) {
+        long moved = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            List<RestaurantEntity> batch = source.getTransactionTemplate().execute(status -> {
+                List<RestaurantEntity> locked = source.getJdbcTemplate().query(SELECT_BATCH,
+                        ShardedRestaurantStore.ENTITY_MAPPER, cityKey, afterId, batchSize);
+                if (!locked.isEmpty()) {
+                    copy(target, cityKey, locked);
+                    Long[] ids = locked.stream().map(RestaurantEntity::getId).toArray(Long[]::new);
+                    source.getJdbcTemplate().update(DELETE_BATCH, statement -> {
+                        statement.setString(1, cityKey);
+                        statement.setArray(2, statement.getConnection().createArrayOf("bigint", ids));
+                    });
+                }
+                return locked;
+            });
+            if (batch == null || batch.isEmpty()) {
+                return moved;
+            }
+            moved += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    private void copy(Shard target, String cityKey, List<RestaurantEntity> rows) {
+        int size = rows.size();
+        Long[] ids = new Long[size];
+        String[] names = new String[size];
+        String[] cities = new String[size];
+        String[] cityKeys = new String[size];
+        Integer[] costs = new Integer[size];
+        BigDecimal[] ratings = new BigDecimal[size];
+        Integer[] votes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            RestaurantEntity row = rows.get(i);
+            ids[i] = row.getId();
+            names[i] = row.getName();
+            cities[i] = row.getCity();
+            cityKeys[i] = row.getCityKey();
+            costs[i] = row.getEstimatedCost();
+            ratings[i] = row.getAverageRating() == null ? null : row.getAverageRating().toBigDecimal();
+            votes[i] = row.getVotes();
+        }
+        store.ensurePartition(target, cityKey);
+        target.getTransactionTemplate().executeWithoutResult(status -> {
+            target.getJdbcTemplate().update(COPY, statement -> {
+                Connection connection = statement.getConnection();
+                statement.setArray(1, connection.createArrayOf("bigint", ids));
+                statement.setArray(2, connection.createArrayOf("varchar", names));
+                statement.setArray(3, connection.createArrayOf("varchar", cities));
+                statement.setArray(4, connection.createArrayOf("varchar", cityKeys));
+                statement.setArray(5, connection.createArrayOf("int4", costs));
+                statement.setArray(6, connection.createArrayOf("numeric", ratings));
+                statement.setArray(7, connection.createArrayOf("int4", votes));
+            });
+        });
+    }
+
+    /**
+     * Итог перебалансировки.
+     *
+     * @param cities    Перенесенные города.
+     * @param rows      Перенесенные строки.
+     * @param conflicts Города, перенос которых остановлен из-за конфликта (name, city) на целевом шарде.
+     */
+    public record RebalanceReport(int cities, long rows, List<String> conflicts) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Кольцо консистентного хеширования ключей городов по шардам.
+ * <p>
+ * Каждый шард занимает на кольце {@code virtualNodes} точек; город принадлежит шарду первой точки по часовой
+ * стрелке от хеша ключа. При добавлении шарда переезжают только города, попавшие на его точки (в среднем
+ * {@code 1/N} городов), остальные остаются на месте. Положение точек зависит только от номера шарда, поэтому
+ * одинаковый набор шардов дает одинаковое кольцо на всех экземплярах.
+ */
+public final class ShardRing {
+
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param shards       Номера шардов.
+     * @param virtualNodes Число точек на шард; больше точек - равномернее распределение.
+     */
+    public ShardRing(Collection<Integer> shards, int virtualNodes) {
+        if (shards.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("At least one shard and one virtual node are required.");
+        }
+        int size = shards.size() * virtualNodes;
+        long[][] nodes = new long[size][];
+        int i = 0;
+        for (int shard : shards) {
+            for (int node = 0; node < virtualNodes; node++) {
+                nodes[i++] = new long[]{hash("shard-" + shard + "#" + node), shard};
+            }
+        }
+        // При совпадении хешей точек порядок определяется номером шарда, чтобы кольцо не зависело от порядка списка
+        Arrays.sort(nodes, (left, right) -> left[0] != right[0]
+                ? Long.compare(left[0], right[0])
+                : Long.compare(left[1], right[1]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (i = 0; i < size; i++) {
+            points[i] = nodes[i][0];
+            owners[i] = (int) nodes[i][1];
+        }
+    }
+
+    /**
+     * Номер шарда города.
+     *
+     * @param cityKey Нормализованный ключ города.
+     */
+    public int shardFor(String cityKey) {
+        int index = Arrays.binarySearch(points, hash(cityKey));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * 64-битный FNV-1a по UTF-8 с финальным перемешиванием MurmurHash3: стабилен между версиями JVM,
+     * в отличие от {@link String#hashCode()} не группирует похожие строки.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
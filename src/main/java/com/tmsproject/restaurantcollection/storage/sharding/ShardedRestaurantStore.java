@@ -0,0 +1,344 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import com.tmsproject.restaurantcollection.repository.RestaurantRow;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище ресторанов, разнесенных по нескольким базам Postgres по городу.
+ * <p>
+ * Город живет на одном шарде ({@link Shards#forCity}), поэтому запросы города, уникальность (name, city)
+ * и статистика города обслуживаются одним шардом. Запросы всех ресторанов рассылаются на все шарды
+ * параллельно, каждый шард отдает строки курсором в нужном порядке, а {@link MergingIterator} сливает их
+ * без загрузки результатов шардов целиком; при {@code limit} с каждого шарда читается не больше {@code limit} строк.
+ * <p>
+ * Ресторан по ID ищется сначала на шарде, где он был создан ({@link ShardIds}), затем на остальных: после
+ * перебалансировки он мог переехать. Пока {@link ShardRebalancer} переносит город, строка недолго существует
+ * на двух шардах; слияние пропускает повтор, а подсчеты могут учесть ее дважды.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "sharded")
+public class ShardedRestaurantStore implements RestaurantStore {
+
+    static final String COLUMNS = "id, name, city, city_key, estimated_cost, average_rating, votes";
+    private static final String SELECT = "select " + COLUMNS + " from restaurants";
+    private static final String SELECT_BY_ID = SELECT + " where id = ?";
+    private static final String SELECT_BY_IDS = SELECT + " where id = any(?)";
+    private static final String SELECT_BY_CITY_KEY = SELECT + " where city_key = ?";
+    private static final String SELECT_BY_NAME_CITY = SELECT + " where city_key = ? and name = ? and city = ?";
+    private static final String SELECT_ORDER_BY_ID = SELECT + " order by id";
+    // Порядок по ID при равном рейтинге совпадает с COMPARATOR_BY_RATING и делает слияние детерминированным
+    private static final String SELECT_ORDER_BY_RATING = SELECT + " order by average_rating desc nulls last, id";
+    private static final String SELECT_TOP_BY_RATING = SELECT_ORDER_BY_RATING + " limit ?";
+
+    private static final String INSERT = "insert into restaurants "
+            + "(name, city, city_key, estimated_cost, average_rating, votes) values (?, ?, ?, ?, ?, ?) returning id";
+    private static final String UPDATE = "update restaurants set name = ?, estimated_cost = ?, average_rating = ?, "
+            + "votes = ? where city_key = ? and id = ?";
+    private static final String DELETE = "delete from restaurants where city_key = ? and id = ?";
+
+    private static final String CITY_COST_BUCKETS = "select city_key, estimated_cost, count(*), "
+            + "coalesce(sum(votes), 0), coalesce(sum(average_rating * votes), 0) from restaurants";
+    private static final String CITY_COST_BUCKETS_GROUP = " group by city_key, estimated_cost";
+    private static final String CITY_TOTALS = "select city_key, null, count(*), coalesce(sum(votes), 0), "
+            + "coalesce(sum(average_rating * votes), 0) from restaurants group by city_key";
+
+    static final RowMapper<RestaurantEntity> ENTITY_MAPPER = (resultSet, row) -> {
+        BigDecimal rating = resultSet.getBigDecimal(6);
+        return RestaurantEntity.builder()
+                .id(resultSet.getLong(1))
+                .name(resultSet.getString(2))
+                .city(resultSet.getString(3))
+                .cityKey(resultSet.getString(4))
+                .estimatedCost((Integer) resultSet.getObject(5))
+                .averageRating(rating == null ? null : Rating.valueOf(rating))
+                .votes((Integer) resultSet.getObject(7))
+                .build();
+    };
+
+    private static final RowMapper<ShardCityBucket> BUCKET_MAPPER = (resultSet, row) -> new ShardCityBucket(
+            resultSet.getString(1), (Integer) resultSet.getObject(2), resultSet.getLong(3), resultSet.getLong(4),
+            resultSet.getBigDecimal(5));
+
+    private static final Comparator<RestaurantEntity> BY_ID = Comparator.comparing(RestaurantEntity::getId);
+    private static final Comparator<RestaurantEntity> BY_RATING =
+            Comparator.comparing(RestaurantEntity::getAverageRating, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(BY_ID);
+
+    private final Shards shards;
+    private final int fetchSize;
+
+    // Секции городов, которые точно существуют: "номер шарда:ключ города"
+    private final Set<String> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    public ShardedRestaurantStore(Shards shards,
+                                  @Value("${restaurant.storage.sharding.fetch-size:1000}") int fetchSize) {
+        this.shards = shards;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Optional<RestaurantEntity> findById(long id) {
+        Optional<Shard> origin = shards.origin(id);
+        if (origin.isPresent()) {
+            Optional<RestaurantEntity> found = findById(origin.get(), id);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        // Ресторан переехал при перебалансировке
+        return shards.scatter(others(origin.orElse(null)), shard -> findById(shard, id).orElse(null)).stream()
+                .filter(entity -> entity != null)
+                .findFirst();
+    }
+
+    @Override
+    public Map<Long, RestaurantEntity> findAllById(Collection<Long> ids) {
+        Map<Shard, List<Long>> byOrigin = new LinkedHashMap<>();
+        List<Long> orphans = new ArrayList<>();
+        for (Long id : ids) {
+            shards.origin(id).ifPresentOrElse(shard -> byOrigin.computeIfAbsent(shard, key -> new ArrayList<>()).add(id),
+                    () -> orphans.add(id));
+        }
+        Map<Long, RestaurantEntity> found = new HashMap<>();
+        List<Shard> targets = new ArrayList<>(byOrigin.keySet());
+        shards.scatter(targets, shard -> findAllById(shard, byOrigin.get(shard)))
+                .forEach(entities -> entities.forEach(entity -> found.put(entity.getId(), entity)));
+        List<Long> missing = new ArrayList<>(orphans);
+        byOrigin.values().forEach(list -> list.stream().filter(id -> !found.containsKey(id)).forEach(missing::add));
+        if (!missing.isEmpty()) {
+            shards.scatter(shard -> findAllById(shard, missing))
+                    .forEach(entities -> entities.forEach(entity -> found.putIfAbsent(entity.getId(), entity)));
+        }
+        return found;
+    }
+
+    @Override
+    public List<RestaurantEntity> findAll() {
+        List<RestaurantEntity> result = new ArrayList<>();
+        merge(SELECT_ORDER_BY_ID, BY_ID, 0, result::add);
+        return result;
+    }
+
+    @Override
+    public List<RestaurantEntity> findAllByCityKey(String cityKey) {
+        return shards.forCity(cityKey).getJdbcTemplate().query(SELECT_BY_CITY_KEY, ENTITY_MAPPER, cityKey);
+    }
+
+    @Override
+    public List<RestaurantEntity> findOrderByAverageRatingDesc(int limit) {
+        List<RestaurantEntity> result = new ArrayList<>();
+        if (limit > 0) {
+            merge(SELECT_TOP_BY_RATING, BY_RATING, limit, result::add, limit);
+        } else {
+            merge(SELECT_ORDER_BY_RATING, BY_RATING, 0, result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<RestaurantEntity> findByNameAndCity(String name, String city) {
+        String cityKey = RestaurantEntity.cityKey(city);
+        return shards.forCity(cityKey).getJdbcTemplate()
+                .query(SELECT_BY_NAME_CITY, ENTITY_MAPPER, cityKey, name, city).stream()
+                .findFirst();
+    }
+
+    @Override
+    public RestaurantEntity save(RestaurantEntity entity) {
+        String cityKey = RestaurantEntity.cityKey(entity.getCity());
+        entity.setCityKey(cityKey);
+        Shard target = shards.forCity(cityKey);
+        if (entity.getId() != null && update(entity, target)) {
+            return entity;
+        }
+        // Как и в JPA, неизвестный ID не сохраняется: ресторан получает новый ID из диапазона шарда
+        ensurePartition(target, cityKey);
+        Long id = target.getJdbcTemplate().queryForObject(INSERT, Long.class, entity.getName(), entity.getCity(),
+                cityKey, entity.getEstimatedCost(), toBigDecimal(entity.getAverageRating()), entity.getVotes());
+        entity.setId(id);
+        return entity;
+    }
+
+    // Строка обычно на шарде города; во время перебалансировки - еще на прежнем шарде. Повторная попытка на шарде
+    // города ловит строку, которую перебалансировка перенесла, пока обновление ждало ее блокировку
+    private boolean update(RestaurantEntity entity, Shard target) {
+        List<Shard> attempts = new ArrayList<>(others(target));
+        attempts.add(0, target);
+        attempts.add(target);
+        for (Shard shard : attempts) {
+            int updated = shard.getJdbcTemplate().update(UPDATE, entity.getName(), entity.getEstimatedCost(),
+                    toBigDecimal(entity.getAverageRating()), entity.getVotes(), entity.getCityKey(), entity.getId());
+            if (updated > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void delete(RestaurantEntity entity) {
+        String cityKey = RestaurantEntity.cityKey(entity.getCity());
+        Shard target = shards.forCity(cityKey);
+        if (target.getJdbcTemplate().update(DELETE, cityKey, entity.getId()) > 0) {
+            return;
+        }
+        for (Shard shard : others(target)) {
+            if (shard.getJdbcTemplate().update(DELETE, cityKey, entity.getId()) > 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long count() {
+        return shards.scatter(shard -> shard.getJdbcTemplate().queryForObject("select count(*) from restaurants",
+                Long.class)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public void forEachRow(Consumer<RestaurantRow> action) {
+        merge(SELECT_ORDER_BY_ID, BY_ID, 0, entity -> action.accept(new EntityRow(entity)));
+    }
+
+    @Override
+    public List<CityCostBucket> findCityCostBuckets() {
+        List<CityCostBucket> result = new ArrayList<>();
+        shards.scatter(shard -> shard.getJdbcTemplate().query(CITY_COST_BUCKETS + CITY_COST_BUCKETS_GROUP,
+                BUCKET_MAPPER)).forEach(result::addAll);
+        return result;
+    }
+
+    @Override
+    public List<CityCostBucket> findCityCostBuckets(String cityKey) {
+        return new ArrayList<>(shards.forCity(cityKey).getJdbcTemplate()
+                .query(CITY_COST_BUCKETS + " where city_key = ?" + CITY_COST_BUCKETS_GROUP, BUCKET_MAPPER, cityKey));
+    }
+
+    @Override
+    public List<CityTotals> findCityTotals() {
+        List<CityTotals> result = new ArrayList<>();
+        shards.scatter(shard -> shard.getJdbcTemplate().query(CITY_TOTALS, BUCKET_MAPPER)).forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Открывает курсоры на всех шардах параллельно и сливает строки в порядке {@code order}, пропуская повторы ID.
+     *
+     * @param limit Сколько строк передать получателю; 0 - все.
+     */
+    private void merge(String sql, Comparator<RestaurantEntity> order, int limit, Consumer<RestaurantEntity> action,
+                       Object... args) {
+        List<ShardCursor<RestaurantEntity>> cursors = shards.scatter(shards.all(),
+                shard -> ShardCursor.open(shard, sql, ENTITY_MAPPER, fetchSize, args), ShardCursor::close);
+        try {
+            MergingIterator<RestaurantEntity> merged = new MergingIterator<>(cursors, order);
+            long previousId = 0;
+            int emitted = 0;
+            while (merged.hasNext() && (limit <= 0 || emitted < limit)) {
+                RestaurantEntity entity = merged.next();
+                // Копии строки на двух шардах соседствуют в обоих порядках: ID входит в ключ сортировки
+                if (entity.getId() == previousId) {
+                    continue;
+                }
+                previousId = entity.getId();
+                action.accept(entity);
+                emitted++;
+            }
+        } finally {
+            cursors.forEach(ShardCursor::close);
+        }
+    }
+
+    private Optional<RestaurantEntity> findById(Shard shard, long id) {
+        return shard.getJdbcTemplate().query(SELECT_BY_ID, ENTITY_MAPPER, id).stream().findFirst();
+    }
+
+    private static List<RestaurantEntity> findAllById(Shard shard, List<Long> ids) {
+        List<RestaurantEntity> found = new ArrayList<>();
+        shard.getJdbcTemplate().query(SELECT_BY_IDS, statement -> {
+            Array array = statement.getConnection().createArrayOf("bigint", ids.toArray());
+            statement.setArray(1, array);
+        }, (RowCallbackHandler) resultSet -> found.add(ENTITY_MAPPER.mapRow(resultSet, found.size())));
+        return found;
+    }
+
+    private List<Shard> others(Shard excluded) {
+        return shards.all().stream().filter(shard -> shard != excluded).toList();
+    }
+
+    /**
+     * Создает секцию города на шарде, если она еще не известна. Вызывается до транзакции вставки: функция выполняется
+     * в автокоммите, и блокировки присоединения секции не держатся до конца вставки.
+     */
+    void ensurePartition(Shard shard, String cityKey) {
+        String key = shard.getIndex() + ":" + cityKey;
+        if (knownPartitions.contains(key)) {
+            return;
+        }
+        String partition = shard.getJdbcTemplate().queryForObject("select ensure_restaurants_partition(?)",
+                String.class, cityKey);
+        knownPartitions.add(key);
+        log.debug("Partition ensured.; shard: {}; city: {}; partition: {}", shard.getIndex(), cityKey, partition);
+    }
+
+    private static BigDecimal toBigDecimal(Rating rating) {
+        return rating == null ? null : rating.toBigDecimal();
+    }
+
+    private record EntityRow(RestaurantEntity entity) implements RestaurantRow {
+        @Override
+        public Long getId() {
+            return entity.getId();
+        }
+
+        @Override
+        public String getName() {
+            return entity.getName();
+        }
+
+        @Override
+        public String getCity() {
+            return entity.getCity();
+        }
+
+        @Override
+        public Integer getEstimatedCost() {
+            return entity.getEstimatedCost();
+        }
+
+        @Override
+        public Integer getAverageRating() {
+            return entity.getAverageRating() == null ? null : entity.getAverageRating().scaled();
+        }
+
+        @Override
+        public Integer getVotes() {
+            return entity.getVotes();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Шарды хранилища {@code sharded}: пул соединений на каждую базу, миграции и диапазоны ID шардов.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "restaurant.storage.type", havingValue = "sharded")
+public class ShardingConfig {
+
+    /**
+     * Открывает шарды из {@code restaurant.storage.sharding.shards} ({@code номер=jdbc-url} через запятую).
+     * Номер шарда задает его диапазон ID и точки на кольце, поэтому шард нельзя перенумеровать.
+     */
+    @Bean(destroyMethod = "close")
+    public Shards shards(@Value("${restaurant.storage.sharding.shards}") String shards,
+                         @Value("${restaurant.storage.sharding.username:${spring.datasource.username:}}") String username,
+                         @Value("${restaurant.storage.sharding.password:${spring.datasource.password:}}") String password,
+                         @Value("${restaurant.storage.sharding.driver-class-name:org.postgresql.Driver}") String driver,
+                         @Value("${restaurant.storage.sharding.pool-size:10}") int poolSize,
+                         @Value("${restaurant.storage.sharding.virtual-nodes:256}") int virtualNodes,
+                         @Value("${spring.liquibase.enabled:true}") boolean migrationsEnabled,
+                         @Value("${spring.liquibase.change-log}") String changeLog,
+                         @Value("${restaurant.id.block-size:50}") String idBlockSize,
+                         ResourceLoader resourceLoader) {
+        List<Shard> opened = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, String> entry : parseShards(shards).entrySet()) {
+                Shard shard = Shard.open(entry.getKey(), entry.getValue(), username, password, driver, poolSize);
+                opened.add(shard);
+                if (migrationsEnabled) {
+                    shard.migrate(changeLog, Map.of("restaurant.id.block-size", idBlockSize), resourceLoader);
+                }
+                shard.reserveIdRange();
+            }
+            log.info("Restaurant shards opened.; shards: {}", opened.size());
+            return new Shards(opened, virtualNodes);
+        } catch (RuntimeException e) {
+            opened.forEach(Shard::close);
+            throw e;
+        }
+    }
+
+    /**
+     * Разбирает список шардов {@code 0=jdbc:postgresql://a/restaurant,1=jdbc:postgresql://b/restaurant}.
+     *
+     * @return URL шардов по номеру в порядке списка.
+     */
+    static Map<Integer, String> parseShards(String value) {
+        Map<Integer, String> shards = new LinkedHashMap<>();
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("Shard should be set as <number>=<jdbc url>: " + trimmed);
+            }
+            int index;
+            try {
+                index = Integer.parseInt(trimmed.substring(0, separator).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Shard number is not a number: " + trimmed);
+            }
+            if (shards.put(index, trimmed.substring(separator + 1).trim()) != null) {
+                throw new IllegalStateException("Duplicate shard number: " + index);
+            }
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Property restaurant.storage.sharding.shards lists no shards.");
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,131 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import com.tmsproject.restaurantcollection.deadline.RequestDeadline;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Набор шардов с маршрутизацией: город - на шард по {@link ShardRing}, ID - на шард, где ресторан был создан.
+ * Запросы ко всем шардам выполняются параллельно на собственном пуле потоков.
+ */
+public final class Shards implements AutoCloseable {
+
+    private final Map<Integer, Shard> byIndex = new TreeMap<>();
+    private final List<Shard> all;
+    private final ShardRing ring;
+    private final ExecutorService executor;
+
+    /**
+     * @param shards       Шарды с уникальными номерами.
+     * @param virtualNodes Число точек шарда на кольце.
+     */
+    public Shards(List<Shard> shards, int virtualNodes) {
+        for (Shard shard : shards) {
+            if (byIndex.put(shard.getIndex(), shard) != null) {
+                throw new IllegalArgumentException("Duplicate shard index: " + shard.getIndex());
+            }
+        }
+        this.all = shards.stream().sorted(Comparator.comparingInt(Shard::getIndex)).toList();
+        this.ring = new ShardRing(byIndex.keySet(), virtualNodes);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(2, shards.size() * 2), task -> {
+            Thread thread = new Thread(task, "restaurant-shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Все шарды по возрастанию номера.
+     */
+    public List<Shard> all() {
+        return all;
+    }
+
+    /**
+     * Шард, которому принадлежит город.
+     *
+     * @param cityKey Нормализованный ключ города.
+     */
+    public Shard forCity(String cityKey) {
+        return byIndex.get(ring.shardFor(cityKey));
+    }
+
+    /**
+     * Шард, на котором ресторан был создан; пусто, если шарда с таким номером больше нет.
+     * После перебалансировки ресторан может лежать на другом шарде.
+     */
+    public Optional<Shard> origin(long id) {
+        return Optional.ofNullable(byIndex.get(ShardIds.originOf(id)));
+    }
+
+    /**
+     * Выполняет действие на всех шардах параллельно.
+     *
+     * @return Результаты в порядке {@link #all()}.
+     */
+    public <T> List<T> scatter(Function<Shard, T> action) {
+        return scatter(all, action);
+    }
+
+    /**
+     * Выполняет действие на указанных шардах параллельно; на одном шарде - в вызывающем потоке.
+     *
+     * @return Результаты в порядке шардов.
+     */
+    public <T> List<T> scatter(List<Shard> shards, Function<Shard, T> action) {
+        return scatter(shards, action, result -> {
+        });
+    }
+
+    /**
+     * Выполняет действие на указанных шардах параллельно. Если на одном из шардов действие упало, результаты
+     * остальных освобождаются через {@code release}, а ошибка пробрасывается вызывающему.
+     *
+     * @return Результаты в порядке шардов.
+     */
+    public <T> List<T> scatter(List<Shard> shards, Function<Shard, T> action, Consumer<T> release) {
+        if (shards.size() == 1) {
+            return List.of(action.apply(shards.get(0)));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(RequestDeadline.propagate(() -> action.apply(shard)), executor));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        RuntimeException failure = null;
+        // Дожидается всех шардов, даже если один упал, чтобы освободить то, что открыли остальные
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            results.forEach(release);
+            throw failure;
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        all.forEach(Shard::close);
+    }
+}
@@ -0,0 +1,292 @@
+package com.tmsproject.restaurantcollection.sync;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import com.tmsproject.restaurantcollection.storage.sharding.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слушает уведомления {@code restaurants_changes}, которые триггер на restaurants отправляет после фиксации
+ * транзакций, и публикует изменения других экземпляров как {@link RestaurantsInvalidatedEvent}.
+ * <p>
+ * Каждое уведомление несет номер версии из {@code restaurants_version_seq}. После переподключения экземпляр
+ * сравнивает текущую версию с последней полученной и, если они расходятся, публикует {@link RestaurantsResyncEvent}.
+ * Слушатель постоянно занимает одно соединение из пула.
+ * <p>
+ * В хранилище {@code sharded} у каждого шарда свой триггер и своя последовательность версий, поэтому слушается
+ * каждый шард отдельным потоком и соединением его пула. Состояние ресторанов перечитывается через хранилище и для
+ * удаленных ID: при переносе города между шардами удаление со старого шарда может прийти позже вставки на новый.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.sync.enabled", matchIfMissing = true)
+public class RestaurantSyncListener implements SmartLifecycle {
+
+    static final String CHANNEL = "restaurants_changes";
+
+    private static final String RESYNC_OPERATION = "R";
+    private static final String DELETE_OPERATION = "D";
+
+    private final List<Channel> channels;
+    private final RestaurantStore store;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final long pollTimeoutMillis;
+    private final long reconnectDelayMillis;
+    private final long healthCheckIntervalNanos;
+
+    private final Counter notificationsCounter;
+    private final Counter resyncCounter;
+    private final Counter reconnectCounter;
+
+    private volatile boolean running;
+
+    public RestaurantSyncListener(ObjectProvider<DataSource> dataSource,
+                                  ObjectProvider<Shards> shards,
+                                  RestaurantStore store,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${restaurant.sync.poll-timeout:PT0.5S}") Duration pollTimeout,
+                                  @Value("${restaurant.sync.reconnect-delay:PT1S}") Duration reconnectDelay,
+                                  @Value("${restaurant.sync.health-check-interval:PT10S}") Duration healthCheckInterval) {
+        Shards sharded = shards.getIfAvailable();
+        this.channels = sharded == null
+                ? List.of(new Channel("restaurant-sync-listener", dataSource.getObject()))
+                : sharded.all().stream()
+                .map(shard -> new Channel("restaurant-sync-listener-" + shard.getIndex(), shard.getDataSource()))
+                .toList();
+        this.store = store;
+        this.eventPublisher = eventPublisher;
+        this.pollTimeoutMillis = pollTimeout.toMillis();
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+        this.healthCheckIntervalNanos = healthCheckInterval.toNanos();
+        this.notificationsCounter = Counter.builder("restaurant.sync.notifications")
+                .description("Change notifications received from other instances")
+                .register(meterRegistry);
+        this.resyncCounter = Counter.builder("restaurant.sync.resyncs")
+                .description("Full resynchronizations after missed notifications")
+                .register(meterRegistry);
+        this.reconnectCounter = Counter.builder("restaurant.sync.reconnects")
+                .description("Lost LISTEN connections")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (Channel channel : channels) {
+            channel.thread = new Thread(() -> listen(channel), channel.name);
+            channel.thread.setDaemon(true);
+            channel.thread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Channel channel : channels) {
+            if (channel.thread != null) {
+                try {
+                    channel.thread.join(pollTimeoutMillis * 2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(Channel channel) {
+        while (running) {
+            try (Connection connection = channel.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(true);
+                statement.execute("LISTEN " + CHANNEL);
+                onConnected(channel, currentVersion(statement));
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                long nextHealthCheck = System.nanoTime() + healthCheckIntervalNanos;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeoutMillis);
+                    if (notifications != null && notifications.length > 0) {
+                        handle(channel, notifications);
+                    }
+                    if (System.nanoTime() - nextHealthCheck > 0) {
+                        // Запрос выявляет разорванное соединение, на котором уведомления просто перестали бы приходить
+                        statement.execute("select 1");
+                        nextHealthCheck = System.nanoTime() + healthCheckIntervalNanos;
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                reconnectCounter.increment();
+                log.warn("Restaurant change listener disconnected.; listener: {}; reason: {}", channel.name,
+                        e.getMessage());
+                sleep(reconnectDelayMillis);
+            }
+        }
+    }
+
+    // При первом подключении кеши загружаются сами, при повторном - синхронизируются, если версия ушла вперед
+    void onConnected(Channel channel, long currentVersion) {
+        if (channel.lastVersion >= 0 && currentVersion != channel.lastVersion) {
+            resync(channel.name + " reconnect: version " + channel.lastVersion + " -> " + currentVersion);
+        }
+        channel.lastVersion = currentVersion;
+        log.info("Restaurant change listener connected.; listener: {}; instance: {}; version: {}", channel.name,
+                SyncConfig.INSTANCE_ID, currentVersion);
+    }
+
+    private void handle(Channel channel, PGNotification[] notifications) {
+        List<String> payloads = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            payloads.add(notification.getParameter());
+        }
+        Batch batch = reduce(payloads, SyncConfig.INSTANCE_ID);
+        channel.lastVersion = Math.max(channel.lastVersion, batch.version());
+        notificationsCounter.increment(batch.received());
+        if (batch.resync()) {
+            resync("bulk change");
+            return;
+        }
+        if (batch.upsertIds().isEmpty() && batch.removed().isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new LinkedHashSet<>(batch.upsertIds());
+        ids.addAll(batch.removed());
+        Map<Long, RestaurantSnapshot> upserted = new HashMap<>();
+        for (RestaurantEntity entity : store.findAllById(ids).values()) {
+            upserted.put(entity.getId(), RestaurantSnapshot.of(entity));
+        }
+        // Строка могла быть удалена до чтения, а удаленная - оказаться на другом шарде после переноса города
+        Set<Long> removed = new HashSet<>(batch.removed());
+        removed.removeAll(upserted.keySet());
+        for (Long id : batch.upsertIds()) {
+            if (!upserted.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        eventPublisher.publishEvent(new RestaurantsInvalidatedEvent(upserted, removed, batch.cityKeys()));
+    }
+
+    /**
+     * Сводит пачку уведомлений к последней операции для каждого ID.
+     * <p>
+     * Формат уведомления: {@code версия,операция,id,application_name,city_key}. Ключ города идет последним и
+     * может содержать запятые. Уведомления экземпляра {@code instanceId} учитываются только в версии.
+     */
+    static Batch reduce(List<String> payloads, String instanceId) {
+        long version = -1;
+        int received = 0;
+        boolean resync = false;
+        Set<Long> upsertIds = new LinkedHashSet<>();
+        Set<Long> removed = new HashSet<>();
+        Set<String> cityKeys = new HashSet<>();
+        for (String payload : payloads) {
+            String[] fields = payload.split(",", 5);
+            version = Math.max(version, Long.parseLong(fields[0]));
+            if (instanceId.equals(fields[3])) {
+                continue; // Собственные изменения уже применены локальными событиями
+            }
+            received++;
+            if (RESYNC_OPERATION.equals(fields[1])) {
+                resync = true;
+                continue;
+            }
+            long id = Long.parseLong(fields[2]);
+            cityKeys.add(fields[4]);
+            if (DELETE_OPERATION.equals(fields[1])) {
+                upsertIds.remove(id);
+                removed.add(id);
+            } else {
+                removed.remove(id);
+                upsertIds.add(id);
+            }
+        }
+        return new Batch(version, received, resync, upsertIds, removed, cityKeys);
+    }
+
+    private void resync(String reason) {
+        resyncCounter.increment();
+        log.warn("Restaurant caches resync.; reason: {}", reason);
+        eventPublisher.publishEvent(new RestaurantsResyncEvent(reason));
+    }
+
+    private static long currentVersion(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("select last_value from restaurants_version_seq")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Слушаемая база: поток, соединение которого получает уведомления, и последняя полученная версия.
+     */
+    static final class Channel {
+        private final String name;
+        private final DataSource dataSource;
+        private Thread thread;
+
+        // Изменяется только потоком слушателя этой базы
+        private long lastVersion = -1;
+
+        Channel(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * Пачка уведомлений после сведения.
+     *
+     * @param version   Наибольшая версия в пачке, включая собственные уведомления; -1 для пустой пачки.
+     * @param received  Число уведомлений других экземпляров.
+     * @param resync    Другой экземпляр выполнил массовое изменение.
+     * @param upsertIds ID, последней операцией которых была вставка или обновление.
+     * @param removed   ID, последней операцией которых было удаление.
+     * @param cityKeys  Ключи затронутых городов.
+     */
+    record Batch(long version, int received, boolean resync, Set<Long> upsertIds, Set<Long> removed,
+                 Set<String> cityKeys) {
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
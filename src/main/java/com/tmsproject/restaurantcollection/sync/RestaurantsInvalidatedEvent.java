@@ -0,0 +1,17 @@
+package com.tmsproject.restaurantcollection.sync;
+
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Рестораны, измененные другими экземплярами.
+ *
+ * @param upserted  Текущее состояние созданных и измененных ресторанов по ID.
+ * @param removed   ID удаленных ресторанов.
+ * @param cityKeys  Нормализованные ключи затронутых городов.
+ */
+public record RestaurantsInvalidatedEvent(Map<Long, RestaurantSnapshot> upserted, Set<Long> removed,
+                                          Set<String> cityKeys) {
+}
@@ -0,0 +1,9 @@
+package com.tmsproject.restaurantcollection.sync;
+
+/**
+ * Уведомления могли быть пропущены; локальные кеши и реплики нужно перезагрузить из базы.
+ *
+ * @param reason Причина полной синхронизации.
+ */
+public record RestaurantsResyncEvent(String reason) {
+}
@@ -0,0 +1,34 @@
+package com.tmsproject.restaurantcollection.sync;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * Идентификация экземпляра в базе: соединения пула получают уникальный application_name,
+ * по которому экземпляр узнает и пропускает собственные уведомления.
+ */
+@Configuration
+public class SyncConfig {
+
+    /**
+     * application_name соединений этого экземпляра.
+     */
+    public static final String INSTANCE_ID = "restaurant-collection-" + UUID.randomUUID();
+
+    @Bean
+    static BeanPostProcessor applicationNameCustomizer() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    dataSource.addDataSourceProperty("ApplicationName", INSTANCE_ID);
+                }
+                return bean;
+            }
+        };
+    }
+}
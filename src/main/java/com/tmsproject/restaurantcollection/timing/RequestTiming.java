@@ -0,0 +1,150 @@
+package com.tmsproject.restaurantcollection.timing;
+
+import java.util.Arrays;
+
+/**
+ * Время фаз текущего запроса, накапливаемое в потоке запроса.
+ * <p>
+ * Фазы вкладываются друг в друга: время вложенной фазы вычитается из внешней, поэтому сумма фаз не превышает
+ * общего времени. Например, получение соединения внутри запроса к базе учитывается только в {@link TimingPhase#ACQUIRE}.
+ * Экземпляр создается один раз на поток и переиспользуется; {@link #begin} и {@link #end} не создают объектов и вне
+ * запроса ничего не делают. Каждому {@link #begin} соответствует {@link #end} в {@code finally}.
+ */
+public final class RequestTiming {
+
+    private static final TimingPhase[] PHASES = TimingPhase.values();
+
+    // Глубже вложенные фазы не учитываются отдельно, их время остается во внешней фазе
+    private static final int MAX_DEPTH = 16;
+
+    private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+    private final long[] phaseNanos = new long[PHASES.length];
+
+    // Стек открытых фаз: фаза, время начала и время вложенных фаз
+    private final int[] stackPhase = new int[MAX_DEPTH];
+    private final long[] stackStart = new long[MAX_DEPTH];
+    private final long[] stackChildren = new long[MAX_DEPTH];
+    private int depth;
+
+    private boolean active;
+    private long startNanos;
+    private long totalNanos;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Начинает учет нового запроса в текущем потоке.
+     */
+    public static void start() {
+        RequestTiming timing = CURRENT.get();
+        Arrays.fill(timing.phaseNanos, 0);
+        timing.depth = 0;
+        timing.totalNanos = 0;
+        timing.active = true;
+        timing.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Заканчивает учет запроса.
+     *
+     * @return Время запроса; значения действительны до следующего {@link #start()} в этом потоке.
+     */
+    public static RequestTiming finish() {
+        RequestTiming timing = CURRENT.get();
+        if (timing.active) {
+            timing.totalNanos = System.nanoTime() - timing.startNanos;
+            timing.active = false;
+        }
+        return timing;
+    }
+
+    /**
+     * Открывает фазу.
+     *
+     * @param phase Фаза.
+     */
+    public static void begin(TimingPhase phase) {
+        RequestTiming timing = CURRENT.get();
+        if (!timing.active) {
+            return;
+        }
+        int level = timing.depth++;
+        if (level < MAX_DEPTH) {
+            timing.stackPhase[level] = phase.ordinal();
+            timing.stackChildren[level] = 0;
+            timing.stackStart[level] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Закрывает последнюю открытую фазу.
+     */
+    public static void end() {
+        RequestTiming timing = CURRENT.get();
+        if (!timing.active || timing.depth == 0) {
+            return;
+        }
+        int level = --timing.depth;
+        if (level >= MAX_DEPTH) {
+            return;
+        }
+        long elapsed = System.nanoTime() - timing.stackStart[level];
+        timing.phaseNanos[timing.stackPhase[level]] += elapsed - timing.stackChildren[level];
+        if (level > 0 && level - 1 < MAX_DEPTH) {
+            timing.stackChildren[level - 1] += elapsed;
+        }
+    }
+
+    /**
+     * Собственное время фазы без вложенных фаз, нс.
+     */
+    public long nanos(TimingPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Общее время запроса, нс.
+     */
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Дописывает значение заголовка {@code Server-Timing}: фазы с ненулевым временем и {@code total}.
+     *
+     * @param target Куда дописать.
+     * @return Тот же target.
+     */
+    public StringBuilder appendServerTiming(StringBuilder target) {
+        for (TimingPhase phase : PHASES) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                target.append(phase.getMetricName()).append(";dur=");
+                appendMillis(target, nanos).append(";desc=\"").append(phase.getDescription()).append("\", ");
+            }
+        }
+        return appendMillis(target.append("total;dur="), totalNanos);
+    }
+
+    /**
+     * Дописывает время в миллисекундах с тремя знаками после запятой.
+     *
+     * @param target Куда дописать.
+     * @param nanos  Время, нс.
+     * @return Тот же target.
+     */
+    public static StringBuilder appendMillis(StringBuilder target, long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        target.append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            target.append('0');
+        }
+        if (fraction < 10) {
+            target.append('0');
+        }
+        return target.append(fraction);
+    }
+}
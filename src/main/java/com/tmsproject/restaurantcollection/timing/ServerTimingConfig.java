@@ -0,0 +1,94 @@
+package com.tmsproject.restaurantcollection.timing;
+
+import com.tmsproject.restaurantcollection.conf.BeanInstrumentation;
+import com.tmsproject.restaurantcollection.service.BaseService;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Подключает учет фаз запроса к сервисам, хранилищу ресторанов и пулу соединений.
+ */
+@Configuration
+@ConditionalOnProperty(name = "restaurant.server-timing.enabled", matchIfMissing = true)
+public class ServerTimingConfig {
+
+    @Bean
+    static BeanPostProcessor serverTimingInstrumentation() {
+        return new TimingBeanPostProcessor();
+    }
+
+    /**
+     * Оборачивает бины после создателя прокси Spring, чтобы фаза охватывала транзакцию сервиса.
+     */
+    static final class TimingBeanPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof TimedDataSource)) {
+                return new TimedDataSource(dataSource);
+            }
+            if (bean instanceof BaseService<?>) {
+                return withPhase(bean, TimingPhase.SERVICE);
+            }
+            if (bean instanceof RestaurantStore) {
+                return withPhase(bean, TimingPhase.QUERY);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return BeanInstrumentation.SERVER_TIMING_ORDER;
+        }
+
+        private static Object withPhase(Object bean, TimingPhase phase) {
+            return BeanInstrumentation.withInterceptor(bean, invocation -> {
+                RequestTiming.begin(phase);
+                try {
+                    return invocation.proceed();
+                } finally {
+                    RequestTiming.end();
+                }
+            });
+        }
+    }
+
+    /**
+     * Пул соединений, учитывающий ожидание соединения как фазу {@link TimingPhase#ACQUIRE}.
+     */
+    static final class TimedDataSource extends DelegatingDataSource {
+
+        TimedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            RequestTiming.begin(TimingPhase.ACQUIRE);
+            try {
+                return super.getConnection();
+            } finally {
+                RequestTiming.end();
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            RequestTiming.begin(TimingPhase.ACQUIRE);
+            try {
+                return super.getConnection(username, password);
+            } finally {
+                RequestTiming.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.tmsproject.restaurantcollection.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Учитывает время фаз запросов {@code /restaurant}: получение соединения, запросы к базе, сервис, маппинг и
+ * сериализацию.
+ * <p>
+ * Для доли запросов {@code restaurant.server-timing.sample-rate} время отдается в заголовке {@code Server-Timing}.
+ * Заголовок должен уйти раньше тела, а сериализация заканчивается вместе с телом, поэтому тело выбранных запросов
+ * буферизуется. Поток событий {@code /restaurant/changes} не выбирается независимо от заголовков клиента: его тело
+ * отправляется после возврата из фильтра и осталось бы в буфере. Запросы дольше {@code restaurant.server-timing.slow-threshold}
+ * записываются в журнал {@code restaurant.slow-requests} независимо от выборки.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "restaurant.server-timing.enabled", matchIfMissing = true)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "Server-Timing";
+
+    private static final Logger SLOW_REQUESTS = LoggerFactory.getLogger("restaurant.slow-requests");
+
+    private static final String PATH_PREFIX = "/restaurant";
+    private static final String CHANGES_PATH = PATH_PREFIX + "/changes";
+    private static final String WARM_UP_HEADER = "X-Warm-Up";
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public ServerTimingFilter(@Value("${restaurant.server-timing.sample-rate:0.01}") double sampleRate,
+                              @Value("${restaurant.server-timing.slow-threshold:PT0.5S}") Duration slowThreshold) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = sampled(request) ? new ContentCachingResponseWrapper(response) : null;
+        RequestTiming.start();
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            RequestTiming timing = RequestTiming.finish();
+            if (buffered != null) {
+                if (!request.isAsyncStarted()) {
+                    buffered.setHeader(HEADER, timing.appendServerTiming(new StringBuilder(160)).toString());
+                }
+                buffered.copyBodyToResponse();
+            }
+            if (timing.totalNanos() >= slowThresholdNanos && request.getHeader(WARM_UP_HEADER) == null) {
+                logSlowRequest(request, response, timing);
+            }
+        }
+    }
+
+    private boolean sampled(HttpServletRequest request) {
+        if (sampleRate <= 0) {
+            return false;
+        }
+        if (request.getRequestURI().startsWith(request.getContextPath() + CHANGES_PATH)) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static void logSlowRequest(HttpServletRequest request, HttpServletResponse response, RequestTiming timing) {
+        if (!SLOW_REQUESTS.isWarnEnabled()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(256).append("Slow request.; method: ").append(request.getMethod())
+                .append("; path: ").append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            message.append("; query: ").append(request.getQueryString());
+        }
+        message.append("; status: ").append(response.getStatus());
+        RequestTiming.appendMillis(message.append("; total: "), timing.totalNanos()).append(" ms");
+        long accounted = 0;
+        for (TimingPhase phase : TimingPhase.values()) {
+            long nanos = timing.nanos(phase);
+            accounted += nanos;
+            RequestTiming.appendMillis(message.append("; ").append(phase.getMetricName()).append(": "), nanos)
+                    .append(" ms");
+        }
+        // Время вне учтенных фаз: фильтры, разбор запроса, ожидание в очередях
+        RequestTiming.appendMillis(message.append("; other: "), timing.totalNanos() - accounted).append(" ms");
+        SLOW_REQUESTS.warn(message.toString());
+    }
+}
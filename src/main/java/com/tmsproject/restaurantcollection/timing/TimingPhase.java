@@ -0,0 +1,31 @@
+package com.tmsproject.restaurantcollection.timing;
+
+/**
+ * Фаза обработки запроса в заголовке {@code Server-Timing}.
+ */
+public enum TimingPhase {
+    ACQUIRE("acquire", "DB connection acquire"),
+    QUERY("db", "Database query"),
+    SERVICE("app", "Service"),
+    MAPPING("map", "Entity to DTO mapping"),
+    SERIALIZATION("ser", "JSON serialization");
+
+    private final String metricName;
+    private final String description;
+
+    TimingPhase(String metricName, String description) {
+        this.metricName = metricName;
+        this.description = description;
+    }
+
+    /**
+     * Имя метрики в {@code Server-Timing} и ключ в журнале медленных запросов.
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
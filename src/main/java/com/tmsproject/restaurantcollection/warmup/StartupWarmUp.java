@@ -0,0 +1,289 @@
+package com.tmsproject.restaurantcollection.warmup;
+
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Прогрев экземпляра до того, как он начнет принимать трафик.
+ * <p>
+ * Выполняется последним обработчиком {@link ApplicationReadyEvent}: Spring Boot переводит readiness в
+ * ACCEPTING_TRAFFIC только после всех обработчиков, поэтому проба готовности зеленеет после прогрева. К этому
+ * моменту реплика в памяти и статистика городов уже загружены. Прогрев заполняет пул соединений и повторяет
+ * запросы чтения {@code /restaurant} на выборке ID и городов через настоящий HTTP-порт, чтобы прошли весь путь
+ * Tomcat, MVC, Hibernate и Jackson. Ошибки прогрева не мешают запуску.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restaurant.warm-up.enabled", matchIfMissing = true)
+public class StartupWarmUp {
+
+    // Отсутствует при встроенном хранилище
+    private final ObjectProvider<DataSource> dataSource;
+    private final RestaurantStore store;
+
+    private final int sampleSize;
+    private final int iterations;
+    private final int threads;
+    private final Duration timeout;
+
+    private final AtomicLong durationMillis = new AtomicLong(-1);
+
+    public StartupWarmUp(ObjectProvider<DataSource> dataSource,
+                         RestaurantStore store,
+                         MeterRegistry meterRegistry,
+                         @Value("${restaurant.warm-up.sample-size:20}") int sampleSize,
+                         @Value("${restaurant.warm-up.iterations:50}") int iterations,
+                         @Value("${restaurant.warm-up.threads:4}") int threads,
+                         @Value("${restaurant.warm-up.timeout:PT60S}") Duration timeout) {
+        this.dataSource = dataSource;
+        this.store = store;
+        this.sampleSize = sampleSize;
+        this.iterations = iterations;
+        this.threads = threads;
+        this.timeout = timeout;
+        Gauge.builder("restaurant.warm-up.duration", durationMillis, AtomicLong::get)
+                .description("Startup warm-up duration in milliseconds, -1 until it finishes")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Прогревает экземпляр после загрузки кешей.
+     *
+     * @param event Событие готовности приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        int connections = fillConnectionPool();
+        try {
+            List<String> paths = samplePaths();
+            Map<String, PathTimings> timings = Map.of();
+            if (event.getApplicationContext() instanceof WebServerApplicationContext context && !paths.isEmpty()) {
+                timings = exercise(context.getWebServer().getPort(), paths, deadline);
+            }
+            durationMillis.set((System.nanoTime() - start) / 1_000_000);
+            log.info("Warm-up finished.; took: {} ms; connections: {}; paths: {}", durationMillis.get(), connections,
+                    paths.size());
+            // Сравнение первого и последнего прохода показывает, сколько задержки снял прогрев
+            timings.forEach((endpoint, timing) -> log.info("Warm-up latency.; endpoint: {}; first: {} us; last: {} us; "
+                            + "requests: {}; errors: {}", endpoint, timing.firstMicros(), timing.lastMicros(),
+                    timing.requests(), timing.errors()));
+        } catch (RuntimeException e) {
+            durationMillis.set((System.nanoTime() - start) / 1_000_000);
+            log.warn("Warm-up failed, continuing startup.; took: {} ms; reason: {}", durationMillis.get(), e.getMessage());
+        }
+    }
+
+    // Занимает одновременно все свободные места пула, чтобы Hikari открыл соединения заранее. Соединения, уже
+    // занятые другими (например LISTEN синхронизации), не ждутся: иначе последнее получение ждало бы connectionTimeout.
+    // Ошибка заполнения не прерывает прогрев запросами
+    private int fillConnectionPool() {
+        DataSource dataSource = this.dataSource.getIfAvailable();
+        if (dataSource == null) {
+            return 0;
+        }
+        List<Connection> connections = new ArrayList<>();
+        try {
+            int size = poolCapacity(dataSource);
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("select 1");
+                }
+            }
+            return connections.size();
+        } catch (SQLException e) {
+            log.warn("Connection pool warm-up failed.; opened: {}; reason: {}", connections.size(), e.getMessage());
+            return connections.size();
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Warm-up connection was not closed.; reason: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Пул может быть обернут, например учетом времени получения соединения
+    private int poolCapacity(DataSource dataSource) throws SQLException {
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return threads;
+        }
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        int active = pool == null ? 0 : pool.getActiveConnections();
+        return Math.max(0, hikari.getMaximumPoolSize() - active);
+    }
+
+    // Пути запросов чтения по выборке ресторанов; выборка - верх рейтинга, без полного просмотра таблицы
+    private List<String> samplePaths() {
+        List<Long> ids = new ArrayList<>();
+        List<String> cities = new ArrayList<>();
+        for (RestaurantEntity restaurant : store.findOrderByAverageRatingDesc(sampleSize)) {
+            ids.add(restaurant.getId());
+            String city = RestaurantEntity.cityKey(restaurant.getCity());
+            if (!cities.contains(city)) {
+                cities.add(city);
+            }
+        }
+        List<String> paths = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return paths;
+        }
+        for (Long id : ids) {
+            paths.add("/restaurant/query?id=" + id);
+        }
+        for (String city : cities) {
+            String encoded = URLEncoder.encode(city, StandardCharsets.UTF_8);
+            paths.add("/restaurant/query?city=" + encoded);
+            paths.add("/restaurant/query?city=" + encoded + "&fields=id,name,averageRating");
+            paths.add("/restaurant/stats?city=" + encoded);
+        }
+        StringBuilder batch = new StringBuilder("/restaurant/batch?ids=");
+        for (int i = 0; i < ids.size(); i++) {
+            batch.append(i == 0 ? "" : ",").append(ids.get(i));
+        }
+        paths.add(batch.toString());
+        paths.add("/restaurant/sort?limit=100");
+        paths.add("/restaurant/sort?limit=100&fields=id,name,averageRating");
+        return paths;
+    }
+
+    private Map<String, PathTimings> exercise(int port, List<String> paths, long deadline) {
+        Map<String, PathTimings> timings = new LinkedHashMap<>();
+        for (String path : paths) {
+            timings.computeIfAbsent(endpoint(path), key -> new PathTimings());
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "restaurant-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            AtomicInteger next = new AtomicInteger();
+            int total = paths.size() * iterations;
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < total && System.nanoTime() - deadline < 0;
+                         i = next.getAndIncrement()) {
+                        String path = paths.get(i % paths.size());
+                        send(client, URI.create("http://localhost:" + port + path), timings.get(endpoint(path)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Warm-up requests stopped early.; reason: {}", e.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+        return timings;
+    }
+
+    private static void send(HttpClient client, URI uri, PathTimings timing) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(10))
+                    .header("X-Warm-Up", "true")
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 500) {
+                timing.errors.incrementAndGet();
+            }
+        } catch (IOException e) {
+            timing.errors.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        timing.record((System.nanoTime() - start) / 1_000);
+    }
+
+    // Путь без значений параметров: /restaurant/query?city=&fields=
+    private static String endpoint(String path) {
+        return path.replaceAll("=[^&]*", "=");
+    }
+
+    private static final class PathTimings {
+        private final AtomicLong firstMicros = new AtomicLong(-1);
+        private final AtomicLong lastMicros = new AtomicLong(-1);
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        void record(long micros) {
+            firstMicros.compareAndSet(-1, micros);
+            lastMicros.set(micros);
+            requests.incrementAndGet();
+        }
+
+        long firstMicros() {
+            return firstMicros.get();
+        }
+
+        long lastMicros() {
+            return lastMicros.get();
+        }
+
+        int requests() {
+            return requests.get();
+        }
+
+        int errors() {
+            return errors.get();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+-- История рейтинга: только вставки, секции по месяцам. BRIN по времени занимает несколько страниц на секцию и
+-- подходит для выборок диапазона времени, потому что строки вставляются в порядке времени.
+create table if not exists restaurant_rating_history
+(
+    restaurant_id  bigint        not null,
+    recorded_at    timestamptz   not null,
+    average_rating numeric(9, 5) not null,
+    votes          integer       not null
+) partition by range (recorded_at);
+
+create index if not exists brin_restaurant_rating_history_recorded_at
+    on restaurant_rating_history using brin (recorded_at) with (pages_per_range = 32);
+
+-- История одного ресторана читается по ID, BRIN по разбросанным ID бесполезен
+create index if not exists idx_restaurant_rating_history_restaurant
+    on restaurant_rating_history (restaurant_id, recorded_at);
+------------------------------------------------------------------------------------------------------------------------
+-- Создает секцию месяца, содержащего p_month, если ее еще нет; возвращает имя секции. Границы месяцев - в UTC.
+create or replace function ensure_rating_history_partition(p_month date) returns text
+    language plpgsql as
+$$
+declare
+    v_from      date := date_trunc('month', p_month)::date;
+    v_partition text := 'restaurant_rating_history_' || to_char(v_from, 'YYYY_MM');
+begin
+    if to_regclass(v_partition) is not null then
+        return v_partition;
+    end if;
+    perform pg_advisory_xact_lock(hashtext('restaurant_rating_history_partitions'));
+    if to_regclass(v_partition) is not null then
+        return v_partition;
+    end if;
+    execute format('create table %I partition of restaurant_rating_history for values from (%L) to (%L)',
+                   v_partition, v_from::timestamp at time zone 'UTC',
+                   (v_from + interval '1 month')::timestamp at time zone 'UTC');
+    return v_partition;
+end;
+$$;
+
+select ensure_rating_history_partition((now() at time zone 'UTC')::date);
+select ensure_rating_history_partition(((now() at time zone 'UTC') + interval '1 month')::date);
@@ -0,0 +1,30 @@
+-- Номер версии каждого изменения; экземпляр, пропустивший уведомления, сравнивает его со своим последним номером
+create sequence if not exists restaurants_version_seq;
+------------------------------------------------------------------------------------------------------------------------
+-- Полезная нагрузка: версия,операция,id,application_name источника,city_key (city_key последним, он может содержать запятые).
+-- NOTIFY доставляется только после фиксации транзакции. Массовая загрузка отключает построчные уведомления
+-- через set local restaurants.suppress_notify = 'on' и отправляет одно уведомление о полной синхронизации (операция R).
+create or replace function restaurants_notify() returns trigger
+    language plpgsql as
+$$
+begin
+    if current_setting('restaurants.suppress_notify', true) = 'on' then
+        return null;
+    end if;
+    if tg_op = 'DELETE' then
+        perform pg_notify('restaurants_changes', concat_ws(',', nextval('restaurants_version_seq'), 'D', old.id,
+                                                           current_setting('application_name'), old.city_key));
+    else
+        perform pg_notify('restaurants_changes', concat_ws(',', nextval('restaurants_version_seq'), left(tg_op, 1),
+                                                           new.id, current_setting('application_name'), new.city_key));
+    end if;
+    return null;
+end;
+$$;
+
+drop trigger if exists restaurants_notify on restaurants;
+create trigger restaurants_notify
+    after insert or update or delete
+    on restaurants
+    for each row
+execute function restaurants_notify();
@@ -0,0 +1,31 @@
+-- Имя секции города: читаемая часть ключа и хеш, чтобы разные ключи не совпадали после замены символов
+create or replace function restaurants_partition_name(p_city_key text) returns text
+    language sql
+    immutable as
+$$
+select 'restaurants_' || left(regexp_replace(p_city_key, '[^a-z0-9]+', '_', 'g'), 40) || '_' || left(md5(p_city_key), 8)
+$$;
+------------------------------------------------------------------------------------------------------------------------
+-- Создает секцию города, если ее еще нет, и переносит в нее строки города из секции по умолчанию.
+-- Создание секций сериализуется advisory-блокировкой до конца транзакции; вставки в другие секции не блокируются.
+-- Сервис вызывает функцию в отдельной короткой транзакции до вставки, чтобы блокировки не держались до ее фиксации.
+create or replace function ensure_restaurants_partition(p_city_key text) returns text
+    language plpgsql as
+$$
+declare
+    v_partition text := restaurants_partition_name(p_city_key);
+begin
+    if to_regclass(v_partition) is not null then
+        return v_partition;
+    end if;
+    perform pg_advisory_xact_lock(hashtext('restaurants_partitions'));
+    if to_regclass(v_partition) is not null then
+        return v_partition;
+    end if;
+    execute format('create table %I (like restaurants including defaults including constraints)', v_partition);
+    execute format('insert into %I select * from restaurants_default where city_key = %L', v_partition, p_city_key);
+    delete from restaurants_default where city_key = p_city_key;
+    execute format('alter table restaurants attach partition %I for values in (%L)', v_partition, p_city_key);
+    return v_partition;
+end;
+$$;
@@ -0,0 +1,42 @@
+alter table restaurants rename to restaurants_unpartitioned;
+alter table restaurants_unpartitioned rename constraint restaurant_pkey to restaurants_unpartitioned_pkey;
+drop index if exists idx_fk_restaurants_city;
+drop index if exists idx_restaurants_lower_city;
+------------------------------------------------------------------------------------------------------------------------
+-- Уникальность id обеспечивает последовательность: первичный ключ секционированной таблицы включает ключ секции
+create table restaurants
+(
+    id bigint default nextval('res_id_seq'::regclass) not null,
+    name varchar(100) not null,
+    city varchar(30) not null,
+    city_key varchar(30) not null,
+    estimated_cost int,
+    average_rating numeric(9, 5),
+    votes int,
+    constraint restaurant_pkey primary key (city_key, id),
+    constraint restaurants_city_key_check check (city_key = lower(city))
+) partition by list (city_key);
+
+create table restaurants_default partition of restaurants default;
+
+-- Индексы секционированной таблицы создаются в каждой секции, в том числе в создаваемых позже
+create index idx_restaurants_id on restaurants (id);
+create index idx_restaurants_city_key_name on restaurants (city_key, name);
+------------------------------------------------------------------------------------------------------------------------
+do
+$$
+    declare
+        v_city_key text;
+    begin
+        for v_city_key in select distinct lower(city) from restaurants_unpartitioned
+            loop
+                perform ensure_restaurants_partition(v_city_key);
+            end loop;
+    end
+$$;
+
+insert into restaurants (id, name, city, city_key, estimated_cost, average_rating, votes)
+select id, name, city, lower(city), estimated_cost, average_rating, votes
+from restaurants_unpartitioned;
+
+drop table restaurants_unpartitioned;
@@ -0,0 +1,69 @@
+package com.tmsproject.restaurantcollection.bulk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void mapsColumnsByHeaderAndHandlesQuotes() throws Exception {
+        List<String> records = read("Votes,name,extra,city,average_rating,estimatedCost\r\n"
+                + "5,\"Cafe \"\"Minsk\"\"\",x,Minsk,4.5,10\r\n"
+                + "\n"
+                + "7,\"Two\nlines\",y,Brest,3,20\n");
+
+        assertEquals(List.of("2:Cafe \"Minsk\"|Minsk|10|4.5|5", "4:Two\nlines|Brest|20|3|7"), records);
+    }
+
+    @Test
+    void rejectsMalformedRecordsAndContinues() throws Exception {
+        List<String> records = read("name,city,estimated_cost,average_rating,votes\n"
+                + "a,Minsk,1\n"
+                + "\"b\"x,Minsk,1,2,3\n"
+                + "c,Minsk,1,2,3\n"
+                + "\"d,Minsk,1,2,3\n");
+
+        assertEquals(List.of("2:rejected:expected 5 columns, found 3",
+                "3:rejected:unexpected character after closing quote",
+                "4:c|Minsk|1|2|3",
+                "5:rejected:unterminated quoted field"), records);
+    }
+
+    @Test
+    void failsOnMissingColumns() {
+        assertThrows(IllegalArgumentException.class, () -> read("name,city\na,b\n"));
+    }
+
+    @Test
+    void escapesCopyTextFormat() throws Exception {
+        StringWriter out = new StringWriter();
+        CopyRowWriter writer = new CopyRowWriter(out);
+        writer.write(3, "a\tb", null, "c\\d\n");
+
+        assertEquals("3\ta\\tb\t\\N\tc\\\\d\\n\n", out.toString());
+    }
+
+    private static List<String> read(String csv) throws Exception {
+        List<String> records = new ArrayList<>();
+        new CsvRecordReader(new StringReader(csv)).read(new RestaurantRecordSink() {
+            @Override
+            public void accept(long line, String name, String city, String estimatedCost, String averageRating,
+                               String votes) {
+                records.add(line + ":" + String.join("|", name, city, estimatedCost, averageRating, votes));
+            }
+
+            @Override
+            public void reject(long line, String reason) {
+                records.add(line + ":rejected:" + reason);
+            }
+        });
+        return records;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tmsproject.restaurantcollection.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheFilterTest {
+
+    private static final String BODY = "[" + "{\"id\":1,\"name\":\"Cafe\"},".repeat(100) + "{}]";
+
+    private final ResponseCache cache = new ResponseCache(new SimpleMeterRegistry(), DataSize.ofMegabytes(1));
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(cache, true, DataSize.ofBytes(100));
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @Test
+    void secondRequestIsServedFromCache() throws Exception {
+        MockHttpServletResponse first = get("/restaurant/query", "city", "Minsk");
+        MockHttpServletResponse second = get("/restaurant/query", "city", "Minsk");
+
+        assertEquals(1, handled.get());
+        assertEquals(BODY, first.getContentAsString());
+        assertEquals(BODY, second.getContentAsString());
+        assertEquals("application/json", second.getContentType());
+    }
+
+    @Test
+    void gzipCopyIsServedToClientsThatAcceptIt() throws Exception {
+        get("/restaurant/sort", "limit", "10");
+        MockHttpServletRequest request = request("/restaurant/sort", "limit", "10");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain());
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void cityWriteForcesRecomputation() throws Exception {
+        get("/restaurant/query", "city", "Minsk");
+        get("/restaurant/query", "city", "Paris");
+
+        cache.invalidate(List.of("minsk"));
+        get("/restaurant/query", "city", "Minsk");
+        get("/restaurant/query", "city", "Paris");
+
+        assertEquals(3, handled.get());
+    }
+
+    @Test
+    void requestsWithOtherParametersAreNotCached() throws Exception {
+        get("/restaurant/query", "id", "1");
+        get("/restaurant/query", "id", "1");
+
+        assertEquals(2, handled.get());
+        assertNull(cache.get("application/json /restaurant/query?id=1"));
+    }
+
+    private MockHttpServletResponse get(String path, String parameter, String value) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(path, parameter, value), response, chain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String parameter, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addParameter(parameter, value);
+        return request;
+    }
+
+    private MockFilterChain chain() {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                handled.incrementAndGet();
+                response.setContentType("application/json");
+                response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.tmsproject.restaurantcollection.cache;
+
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = new ResponseCache(new SimpleMeterRegistry(), DataSize.ofKilobytes(64));
+
+    @Test
+    void cityWriteDropsOnlyThatCityAndGlobalEntries() {
+        put("minsk", "minsk");
+        put("paris", "paris");
+        put("sort", ResponseCache.GLOBAL_SCOPE);
+
+        cache.invalidate(List.of("minsk"));
+
+        assertNull(cache.get("minsk"));
+        assertNull(cache.get("sort"));
+        assertNotNull(cache.get("paris"));
+    }
+
+    @Test
+    void responseComputedBeforeInvalidationIsNotStored() {
+        long generation = cache.generation("minsk");
+        cache.invalidate(List.of("minsk"));
+
+        cache.put("minsk", "minsk", generation, response(10));
+
+        assertNull(cache.get("minsk"));
+    }
+
+    @Test
+    void resyncClearsEverything() {
+        put("minsk", "minsk");
+        put("sort", ResponseCache.GLOBAL_SCOPE);
+        long generation = cache.generation("minsk");
+
+        cache.onResync(new RestaurantsResyncEvent("test"));
+
+        assertNull(cache.get("minsk"));
+        assertNull(cache.get("sort"));
+        cache.put("minsk", "minsk", generation, response(10));
+        assertNull(cache.get("minsk"));
+    }
+
+    @Test
+    void evictsLeastRecentlyReadEntriesOverWeightLimit() {
+        for (int i = 0; i < 8; i++) {
+            put("entry-" + i, ResponseCache.GLOBAL_SCOPE, 8 * 1024);
+            cache.get("entry-0"); // Часто читаемая запись не вытесняется
+        }
+
+        assertNotNull(cache.get("entry-0"));
+        assertNull(cache.get("entry-1"));
+        assertNotNull(cache.get("entry-7"));
+    }
+
+    private void put(String key, String scope) {
+        put(key, scope, 10);
+    }
+
+    private void put(String key, String scope, int size) {
+        cache.put(key, scope, cache.generation(scope), response(size));
+    }
+
+    private static CachedResponse response(int size) {
+        return new CachedResponse("application/json", new byte[size], null);
+    }
+}
@@ -2,7 +2,9 @@ package com.tmsproject.restaurantcollection.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tmsproject.restaurantcollection.domain.Rating;
 import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.dto.CityStatsDto;
 import com.tmsproject.restaurantcollection.dto.RestaurantDto;
 import com.tmsproject.restaurantcollection.dto.RestaurantShortDto;
 import com.tmsproject.restaurantcollection.mapper.RestaurantMapper;
@@ -18,6 +20,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -242,4 +245,142 @@ class RestaurantControllerTest {
         assertEquals(expected2, list.get(1));
         assertEquals(expected3, list.get(8));
     }
-}
\ No newline at end of file
+
+    @Test
+    void sparseFieldsets() throws Exception {
+        var response = mockMvc.perform(get(ROOT_URL + "/query?city=brest&fields=averageRating,id"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        List<Map<String, Object>> list = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        assertEquals(2, list.size());
+        Map<Object, Map<String, Object>> byId = list.stream().collect(Collectors.toMap(row -> row.get("id"), row -> row));
+        assertEquals(Map.of("id", 5, "averageRating", "4.34312"), byId.get(5));
+        assertEquals(Map.of("id", 6, "averageRating", "4.51346"), byId.get(6));
+
+        response = mockMvc.perform(get(ROOT_URL + "/sort?limit=2&fields=name,votes"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        list = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        assertEquals(List.of(Map.of("name", "Dominos", "votes", 673), Map.of("name", "Lisica", "votes", 765)), list);
+
+        response = mockMvc.perform(get(ROOT_URL + "/query?id=1&fields=city"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        assertEquals("{\"city\":\"Minsk\"}", response.getContentAsString(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get(ROOT_URL + "?fields=id,password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(ROOT_URL + "/query?id=100500&fields=id"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void batchKeepsRequestOrder() throws Exception {
+        var response = mockMvc.perform(get(ROOT_URL + "/batch?ids=7,100500,5,7&fields=id,name"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        List<Map<String, Object>> list = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        assertEquals(List.of(
+                Map.of("id", 7, "found", true, "restaurant", Map.of("id", 7, "name", "Lisica")),
+                Map.of("id", 100500, "found", false),
+                Map.of("id", 5, "found", true, "restaurant", Map.of("id", 5, "name", "Dominos")),
+                Map.of("id", 7, "found", true, "restaurant", Map.of("id", 7, "name", "Lisica"))), list);
+
+        response = mockMvc.perform(post(ROOT_URL + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1]"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        List<Map<String, Object>> posted = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        RestaurantDto restaurant = objectMapper.convertValue(posted.get(0).get("restaurant"), RestaurantDto.class);
+        assertEquals("4.8574", restaurant.getAverageRating());
+        assertEquals(673, restaurant.getVotes());
+
+        mockMvc.perform(post(ROOT_URL + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getStatsByCity() throws Exception {
+        var requestBuilder = get(ROOT_URL + "/stats?city=brest");
+        var response = mockMvc.perform(requestBuilder)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        CityStatsDto stats = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                new TypeReference<CityStatsDto>() {
+                });
+        CityStatsDto expected = CityStatsDto.builder()
+                .city("brest")
+                .restaurants(2L)
+                .votes(688L)
+                .averageRating("4.50504")
+                .costP50(30)
+                .costP90(40)
+                .costP99(40)
+                .build();
+
+        assertEquals(expected, stats);
+
+        mockMvc.perform(get(ROOT_URL + "/stats?city=atlantis"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void mergeCombinesVotesAndRating() throws Exception {
+        RestaurantEntity survivor = restaurantService.create(RestaurantEntity.builder()
+                .name("Burger King").city("Mozyr").estimatedCost(20)
+                .averageRating(Rating.parse("4.0")).votes(30).build());
+        RestaurantEntity duplicate = restaurantService.create(RestaurantEntity.builder()
+                .name("BurgegKing").city("Mozyr").estimatedCost(25)
+                .averageRating(Rating.parse("5.0")).votes(10).build());
+        RestaurantEntity otherCity = restaurantService.create(RestaurantEntity.builder()
+                .name("Burger King").city("Pinsk").estimatedCost(20)
+                .averageRating(Rating.parse("3.0")).votes(5).build());
+
+        mockMvc.perform(post(ROOT_URL + "/merge")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"survivorId\":" + survivor.getId() + ",\"duplicateIds\":[" + otherCity.getId() + "]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post(ROOT_URL + "/merge")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"survivorId\":" + survivor.getId() + ",\"duplicateIds\":[100500]}"))
+                .andExpect(status().isNotFound());
+
+        var response = mockMvc.perform(post(ROOT_URL + "/merge")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"survivorId\":" + survivor.getId() + ",\"duplicateIds\":[" + duplicate.getId() + "]}"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        RestaurantDto merged = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                RestaurantDto.class);
+        assertEquals(survivor.getId(), merged.getId());
+        assertEquals(40, merged.getVotes());
+        assertEquals("4.25", merged.getAverageRating());
+        assertEquals(20, merged.getEstimatedCost());
+        mockMvc.perform(get(ROOT_URL + "/query?id=" + duplicate.getId()))
+                .andExpect(status().isNotFound());
+
+        restaurantService.delete(survivor.getId());
+        restaurantService.delete(otherCity.getId());
+    }
+}
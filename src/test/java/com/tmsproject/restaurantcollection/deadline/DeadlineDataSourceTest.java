@@ -0,0 +1,125 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import com.tmsproject.restaurantcollection.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineDataSourceTest {
+
+    private final List<String> executed = new ArrayList<>();
+    private final List<Integer> queryTimeouts = new ArrayList<>();
+    private final FakeDataSource target = new FakeDataSource();
+    private final DeadlineDataSource dataSource = new DeadlineDataSource(target);
+
+    @AfterEach
+    void clear() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void withoutDeadlineConnectionIsUnchanged() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertSame(target.connection, connection);
+        }
+    }
+
+    @Test
+    void statementTimeoutIsSetOncePerTransaction() throws Exception {
+        RequestDeadline.start(Duration.ofSeconds(3));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.createStatement().close();
+            connection.prepareStatement("select 1").close();
+            connection.commit();
+            connection.createStatement().close();
+            connection.rollback();
+
+            // Без транзакции действует только время ожидания JDBC
+            connection.setAutoCommit(true);
+            connection.createStatement().close();
+        }
+
+        assertEquals(2, executed.size());
+        assertTrue(executed.stream().allMatch(sql -> sql.startsWith("set local statement_timeout = ")), executed::toString);
+        // Настройка транзакции не сбрасывается отдельной командой при возврате соединения
+        assertTrue(executed.stream().noneMatch(sql -> sql.startsWith("reset")));
+        assertEquals(List.of(3, 3, 3, 3), queryTimeouts);
+    }
+
+    @Test
+    void expiredDeadlineStopsBeforeQuery() throws Exception {
+        RequestDeadline.start(Duration.ofMillis(20));
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        TimeUnit.MILLISECONDS.sleep(40);
+        assertThrows(DeadlineExceededException.class, connection::createStatement);
+        assertThrows(DeadlineExceededException.class, dataSource::getConnection);
+    }
+
+    @Test
+    void deadlineIsFoundInWrappedErrors() {
+        DeadlineExceededException exceeded = new DeadlineExceededException("Request deadline exceeded");
+        assertSame(exceeded, DeadlineConfig.deadlineExceeded(
+                new CannotCreateTransactionException("Could not open JPA EntityManager", exceeded)));
+    }
+
+    /**
+     * Пул с одним соединением Postgres, запоминающим выполненные команды.
+     */
+    private final class FakeDataSource extends AbstractDataSource {
+
+        private boolean autoCommit = true;
+
+        private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getMetaData" -> Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[]{DatabaseMetaData.class}, (metaData, metaMethod, metaArgs) -> "PostgreSQL");
+                    case "getAutoCommit" -> autoCommit;
+                    case "setAutoCommit" -> {
+                        autoCommit = (Boolean) args[0];
+                        yield null;
+                    }
+                    case "createStatement", "prepareStatement" -> statement();
+                    default -> null;
+                });
+
+        private PreparedStatement statement() {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "execute" -> executed.add((String) args[0]);
+                            case "setQueryTimeout" -> queryTimeouts.add((Integer) args[0]);
+                            default -> {
+                            }
+                        }
+                        return method.getReturnType() == boolean.class ? false : null;
+                    });
+        }
+
+        @Override
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return connection;
+        }
+    }
+}
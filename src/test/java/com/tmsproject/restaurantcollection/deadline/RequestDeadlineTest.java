@@ -0,0 +1,119 @@
+package com.tmsproject.restaurantcollection.deadline;
+
+import com.tmsproject.restaurantcollection.exception.DeadlineExceededException;
+import com.tmsproject.restaurantcollection.exception.InvalidParameterException;
+import com.tmsproject.restaurantcollection.limit.AdmissionClass;
+import com.tmsproject.restaurantcollection.limit.EndpointClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.method.HandlerMethod;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestDeadlineTest {
+
+    private final DeadlineInterceptor interceptor = new DeadlineInterceptor(new DeadlineProperties());
+
+    @AfterEach
+    void clear() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void noDeadlineOutsideRequest() {
+        assertFalse(RequestDeadline.isActive());
+        assertEquals(Duration.ofSeconds(5), RequestDeadline.cap(Duration.ofSeconds(5)));
+        RequestDeadline.check();
+    }
+
+    @Test
+    void capsWaitsAndExpires() throws Exception {
+        RequestDeadline.start(Duration.ofMillis(200));
+        assertTrue(RequestDeadline.cap(Duration.ofSeconds(5)).compareTo(Duration.ofMillis(200)) <= 0);
+        assertEquals(Duration.ofMillis(10), RequestDeadline.cap(Duration.ofMillis(10)));
+
+        TimeUnit.MILLISECONDS.sleep(250);
+        assertTrue(RequestDeadline.isExpired());
+        assertEquals(Duration.ZERO, RequestDeadline.cap(Duration.ofSeconds(5)));
+        assertThrows(DeadlineExceededException.class, RequestDeadline::check);
+    }
+
+    @Test
+    void propagatesToOtherThreads() {
+        RequestDeadline.start(Duration.ofSeconds(10));
+        long remaining = CompletableFuture.supplyAsync(RequestDeadline.propagate(RequestDeadline::remainingNanos)).join();
+        assertTrue(remaining > 0 && remaining <= Duration.ofSeconds(10).toNanos());
+        assertEquals(Long.MAX_VALUE, (long) CompletableFuture.supplyAsync(RequestDeadline::remainingNanos).join());
+    }
+
+    @Test
+    void sharedWorkIgnoresCallerDeadline() {
+        assertEquals(Long.MAX_VALUE, (long) RequestDeadline.detach(Duration.ofSeconds(5),
+                RequestDeadline::remainingNanos).get());
+
+        RequestDeadline.start(Duration.ofMillis(1));
+        long shared = RequestDeadline.detach(Duration.ofSeconds(5), RequestDeadline::remainingNanos).get();
+        assertTrue(shared > Duration.ofSeconds(4).toNanos() && shared <= Duration.ofSeconds(5).toNanos());
+        assertTrue(RequestDeadline.remainingNanos() <= Duration.ofMillis(1).toNanos());
+    }
+
+    @Test
+    void interceptorTakesHeaderOrEndpointDefault() throws Exception {
+        HandlerMethod export = new HandlerMethod(new Handlers(), Handlers.class.getMethod("export"));
+        HandlerMethod read = new HandlerMethod(new Handlers(), Handlers.class.getMethod("read"));
+
+        interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), export);
+        assertTrue(RequestDeadline.remainingNanos() > Duration.ofSeconds(29).toNanos());
+        interceptor.afterCompletion(new MockHttpServletRequest(), new MockHttpServletResponse(), export, null);
+        assertFalse(RequestDeadline.isActive());
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Request-Timeout", "1500");
+        interceptor.preHandle(request, new MockHttpServletResponse(), read);
+        assertTrue(RequestDeadline.remainingNanos() <= Duration.ofMillis(1500).toNanos());
+
+        request = new MockHttpServletRequest();
+        request.addHeader("X-Request-Timeout", "3600000");
+        interceptor.preHandle(request, new MockHttpServletResponse(), read);
+        assertTrue(RequestDeadline.remainingNanos() <= Duration.ofSeconds(60).toNanos());
+
+        MockHttpServletRequest invalid = new MockHttpServletRequest();
+        invalid.addHeader("X-Request-Timeout", "soon");
+        assertThrows(InvalidParameterException.class,
+                () -> interceptor.preHandle(invalid, new MockHttpServletResponse(), read));
+    }
+
+    @Test
+    void recognizesCancelledQueries() {
+        assertTrue(DeadlineConfig.isTimeout(new QueryTimeoutException("shared query")));
+        assertTrue(DeadlineConfig.isTimeout(new DataAccessResourceFailureException("cancelled",
+                new SQLException("canceling statement due to statement timeout", "57014"))));
+        assertFalse(DeadlineConfig.isTimeout(new DataAccessResourceFailureException("down",
+                new SQLException("connection refused", "08001"))));
+    }
+
+    static class Handlers {
+
+        @GetMapping
+        @AdmissionClass(EndpointClass.EXPORT)
+        public void export() {
+        }
+
+        @GetMapping
+        public void read() {
+        }
+    }
+}
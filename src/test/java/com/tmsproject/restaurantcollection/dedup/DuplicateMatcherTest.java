@@ -0,0 +1,86 @@
+package com.tmsproject.restaurantcollection.dedup;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateMatcherTest {
+
+    private final DuplicateMatcher matcher = new DuplicateMatcher(0.3, 0.9, 2000);
+
+    @Test
+    void findsMisspelledAndDifferentlySpacedNames() {
+        String[] names = {"Burger King", "BurgegKing", "Papa Johns", "Pizza Hut", "PapaJhons", "Sushi Bar"};
+
+        List<DuplicateMatcher.Match> matches = matcher.match(names);
+
+        assertEquals(2, matches.size(), matches.toString());
+        assertTrue(matches.contains(matchOf(matches, 0, 1)));
+        assertTrue(matches.contains(matchOf(matches, 2, 4)));
+    }
+
+    @Test
+    void ignoresUnrelatedNames() {
+        String[] names = IntStream.range(0, 500).mapToObj(i -> "Restaurant " + Integer.toHexString(i * 7919))
+                .toArray(String[]::new);
+        String[] distinct = {"Burger King", "Pizza Hut", "Sushi Bar", "Taco Bell"};
+
+        assertTrue(matcher.match(distinct).isEmpty());
+        // Общий префикс не делает дублями названия с разными номерами
+        assertTrue(new DuplicateMatcher(0.3, 0.99, 2000).match(names).isEmpty());
+    }
+
+    @Test
+    void jaroWinklerMatchesReferenceValues() {
+        assertEquals(0.961, NameSimilarity.jaroWinkler("martha", "marhta"), 0.001);
+        assertEquals(0.840, NameSimilarity.jaroWinkler("dwayne", "duane"), 0.001);
+        assertEquals(1.0, NameSimilarity.jaroWinkler("burgerking", "burgerking"));
+        assertEquals(0.0, NameSimilarity.jaroWinkler("abc", "xyz"));
+        assertEquals("burgerking", NameSimilarity.normalize("Burger-King!"));
+    }
+
+    @Test
+    void groupsChainedMatchesAroundMostVotedRestaurant() {
+        RestaurantProjection projection = RestaurantProjection.parse("id,name,averageRating,votes");
+        List<ProjectedRestaurant> rows = List.of(
+                projection.map(restaurant(1L, "Burger King", 10)),
+                projection.map(restaurant(2L, "BurgerKing", 50)),
+                projection.map(restaurant(3L, "Burgr King", 5)),
+                projection.map(restaurant(4L, "Pizza Hut", 100)));
+        List<DuplicateMatcher.Match> matches = List.of(
+                new DuplicateMatcher.Match(0, 1, 0.99), new DuplicateMatcher.Match(0, 2, 0.95));
+
+        List<MergeSuggestion> suggestions = DuplicateDetector.group("minsk", rows, matches);
+
+        assertEquals(1, suggestions.size());
+        MergeSuggestion suggestion = suggestions.get(0);
+        assertEquals(2L, suggestion.survivorId());
+        assertEquals(List.of(1L, 3L), suggestion.duplicateIds());
+        assertEquals(0.95, suggestion.score());
+    }
+
+    private static DuplicateMatcher.Match matchOf(List<DuplicateMatcher.Match> matches, int left, int right) {
+        return matches.stream()
+                .filter(match -> match.left() == left && match.right() == right)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static RestaurantEntity restaurant(Long id, String name, int votes) {
+        return RestaurantEntity.builder()
+                .id(id)
+                .name(name)
+                .city("Minsk")
+                .averageRating(Rating.parse("4.5"))
+                .votes(votes)
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.tmsproject.restaurantcollection.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RatingTest {
+
+    @Test
+    void formatsLikeBigDecimal() {
+        for (String text : new String[]{"4.8574", "4.34312", "5", "0", "0.00001", "2.50", "-1.234565", "3.55432536", ".5"}) {
+            String expected = new BigDecimal(text).setScale(Rating.SCALE, RoundingMode.HALF_UP)
+                    .stripTrailingZeros().toPlainString();
+            assertEquals(expected, Rating.parse(text).toString(), text);
+            assertEquals(Rating.valueOf(new BigDecimal(text)), Rating.parse(text), text);
+        }
+    }
+
+    @Test
+    void roundsHalfUp() {
+        assertEquals(400001, Rating.parseScaled("4.000005"));
+        assertEquals(400000, Rating.parseScaled("4.000004"));
+    }
+
+    @Test
+    void rejectsMalformedAndOutOfRange() {
+        for (String text : new String[]{"", "-", ".", "abc", "4,5", "1e2", "10000", "9999.999995"}) {
+            assertThrows(IllegalArgumentException.class, () -> Rating.parse(text), text);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.tmsproject.restaurantcollection.error;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ErrorLogLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    void permitsResetEverySecond() {
+        ErrorLogLimiter limiter = new ErrorLogLimiter(2, 0, now::get);
+        assertEquals(0, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+        assertEquals(0, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+        assertEquals(ErrorLogLimiter.SUPPRESSED, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+        assertEquals(ErrorLogLimiter.SUPPRESSED, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+
+        // В следующую секунду первая запись сообщает, сколько было пропущено
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(2, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+        assertEquals(0, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+    }
+
+    @Test
+    void logsEverySampledRecordOverThePermits() {
+        ErrorLogLimiter limiter = new ErrorLogLimiter(1, 3, now::get);
+        assertEquals(0, limiter.tryAcquire(ErrorCode.INVALID, 400));
+        assertEquals(ErrorLogLimiter.SUPPRESSED, limiter.tryAcquire(ErrorCode.INVALID, 400));
+        assertEquals(ErrorLogLimiter.SUPPRESSED, limiter.tryAcquire(ErrorCode.INVALID, 400));
+        assertEquals(2, limiter.tryAcquire(ErrorCode.INVALID, 400));
+        assertEquals(ErrorLogLimiter.SUPPRESSED, limiter.tryAcquire(ErrorCode.INVALID, 400));
+    }
+
+    @Test
+    void reportsSuppressedRecordsOncePerCodeAndStatus() {
+        ErrorLogLimiter limiter = new ErrorLogLimiter(1, 0, now::get);
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire(ErrorCode.EXCEPTION, 404);
+        }
+        limiter.tryAcquire(ErrorCode.EXCEPTION, 500);
+
+        assertEquals(List.of(new ErrorLogLimiter.Suppressed(ErrorCode.EXCEPTION, 404, 3)), limiter.drainSuppressed());
+        assertEquals(List.of(), limiter.drainSuppressed());
+    }
+
+    @Test
+    void notFoundStormDoesNotSuppressServerErrors() {
+        ErrorLogLimiter limiter = new ErrorLogLimiter(5, 0, now::get);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire(ErrorCode.EXCEPTION, 404);
+        }
+        assertEquals(0, limiter.tryAcquire(ErrorCode.EXCEPTION, 500));
+    }
+}
@@ -0,0 +1,93 @@
+package com.tmsproject.restaurantcollection.history;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.event.ChangeType;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.repository.RatingHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RatingHistoryWriterTest {
+
+    private final RecordingRepository repository = new RecordingRepository();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RatingHistoryWriter writer = new RatingHistoryWriter(repository, meterRegistry,
+            Clock.fixed(Instant.parse("2026-10-18T12:00:00Z"), ZoneOffset.UTC), 2, 100, Duration.ofMillis(50));
+
+    @Test
+    void recordsOnlyRatingChanges() {
+        writer.onRestaurantChanged(new RestaurantChangedEvent(ChangeType.CREATED, null, snapshot("4.5", 10)));
+        writer.onRestaurantChanged(new RestaurantChangedEvent(ChangeType.UPDATED, snapshot("4.5", 10),
+                snapshot("4.5", 10)));
+        writer.onRestaurantChanged(new RestaurantChangedEvent(ChangeType.DELETED, snapshot("4.5", 10), null));
+
+        writer.start();
+        writer.stop();
+
+        assertEquals(List.of(new RatingSample(1, 1_792_324_800_000_000L, 450_000, 10)), repository.inserted);
+    }
+
+    @Test
+    void dropsSamplesWhenQueueIsFull() {
+        for (int votes = 1; votes <= 3; votes++) {
+            writer.onRestaurantChanged(new RestaurantChangedEvent(ChangeType.CREATED, null, snapshot("4", votes)));
+        }
+
+        writer.start();
+        writer.stop();
+
+        assertEquals(2, repository.inserted.size());
+        assertEquals(1.0, meterRegistry.get("restaurant.rating-history.samples").tag("result", "dropped")
+                .counter().count());
+    }
+
+    @Test
+    void ensuresPartitionOncePerMonth() {
+        List<RatingSample> batch = new ArrayList<>(List.of(
+                new RatingSample(1, 1_792_324_800_000_000L, 1, 1),
+                new RatingSample(2, 1_792_324_900_000_000L, 1, 1)));
+
+        writer.flush(batch);
+        writer.flush(new ArrayList<>(List.of(new RatingSample(3, 1_792_325_000_000_000L, 1, 1))));
+
+        assertEquals(List.of(LocalDate.parse("2026-10-18")), repository.partitions);
+        assertEquals(3, repository.inserted.size());
+    }
+
+    private static RestaurantSnapshot snapshot(String rating, int votes) {
+        return new RestaurantSnapshot(1L, "Name", "Minsk", 10, Rating.valueOf(new BigDecimal(rating)), votes);
+    }
+
+    private static class RecordingRepository extends RatingHistoryRepository {
+
+        private final List<RatingSample> inserted = new ArrayList<>();
+        private final List<LocalDate> partitions = new ArrayList<>();
+
+        RecordingRepository() {
+            super(null);
+        }
+
+        @Override
+        public String ensurePartition(LocalDate month) {
+            partitions.add(month);
+            return "restaurant_rating_history_" + month.getYear() + "_" + month.getMonthValue();
+        }
+
+        @Override
+        public void insert(List<RatingSample> samples) {
+            inserted.addAll(samples);
+        }
+    }
+}
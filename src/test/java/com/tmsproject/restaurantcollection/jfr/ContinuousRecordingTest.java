@@ -0,0 +1,87 @@
+package com.tmsproject.restaurantcollection.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContinuousRecordingTest {
+
+    private final ContinuousRecording recording = new ContinuousRecording("default", Duration.ofMinutes(5),
+            DataSize.ofMegabytes(64), Duration.ZERO, List.of(ContinuousRecording.DEFAULT_EXCLUDED_EVENTS.split(",")));
+
+    @AfterEach
+    void stop() {
+        recording.stop();
+    }
+
+    @Test
+    void dumpContainsApplicationEvents(@TempDir Path directory) throws Exception {
+        recording.start();
+        BeanPostProcessor instrumentation = FlightRecorderConfig.flightRecorderInstrumentation();
+        CityRepository repository =
+                (CityRepository) instrumentation.postProcessAfterInitialization(new CityRepository(), "cityRepository");
+
+        assertEquals(2, repository.findCities().size());
+        assertThrows(IllegalArgumentException.class, repository::fail);
+        ErrorEvent.commit("NOT_FOUND", 404, new IllegalStateException("gone"), "GET", "/restaurant/query");
+
+        Path file = directory.resolve("dump.jfr");
+        recording.dump(Duration.ofMinutes(1), file);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        List<RecordedEvent> queries = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.tmsproject.restaurant.Query"))
+                .toList();
+        assertEquals(2, queries.size());
+        RecordedEvent found = queries.stream()
+                .filter(event -> event.getString("operation").equals("findCities"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("cityRepository", found.getString("repository"));
+        assertEquals(2, found.getInt("rows"));
+        assertTrue(queries.stream().anyMatch(event ->
+                IllegalArgumentException.class.getName().equals(event.getString("exception"))));
+
+        RecordedEvent error = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.tmsproject.restaurant.Error"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(404, error.getInt("status"));
+        assertEquals("gone", error.getString("message"));
+
+        // Окружение и аргументы JVM могут содержать пароли и в запись не попадают
+        assertTrue(events.stream().noneMatch(event -> event.getEventType().getName().startsWith("jdk.Initial")
+                || event.getEventType().getName().equals("jdk.JVMInformation")));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().startsWith("jdk.")));
+    }
+
+    @Test
+    void dumpRequiresRunningRecording(@TempDir Path directory) {
+        assertThrows(IllegalStateException.class, () -> recording.dump(Duration.ofMinutes(1), directory.resolve("x.jfr")));
+    }
+
+    @Repository
+    static class CityRepository {
+
+        List<String> findCities() {
+            return List.of("minsk", "brest");
+        }
+
+        void fail() {
+            throw new IllegalArgumentException("broken");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tmsproject.restaurantcollection.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    void criticalRequestsUseReserve() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 0.2);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limit.tryAcquire(false));
+        }
+        assertFalse(limit.tryAcquire(false));
+        assertTrue(limit.tryAcquire(true));
+        assertTrue(limit.tryAcquire(true));
+        assertFalse(limit.tryAcquire(true));
+        assertEquals(1, limit.getRejected());
+        assertEquals(1, limit.getRejectedCritical());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyGrows() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 100, 0);
+        for (int i = 0; i < 1000; i++) {
+            saturateAndRelease(limit, 1_000_000);
+        }
+        int steady = limit.getLimit();
+        for (int i = 0; i < 10; i++) {
+            saturateAndRelease(limit, 20_000_000);
+        }
+        assertTrue(limit.getLimit() < steady);
+    }
+
+    @Test
+    void serverErrorsBackOff() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 100, 0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire(false));
+            limit.release(1_000_000, true);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void nonCriticalRequestsRecoverFromMinimumLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 20, 0.2);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire(false));
+            limit.release(1_000_000, true);
+        }
+        assertEquals(1, limit.getLimit());
+
+        assertTrue(limit.tryAcquire(false));
+        assertFalse(limit.tryAcquire(false));
+        limit.release(1_000_000, false);
+        for (int i = 0; i < 50; i++) {
+            saturateAndRelease(limit, 1_000_000);
+        }
+        assertTrue(limit.getLimit() > 1);
+    }
+
+    private static void saturateAndRelease(AdaptiveConcurrencyLimit limit, long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire(false)) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos, false);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.tmsproject.restaurantcollection.readmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantColumnsTest {
+
+    @Test
+    void ordersByRatingDescending() {
+        RestaurantColumns columns = new RestaurantColumns(0);
+        columns.upsert(1, "a", "Minsk", 10, 400000, 5);
+        columns.upsert(2, "b", "Brest", 20, 450000, 7);
+        columns.upsert(3, "c", "minsk", 30, 300000, 9);
+        columns.rebuildRatingOrder();
+
+        assertEquals(2, columns.id(columns.slotByRatingDesc(0)));
+        assertEquals(1, columns.id(columns.slotByRatingDesc(1)));
+        assertEquals(3, columns.id(columns.slotByRatingDesc(2)));
+    }
+
+    @Test
+    void cityBitmapsFollowUpdatesAndRemovals() {
+        RestaurantColumns columns = new RestaurantColumns(0);
+        columns.upsert(1, "a", "Minsk", 10, 400000, 5);
+        columns.upsert(2, "b", "MINSK", 20, 450000, 7);
+        assertEquals(2, columns.citySlots("minsk").cardinality());
+
+        columns.upsert(2, "b", "Brest", 20, 450000, 8);
+        assertEquals(1, columns.citySlots("minsk").cardinality());
+        assertEquals(8, columns.votes(columns.slotOf(2)));
+
+        assertTrue(columns.remove(1));
+        assertFalse(columns.remove(1));
+        BitSet minsk = columns.citySlots("minsk");
+        assertTrue(minsk.isEmpty());
+        assertEquals(1, columns.size());
+        assertTrue(columns.isRatingOrderDirty());
+    }
+
+    @Test
+    void growsAndReusesFreedSlots() {
+        RestaurantColumns columns = new RestaurantColumns(0);
+        for (long id = 1; id <= 1000; id++) {
+            columns.upsert(id, "r" + id, "City" + (id % 7), (int) id, (int) id, (int) id);
+        }
+        int freed = columns.slotOf(500);
+        columns.remove(500);
+        columns.upsert(5000, "new", "City1", 1, 1, 1);
+
+        assertEquals(freed, columns.slotOf(5000));
+        assertEquals(1000, columns.size());
+        assertEquals(999, columns.cost(columns.slotOf(999)));
+    }
+}
@@ -0,0 +1,114 @@
+package com.tmsproject.restaurantcollection.readmodel;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.event.ChangeType;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.repository.RestaurantRow;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantReadModelTest {
+
+    private final List<RestaurantRow> rows = new CopyOnWriteArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void reloadsWhenPendingChangesOverflowDuringLoad() throws Exception {
+        RestaurantReadModel readModel = new RestaurantReadModel(store(), true, 2);
+        CompletableFuture<Void> load = CompletableFuture.runAsync(readModel::load);
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // Изменения фиксируются в хранилище, пока первая загрузка читает строки
+        for (long id = 1; id <= 3; id++) {
+            rows.add(new Row(id, "Cafe " + id, 400_000));
+            readModel.onRestaurantChanged(new RestaurantChangedEvent(ChangeType.CREATED, null,
+                    new RestaurantSnapshot(id, "Cafe " + id, "Minsk", 10, Rating.ofScaled(400_000), 1)));
+        }
+        release.countDown();
+        load.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, loads.get());
+        assertTrue(readModel.isReady());
+        assertEquals(3, readModel.findAllOrderByAverageRating(0).size());
+    }
+
+    @Test
+    void ordersRestaurantsWithoutRatingLast() {
+        rows.add(new Row(1, "Unrated", null));
+        rows.add(new Row(2, "Lowest", -900_000_000));
+        release.countDown();
+        RestaurantReadModel readModel = new RestaurantReadModel(store(), true, 2);
+        readModel.load();
+
+        assertEquals(List.of(2L, 1L), readModel.findAllOrderByAverageRating(0).stream()
+                .map(RestaurantEntity::getId)
+                .toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private RestaurantStore store() {
+        return (RestaurantStore) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RestaurantStore.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "count" -> (long) rows.size();
+                    case "forEachRow" -> {
+                        List<RestaurantRow> snapshot = List.copyOf(rows);
+                        if (loads.incrementAndGet() == 1) {
+                            loading.countDown();
+                            assertTrue(release.await(5, TimeUnit.SECONDS));
+                        }
+                        snapshot.forEach((Consumer<RestaurantRow>) args[0]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private record Row(long id, String name, Integer rating) implements RestaurantRow {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getCity() {
+            return "Minsk";
+        }
+
+        @Override
+        public Integer getEstimatedCost() {
+            return 10;
+        }
+
+        @Override
+        public Integer getAverageRating() {
+            return rating;
+        }
+
+        @Override
+        public Integer getVotes() {
+            return 1;
+        }
+    }
+}
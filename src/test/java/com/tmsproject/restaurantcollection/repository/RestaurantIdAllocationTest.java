@@ -0,0 +1,94 @@
+package com.tmsproject.restaurantcollection.repository;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RestaurantIdAllocationTest {
+
+    private static final String CITY = "IdAllocation";
+
+    @Autowired
+    private RestaurantRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void blockAllocatedIdsAreUniqueAndStartAfterSequenceRestart() {
+        List<RestaurantEntity> saved = new ArrayList<>();
+        try {
+            for (int i = 0; i < 120; i++) {
+                saved.add(repository.save(restaurant("single-" + i)));
+            }
+            Set<Long> ids = new HashSet<>();
+            saved.forEach(entity -> ids.add(entity.getId()));
+            assertEquals(saved.size(), ids.size());
+            // Тестовые данные перезапускают последовательность с 1000; pooled-lo раздает значения не меньше nextval
+            assertTrue(ids.stream().allMatch(id -> id >= 1000));
+        } finally {
+            repository.deleteAll(saved);
+        }
+    }
+
+    /**
+     * Замер пропускной способности вставок: {@code mvn test -Dtest=RestaurantIdAllocationTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void insertThroughput() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int rows = 5_000;
+        List<RestaurantEntity> saved = new ArrayList<>();
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < rows; i++) {
+                int index = i;
+                saved.add(transaction.execute(status -> repository.save(restaurant("bench-single-" + index))));
+            }
+            report("single inserts", rows, System.nanoTime() - start);
+
+            List<RestaurantEntity> batch = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                batch.add(restaurant("bench-batch-" + i));
+            }
+            start = System.nanoTime();
+            transaction.executeWithoutResult(status -> repository.saveAll(batch));
+            report("batched inserts", rows, System.nanoTime() - start);
+            saved.addAll(batch);
+        } finally {
+            transaction.executeWithoutResult(status -> repository.deleteAll(saved));
+        }
+    }
+
+    private static RestaurantEntity restaurant(String name) {
+        return RestaurantEntity.builder()
+                .name(name)
+                .city(CITY)
+                .estimatedCost(10)
+                .averageRating(Rating.parse("4.5"))
+                .votes(1)
+                .build();
+    }
+
+    private static void report(String name, int rows, long nanos) {
+        System.out.printf("%s: %d rows in %d ms, %.0f rows/s%n", name, rows, nanos / 1_000_000,
+                rows * 1_000_000_000.0 / nanos);
+    }
+}
@@ -0,0 +1,276 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tmsproject.restaurantcollection.event.ChangeType;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.exception.OverloadedException;
+import com.tmsproject.restaurantcollection.mapper.RestaurantMapper;
+import com.tmsproject.restaurantcollection.sync.RestaurantsInvalidatedEvent;
+import com.tmsproject.restaurantcollection.sync.RestaurantsResyncEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantChangeFeedTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private RestaurantChangeFeed feed;
+
+    @AfterEach
+    void shutdown() {
+        emitters.forEach(RecordingEmitter::release);
+        if (feed != null) {
+            feed.shutdown();
+        }
+    }
+
+    @Test
+    void resumesAfterLastEventId() throws Exception {
+        feed = feed(16, 10, 4, Duration.ofSeconds(10));
+        RecordingEmitter first = subscribe(null);
+        publish(1, 2, 3);
+        SentEvent one = first.next();
+        assertEquals("created", one.name());
+        assertTrue(one.data().contains("\"id\":1"), one.data());
+        first.next();
+        first.next();
+
+        RecordingEmitter resumed = subscribe(one.id());
+        assertTrue(resumed.next().data().contains("\"id\":2"));
+        SentEvent three = resumed.next();
+        assertTrue(three.data().contains("\"id\":3"));
+        assertNull(resumed.poll(100));
+
+        // Клиент, получивший все события, ждет новых без повторов
+        RecordingEmitter upToDate = subscribe(three.id());
+        publish(4);
+        assertTrue(upToDate.next().data().contains("\"id\":4"));
+    }
+
+    @Test
+    void resetsWhenMissedEventsAreOverwritten() throws Exception {
+        feed = feed(4, 10, 4, Duration.ofSeconds(10));
+        RecordingEmitter first = subscribe(null);
+        publish(1);
+        long oldId = first.next().id();
+        publish(2, 3, 4, 5, 6, 7, 8, 9);
+
+        RecordingEmitter lagging = subscribe(oldId);
+        SentEvent reset = lagging.next();
+        assertEquals(RestaurantChangeFeed.RESET_EVENT, reset.name());
+        publish(10);
+        assertTrue(lagging.next().data().contains("\"id\":10"));
+
+        // Номер из предыдущего запуска тоже приводит к reset
+        assertEquals(RestaurantChangeFeed.RESET_EVENT, subscribe(5L).next().name());
+    }
+
+    @Test
+    void deliversChangesOfOtherInstances() throws Exception {
+        feed = feed(16, 10, 4, Duration.ofSeconds(10));
+        RecordingEmitter emitter = subscribe(null);
+        RestaurantSnapshot changed = new RestaurantSnapshot(7L, "Cafe 7", "Brest", 10, null, 3);
+        feed.onRestaurantsInvalidated(new RestaurantsInvalidatedEvent(Map.of(7L, changed), Set.of(8L),
+                Set.of("brest")));
+
+        SentEvent updated = emitter.next();
+        assertEquals("updated", updated.name());
+        assertTrue(updated.data().contains("\"name\":\"Cafe 7\""), updated.data());
+        SentEvent deleted = emitter.next();
+        assertEquals("deleted", deleted.name());
+        assertTrue(deleted.data().contains("\"id\":8"), deleted.data());
+    }
+
+    @Test
+    void resyncResetsConnectedAndResumingSubscribers() throws Exception {
+        feed = feed(16, 10, 4, Duration.ofSeconds(10));
+        RecordingEmitter emitter = subscribe(null);
+        publish(1);
+        long beforeResync = emitter.next().id();
+
+        feed.onRestaurantsResync(new RestaurantsResyncEvent("reconnect"));
+        assertEquals(RestaurantChangeFeed.RESET_EVENT, emitter.next().name());
+        publish(2);
+        assertTrue(emitter.next().data().contains("\"id\":2"));
+
+        // Клиент, переподключившийся с номером до синхронизации, тоже должен перечитать список
+        assertEquals(RestaurantChangeFeed.RESET_EVENT, subscribe(beforeResync).next().name());
+    }
+
+    @Test
+    void limitsSubscribersAndFreesSlotsOfDisconnectedClients() throws Exception {
+        feed = feed(16, 2, 4, Duration.ofSeconds(10));
+        RecordingEmitter disconnecting = subscribe(null);
+        RecordingEmitter staying = subscribe(null);
+        assertThrows(OverloadedException.class, () -> feed.subscribe(null));
+
+        disconnecting.failSends();
+        publish(1);
+        assertTrue(staying.next().data().contains("\"id\":1"));
+        awaitCount("client", 1);
+
+        RecordingEmitter replacement = subscribe(null);
+        publish(2);
+        assertTrue(replacement.next().data().contains("\"id\":2"));
+        assertTrue(disconnecting.completed);
+    }
+
+    @Test
+    void slowSubscriberDoesNotDelayOthers() throws Exception {
+        feed = feed(16, 10, 1, Duration.ofMillis(200));
+        RecordingEmitter slow = subscribe(null);
+        RecordingEmitter fast = subscribe(null);
+        slow.block();
+
+        publish(1);
+        assertTrue(slow.awaitBlocked());
+        assertTrue(fast.next().data().contains("\"id\":1"));
+        // Единственный поток отправки занят медленным подписчиком до его отключения
+        publish(2);
+        assertTrue(fast.next().data().contains("\"id\":2"));
+        awaitCount("slow", 1);
+
+        slow.release();
+        publish(3);
+        assertTrue(fast.next().data().contains("\"id\":3"));
+        assertEquals(1, meterRegistry.get("restaurant.changes.subscribers").gauge().value());
+    }
+
+    private RestaurantChangeFeed feed(int capacity, int maxSubscribers, int senderThreads, Duration sendTimeout) {
+        return new RestaurantChangeFeed(new RestaurantMapper(), new ObjectMapper(), meterRegistry, capacity,
+                maxSubscribers, senderThreads, Duration.ofMinutes(30), Duration.ofHours(1), sendTimeout) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private RecordingEmitter subscribe(Long lastEventId) {
+        return (RecordingEmitter) feed.subscribe(lastEventId);
+    }
+
+    private void publish(long... ids) {
+        for (long id : ids) {
+            RestaurantSnapshot snapshot = new RestaurantSnapshot(id, "Cafe " + id, "Minsk", 10, null, 0);
+            feed.onRestaurantChanged(new RestaurantChangedEvent(ChangeType.CREATED, null, snapshot));
+        }
+    }
+
+    private void awaitCount(String reason, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("restaurant.changes.disconnected").tag("reason", reason).counter().count()
+                < expected) {
+            assertTrue(System.nanoTime() < deadline, "Subscriber was not disconnected: " + reason);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private record SentEvent(Long id, String name, String data) {
+    }
+
+    /**
+     * Emitter без контейнера сервлетов: запоминает отправленные события, может блокировать или прерывать отправку.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<SentEvent> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+        private volatile boolean failing;
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            CountDownLatch current = gate;
+            if (current != null) {
+                blocked.countDown();
+                try {
+                    current.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String text = builder.build().stream()
+                    .map(data -> data.getData().toString())
+                    .collect(Collectors.joining());
+            if (text.startsWith(":")) {
+                return; // heartbeat
+            }
+            Long id = null;
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            for (String line : text.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = Long.valueOf(line.substring(3));
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring(5));
+                }
+            }
+            events.add(new SentEvent(id, name, data.toString()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        SentEvent next() throws InterruptedException {
+            SentEvent event = poll(5000);
+            assertNotNull(event, "No event received");
+            return event;
+        }
+
+        SentEvent poll(long millis) throws InterruptedException {
+            return events.poll(millis, TimeUnit.MILLISECONDS);
+        }
+
+        void failSends() {
+            failing = true;
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        boolean awaitBlocked() throws InterruptedException {
+            return blocked.await(5, TimeUnit.SECONDS);
+        }
+
+        void release() {
+            CountDownLatch current = gate;
+            gate = null;
+            if (current != null) {
+                current.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.deadline.RequestDeadline;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.readmodel.RestaurantReadModel;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    // Остаток срока, который видела загрузка из хранилища, по имени метода хранилища
+    private final Map<String, Long> remainingNanos = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void clear() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void projectedSharedLoadsRunWithoutCallerDeadline() {
+        RestaurantStore store = (RestaurantStore) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RestaurantStore.class}, (proxy, method, args) -> {
+                    remainingNanos.put(method.getName(), RequestDeadline.remainingNanos());
+                    return List.of();
+                });
+        RestaurantService service = new RestaurantService(store, event -> {
+        }, new RestaurantReadModel(store, false, 1), TIMEOUT, TIMEOUT, 100);
+        RestaurantProjection projection = RestaurantProjection.parse("id,name");
+
+        RequestDeadline.start(Duration.ofMillis(1));
+        service.findAllByCity("Minsk", projection);
+        service.findTopByAverageRating(10, projection);
+
+        // Общая загрузка ограничена своим таймаутом, а не сроком первого клиента
+        for (String method : List.of("findAllByCityKey", "findOrderByAverageRatingDesc")) {
+            long remaining = remainingNanos.get(method);
+            assertTrue(remaining > Duration.ofSeconds(4).toNanos() && remaining <= TIMEOUT.toNanos(), method);
+        }
+    }
+}
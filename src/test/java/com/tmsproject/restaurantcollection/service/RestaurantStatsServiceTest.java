@@ -0,0 +1,144 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.event.ChangeType;
+import com.tmsproject.restaurantcollection.event.RestaurantChangedEvent;
+import com.tmsproject.restaurantcollection.event.RestaurantSnapshot;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantStatsServiceTest {
+
+    private static final String CITY = "minsk";
+
+    // Число ресторанов города в базе
+    private final AtomicInteger restaurants = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+    private volatile CountDownLatch reading;
+    private volatile CountDownLatch release;
+
+    private final RestaurantStatsService service = new RestaurantStatsService(store(), new SimpleMeterRegistry());
+
+    @AfterEach
+    void clear() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void changeAppliedDuringReadIsNotLost() throws Exception {
+        restaurants.set(1);
+        service.load();
+        reading = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        CompletableFuture<Void> refresh = CompletableFuture.runAsync(() -> service.refresh(CITY));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // Чтение уже прошло, а изменение фиксируется и применяется до замены агрегатов
+        restaurants.set(2);
+        service.onRestaurantChanged(created(2));
+        release.countDown();
+        refresh.get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, reads.get()); // Загрузка, прерванное перестроение и повторное чтение
+        assertEquals(2L, service.findByCity(CITY).orElseThrow().getRestaurants());
+    }
+
+    @Test
+    void committedChangeIsNotCountedTwice() {
+        restaurants.set(1);
+        service.load();
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.onRestaurantChanged(created(2));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        // Строка уже видна в базе, а событие после фиксации еще не применено
+        restaurants.set(2);
+        service.refresh(CITY);
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(2L, service.findByCity(CITY).orElseThrow().getRestaurants());
+    }
+
+    @Test
+    void rolledBackChangeIsIgnored() {
+        restaurants.set(1);
+        service.load();
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.onRestaurantChanged(created(2));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        restaurants.set(3);
+        service.refresh(CITY);
+
+        assertEquals(3L, service.findByCity(CITY).orElseThrow().getRestaurants());
+    }
+
+    private static RestaurantChangedEvent created(long id) {
+        return new RestaurantChangedEvent(ChangeType.CREATED, null,
+                new RestaurantSnapshot(id, "Cafe " + id, "Minsk", 10, Rating.parse("4"), 1));
+    }
+
+    private RestaurantStore store() {
+        return (RestaurantStore) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RestaurantStore.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findCityCostBuckets")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    List<CityCostBucket> buckets = List.of(bucket(restaurants.get()));
+                    if (reads.incrementAndGet() == 2 && reading != null) {
+                        reading.countDown();
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                    }
+                    return buckets;
+                });
+    }
+
+    private static CityCostBucket bucket(long count) {
+        return new CityCostBucket() {
+            @Override
+            public String getCity() {
+                return CITY;
+            }
+
+            @Override
+            public Integer getCost() {
+                return 10;
+            }
+
+            @Override
+            public Long getRestaurants() {
+                return count;
+            }
+
+            @Override
+            public Long getVotes() {
+                return count;
+            }
+
+            @Override
+            public BigDecimal getWeightedRating() {
+                return BigDecimal.valueOf(4 * count);
+            }
+        };
+    }
+}
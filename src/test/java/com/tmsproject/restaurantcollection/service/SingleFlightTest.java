@@ -0,0 +1,177 @@
+package com.tmsproject.restaurantcollection.service;
+
+import com.tmsproject.restaurantcollection.deadline.RequestDeadline;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("city:minsk", TIMEOUT, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "result";
+            }));
+            waitForInFlight(singleFlight);
+
+            List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> {
+                    followerThreads.add(Thread.currentThread());
+                    return singleFlight.execute("city:minsk", TIMEOUT, () -> {
+                        loads.incrementAndGet();
+                        return "other";
+                    });
+                }));
+            }
+            waitUntilWaiting(followerThreads, 7);
+            release.countDown();
+
+            assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0, singleFlight.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureIsSharedAndNotRemembered() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("sort", TIMEOUT, () -> {
+                await(release);
+                throw new IllegalStateException("db down");
+            }));
+            waitForInFlight(singleFlight);
+            List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+            Future<String> follower = executor.submit(() -> {
+                followerThreads.add(Thread.currentThread());
+                return singleFlight.execute("sort", TIMEOUT, () -> "unused");
+            });
+            // Ведущий завершается только после того, как ведомый ждет его загрузку
+            waitUntilWaiting(followerThreads, 1);
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertTrue(leaderError.getCause() instanceof IllegalStateException);
+            assertTrue(followerError.getCause() instanceof IllegalStateException);
+
+            assertEquals("fresh", singleFlight.execute("sort", TIMEOUT, () -> "fresh"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void leaderDeadlineDoesNotFailFollowers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> {
+                RequestDeadline.start(Duration.ofMillis(50));
+                try {
+                    return singleFlight.execute("sort", TIMEOUT, RequestDeadline.detach(TIMEOUT, () -> {
+                        await(release);
+                        RequestDeadline.check(); // Общая загрузка не зависит от срока ведущего
+                        return "shared";
+                    }));
+                } finally {
+                    RequestDeadline.clear();
+                }
+            });
+            waitForInFlight(singleFlight);
+            List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+            Future<String> follower = executor.submit(() -> {
+                followerThreads.add(Thread.currentThread());
+                return singleFlight.execute("sort", TIMEOUT, () -> "unused");
+            });
+            waitUntilWaiting(followerThreads, 1);
+            TimeUnit.MILLISECONDS.sleep(100);
+            release.countDown();
+
+            assertEquals("shared", follower.get(5, TimeUnit.SECONDS));
+            assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void followerTimesOut() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> singleFlight.execute("sort", TIMEOUT, () -> {
+                await(release);
+                return "late";
+            }));
+            waitForInFlight(singleFlight);
+
+            assertThrows(QueryTimeoutException.class,
+                    () -> singleFlight.execute("sort", Duration.ofMillis(50), () -> "unused"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForInFlight(SingleFlight<?, ?> singleFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.size() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void waitUntilWaiting(List<Thread> threads, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (threads.size() == expected
+                    && threads.stream().allMatch(thread -> thread.getState() == Thread.State.TIMED_WAITING)) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.service.RestaurantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JpaRestaurantStoreTest extends RestaurantStoreContractTest {
+
+    @Autowired
+    private RestaurantStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RestaurantService service;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    protected RestaurantStore store() {
+        return store;
+    }
+
+    @Test
+    void ordersRestaurantsWithoutRatingLast() {
+        // Сервис не сохраняет ресторан без рейтинга, такие строки приходят только из базы
+        Long unratedId = jdbcTemplate.queryForObject("insert into restaurants "
+                + "(name, city, city_key, estimated_cost, average_rating, votes) values (?, ?, ?, 10, null, 0) "
+                + "returning id", Long.class, "Unrated", CITY, RestaurantEntity.cityKey(CITY));
+        Long ratedId = store.save(restaurant("Lowest", "-9000", 1)).getId();
+
+        List<Long> ordered = store.findOrderByAverageRatingDesc(0).stream()
+                .map(RestaurantEntity::getId)
+                .filter(id -> id.equals(unratedId) || id.equals(ratedId))
+                .toList();
+        assertEquals(List.of(ratedId, unratedId), ordered);
+    }
+
+    @Test
+    void mergeDoesNotOverwriteConcurrentUpdateOfSurvivor() throws Exception {
+        RestaurantEntity survivor = store.save(restaurant("Survivor", "4", 10));
+        RestaurantEntity duplicate = store.save(restaurant("Duplicate", "2", 10));
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Обновление держит строку оставшегося ресторана до фиксации
+            Future<?> update = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> {
+                        service.update(RestaurantEntity.builder().id(survivor.getId()).votes(30).build());
+                        updated.countDown();
+                        try {
+                            assertTrue(release.await(5, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }));
+            assertTrue(updated.await(5, TimeUnit.SECONDS));
+            Future<RestaurantEntity> merge = executor.submit(() ->
+                    service.merge(survivor.getId(), List.of(duplicate.getId())));
+            TimeUnit.MILLISECONDS.sleep(200);
+            assertFalse(merge.isDone());
+
+            release.countDown();
+            update.get(5, TimeUnit.SECONDS);
+            RestaurantEntity merged = merge.get(5, TimeUnit.SECONDS);
+            assertEquals(40, merged.getVotes());
+            assertEquals(40, store.findById(survivor.getId()).orElseThrow().getVotes());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static RestaurantEntity restaurant(String name, String rating, int votes) {
+        return RestaurantEntity.builder()
+                .name(name)
+                .city(CITY)
+                .estimatedCost(10)
+                .averageRating(Rating.parse(rating))
+                .votes(votes)
+                .build();
+    }
+}
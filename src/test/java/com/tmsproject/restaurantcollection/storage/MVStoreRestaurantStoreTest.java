@@ -0,0 +1,56 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MVStoreRestaurantStoreTest extends RestaurantStoreContractTest {
+
+    private static final MVStoreRestaurantStore STORE = new MVStoreRestaurantStore("", 16);
+
+    @AfterAll
+    static void close() {
+        STORE.close();
+    }
+
+    @Override
+    protected RestaurantStore store() {
+        return STORE;
+    }
+
+    @Test
+    void reopenedFileKeepsRowsAndContinuesIds(@TempDir Path directory) {
+        String file = directory.resolve("restaurants.mv.db").toString();
+        long id;
+        MVStoreRestaurantStore store = new MVStoreRestaurantStore(file, 1);
+        try {
+            id = store.save(restaurant("Persisted")).getId();
+        } finally {
+            store.close();
+        }
+
+        MVStoreRestaurantStore reopened = new MVStoreRestaurantStore(file, 1);
+        try {
+            assertEquals("Persisted", reopened.findById(id).orElseThrow().getName());
+            assertEquals(id + 1, reopened.save(restaurant("Next")).getId());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static RestaurantEntity restaurant(String name) {
+        return RestaurantEntity.builder()
+                .name(name)
+                .city("Minsk")
+                .estimatedCost(10)
+                .averageRating(Rating.parse("4.5"))
+                .votes(1)
+                .build();
+    }
+}
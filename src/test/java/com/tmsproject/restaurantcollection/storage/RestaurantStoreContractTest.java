@@ -0,0 +1,221 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import com.tmsproject.restaurantcollection.projection.ProjectedRestaurant;
+import com.tmsproject.restaurantcollection.projection.RestaurantField;
+import com.tmsproject.restaurantcollection.projection.RestaurantProjection;
+import com.tmsproject.restaurantcollection.repository.CityCostBucket;
+import com.tmsproject.restaurantcollection.repository.CityTotals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Общие проверки реализаций {@link RestaurantStore}. Тесты работают только с городами {@link #CITY} и
+ * {@link #OTHER_CITY}, поэтому не мешают данным, уже лежащим в хранилище.
+ */
+abstract class RestaurantStoreContractTest {
+
+    static final String CITY = "StoreContract";
+    private static final String OTHER_CITY = "StoreContractOther";
+
+    protected abstract RestaurantStore store();
+
+    @AfterEach
+    void cleanUp() {
+        for (String city : List.of(CITY, OTHER_CITY)) {
+            store().findAllByCityKey(RestaurantEntity.cityKey(city)).forEach(store()::delete);
+        }
+    }
+
+    @Test
+    void saveAssignsIdAndFindsById() {
+        RestaurantEntity saved = store().save(restaurant("Saved", CITY, 10, "4.25", 3));
+
+        RestaurantEntity found = store().findById(saved.getId()).orElseThrow();
+        assertEquals("Saved", found.getName());
+        assertEquals(CITY, found.getCity());
+        assertEquals(10, found.getEstimatedCost());
+        assertEquals(Rating.parse("4.25"), found.getAverageRating());
+        assertEquals(3, found.getVotes());
+        assertTrue(store().findById(-1).isEmpty());
+    }
+
+    @Test
+    void updateKeepsIdAndIndexes() {
+        RestaurantEntity saved = store().save(restaurant("Updated", CITY, 10, "1", 1));
+        RestaurantEntity entity = store().findById(saved.getId()).orElseThrow();
+        entity.setAverageRating(Rating.parse("4.5"));
+        entity.setVotes(7);
+        store().save(entity);
+
+        RestaurantEntity found = store().findById(saved.getId()).orElseThrow();
+        assertEquals(Rating.parse("4.5"), found.getAverageRating());
+        assertEquals(7, found.getVotes());
+        assertEquals(1, store().findAllByCityKey(RestaurantEntity.cityKey(CITY)).size());
+        assertEquals(saved.getId(), store().findByNameAndCity("Updated", CITY).orElseThrow().getId());
+    }
+
+    @Test
+    void findsByCityKeyAndIds() {
+        RestaurantEntity first = store().save(restaurant("First", CITY, 10, "3", 1));
+        RestaurantEntity second = store().save(restaurant("Second", CITY, 20, "4", 1));
+        RestaurantEntity other = store().save(restaurant("Other", OTHER_CITY, 30, "5", 1));
+
+        List<RestaurantEntity> city = store().findAllByCityKey(RestaurantEntity.cityKey(CITY));
+        assertEquals(Set.of(first.getId(), second.getId()),
+                Set.copyOf(city.stream().map(RestaurantEntity::getId).toList()));
+
+        Map<Long, RestaurantEntity> byId = store().findAllById(List.of(first.getId(), other.getId(), -1L));
+        assertEquals(Set.of(first.getId(), other.getId()), byId.keySet());
+
+        RestaurantProjection projection = RestaurantProjection.parse("id,name");
+        ProjectedRestaurant projected = store().findById(second.getId(), projection).orElseThrow();
+        assertEquals("Second", projected.get(RestaurantField.NAME));
+        assertNull(projected.get(RestaurantField.CITY));
+    }
+
+    @Test
+    void ordersByRatingDescending() {
+        List<Long> expected = new ArrayList<>();
+        for (String rating : List.of("9000.5", "9000.25", "9000.125", "9000")) {
+            expected.add(store().save(restaurant("Rated " + rating, CITY, 10, rating, 1)).getId());
+        }
+
+        List<Long> ordered = store().findOrderByAverageRatingDesc(0).stream()
+                .map(RestaurantEntity::getId)
+                .filter(expected::contains)
+                .toList();
+        assertEquals(expected, ordered);
+        assertEquals(expected.subList(0, 2), store().findOrderByAverageRatingDesc(2).stream()
+                .map(RestaurantEntity::getId)
+                .toList());
+    }
+
+    @Test
+    void rejectsDuplicateNameAndCity() {
+        store().save(restaurant("Twin", CITY, 10, "4", 1));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store().save(restaurant("Twin", CITY, 20, "3", 2)));
+        assertTrue(store().findByNameAndCity("Twin", CITY).isPresent());
+        assertTrue(store().findByNameAndCity("Twin", OTHER_CITY).isEmpty());
+    }
+
+    @Test
+    void deleteRemovesRowAndIndexes() {
+        RestaurantEntity saved = store().save(restaurant("Deleted", CITY, 10, "4", 1));
+
+        store().delete(saved);
+
+        assertTrue(store().findById(saved.getId()).isEmpty());
+        assertTrue(store().findAllByCityKey(RestaurantEntity.cityKey(CITY)).isEmpty());
+        assertTrue(store().findByNameAndCity("Deleted", CITY).isEmpty());
+        assertFalse(store().findOrderByAverageRatingDesc(0).stream().anyMatch(r -> r.getId().equals(saved.getId())));
+        // После удаления имя снова свободно
+        store().save(restaurant("Deleted", CITY, 10, "4", 1));
+    }
+
+    @Test
+    void aggregatesCityBucketsAndTotals() {
+        store().save(restaurant("Cheap", CITY, 10, "4", 2));
+        store().save(restaurant("Cheap too", CITY, 10, "3", 1));
+        store().save(restaurant("Dear", CITY, 50, "5", 4));
+        String cityKey = RestaurantEntity.cityKey(CITY);
+
+        List<CityCostBucket> buckets = store().findCityCostBuckets(cityKey);
+        assertEquals(2, buckets.size());
+        CityCostBucket cheap = buckets.stream().filter(b -> b.getCost() == 10).findFirst().orElseThrow();
+        assertEquals(2, cheap.getRestaurants());
+        assertEquals(3, cheap.getVotes());
+        assertEquals(0, new BigDecimal("11").compareTo(cheap.getWeightedRating()));
+
+        CityTotals totals = store().findCityTotals().stream()
+                .filter(t -> t.getCity().equals(cityKey))
+                .findFirst().orElseThrow();
+        assertEquals(3, totals.getRestaurants());
+        assertEquals(7, totals.getVotes());
+        assertEquals(0, new BigDecimal("31").compareTo(totals.getWeightedRating()));
+        assertEquals(3, store().findCityCostBuckets().stream().filter(b -> b.getCity().equals(cityKey))
+                .mapToLong(CityCostBucket::getRestaurants).sum());
+    }
+
+    @Test
+    void streamsAllRows() {
+        RestaurantEntity saved = store().save(restaurant("Streamed", CITY, 10, "4.5", 1));
+        List<Integer> ratings = new ArrayList<>();
+
+        store().forEachRow(row -> {
+            if (row.getId().equals(saved.getId())) {
+                ratings.add(row.getAverageRating());
+            }
+        });
+
+        assertEquals(List.of(Rating.parse("4.5").scaled()), ratings);
+        assertTrue(store().count() >= 1);
+    }
+
+    /**
+     * Замер хранилища: {@code mvn test -Dtest=<реализация>Test -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughput() {
+        int rows = 5_000;
+        List<RestaurantEntity> saved = new ArrayList<>(rows);
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            saved.add(store().save(restaurant("bench-" + i, i % 2 == 0 ? CITY : OTHER_CITY, i % 100,
+                    Integer.toString(i % 5), i)));
+        }
+        report("inserts", rows, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (RestaurantEntity entity : saved) {
+            store().findById(entity.getId());
+        }
+        report("point reads", rows, System.nanoTime() - start);
+
+        int scans = 100;
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            store().findAllByCityKey(RestaurantEntity.cityKey(CITY));
+        }
+        report("city scans", scans, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            store().findOrderByAverageRatingDesc(100);
+        }
+        report("top-100 by rating", scans, System.nanoTime() - start);
+    }
+
+    private static RestaurantEntity restaurant(String name, String city, int cost, String rating, int votes) {
+        return RestaurantEntity.builder()
+                .name(name)
+                .city(city)
+                .estimatedCost(cost)
+                .averageRating(Rating.parse(rating))
+                .votes(votes)
+                .build();
+    }
+
+    private static void report(String name, int operations, long nanos) {
+        System.out.printf("%s: %d in %d ms, %.0f ops/s%n", name, operations, nanos / 1_000_000,
+                operations * 1_000_000_000.0 / nanos);
+    }
+}
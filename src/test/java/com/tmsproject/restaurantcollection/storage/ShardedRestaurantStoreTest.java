@@ -0,0 +1,48 @@
+package com.tmsproject.restaurantcollection.storage;
+
+import com.tmsproject.restaurantcollection.storage.sharding.Shard;
+import com.tmsproject.restaurantcollection.storage.sharding.ShardedRestaurantStore;
+import com.tmsproject.restaurantcollection.storage.sharding.Shards;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Контрактные проверки на двух шардах, каждый в своем контейнере Postgres.
+ */
+class ShardedRestaurantStoreTest extends RestaurantStoreContractTest {
+
+    private static Shards shards;
+    private static RestaurantStore store;
+
+    @BeforeAll
+    static void openShards() {
+        shards = new Shards(List.of(openShard(0), openShard(1)), 64);
+        store = new ShardedRestaurantStore(shards, 100);
+    }
+
+    @AfterAll
+    static void closeShards() {
+        shards.close();
+    }
+
+    /**
+     * Шард в отдельном контейнере: контейнер Testcontainers создается на каждое имя базы в URL.
+     */
+    static Shard openShard(int index) {
+        Shard shard = Shard.open(index, "jdbc:tc:postgresql:13.3:///shard" + index, "postgres", "postgres",
+                "org.testcontainers.jdbc.ContainerDatabaseDriver", 4);
+        shard.migrate("classpath:liquibase/db.changelog-master.xml", Map.of("restaurant.id.block-size", "50"),
+                new DefaultResourceLoader());
+        shard.reserveIdRange();
+        return shard;
+    }
+
+    @Override
+    protected RestaurantStore store() {
+        return store;
+    }
+}
@@ -0,0 +1,65 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MergingIteratorTest {
+
+    @Test
+    void mergesSortedSourcesIncludingEmptyOnes() {
+        List<Iterator<Integer>> sources = List.of(List.of(1, 4, 7).iterator(), Collections.<Integer>emptyIterator(),
+                List.of(2, 2, 9).iterator(), List.of(3).iterator());
+
+        List<Integer> merged = new ArrayList<>();
+        new MergingIterator<>(sources, Comparator.<Integer>naturalOrder()).forEachRemaining(merged::add);
+
+        assertEquals(List.of(1, 2, 2, 3, 4, 7, 9), merged);
+    }
+
+    @Test
+    void readsSourcesLazily() {
+        CountingIterator first = new CountingIterator(100);
+        CountingIterator second = new CountingIterator(100);
+        MergingIterator<Integer> merged = new MergingIterator<>(List.of(first, second), Comparator.reverseOrder());
+
+        for (int i = 0; i < 3; i++) {
+            merged.next();
+        }
+
+        // По одному элементу на старте и по одному на каждый выданный
+        assertEquals(5, first.read + second.read);
+    }
+
+    @Test
+    void emptyWithoutSources() {
+        assertFalse(new MergingIterator<Integer>(List.of(), Comparator.naturalOrder()).hasNext());
+    }
+
+    private static final class CountingIterator implements Iterator<Integer> {
+        private int next;
+        private int read;
+
+        CountingIterator(int start) {
+            this.next = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next > 0;
+        }
+
+        @Override
+        public Integer next() {
+            read++;
+            return next--;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import com.tmsproject.restaurantcollection.domain.Rating;
+import com.tmsproject.restaurantcollection.domain.RestaurantEntity;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRebalancerTest {
+
+    private static Shard first;
+    private static Shard second;
+
+    @BeforeAll
+    static void openShards() {
+        first = openShard(0);
+        second = openShard(1);
+    }
+
+    @AfterAll
+    static void closeShards() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void movesCitiesToAddedShardAndKeepsIds() {
+        ShardedRestaurantStore before = new ShardedRestaurantStore(new Shards(List.of(first), 64), 100);
+        List<RestaurantEntity> saved = new ArrayList<>();
+        for (int city = 0; city < 20; city++) {
+            for (int i = 0; i < 3; i++) {
+                saved.add(before.save(RestaurantEntity.builder()
+                        .name("Rebalanced " + i)
+                        .city("Rebalance" + city)
+                        .estimatedCost(10)
+                        .averageRating(Rating.parse("4"))
+                        .votes(i)
+                        .build()));
+            }
+        }
+        assertTrue(saved.stream().allMatch(entity -> ShardIds.originOf(entity.getId()) == 0));
+
+        Shards after = new Shards(List.of(first, second), 64);
+        ShardedRestaurantStore store = new ShardedRestaurantStore(after, 100);
+        ShardRebalancer.RebalanceReport report = new ShardRebalancer(after, store, 2).rebalance();
+
+        assertTrue(report.cities() > 0 && report.cities() < 20);
+        assertEquals(report.cities() * 3L, report.rows());
+        assertTrue(report.conflicts().isEmpty());
+        for (RestaurantEntity entity : saved) {
+            Shard owner = after.forCity(entity.getCityKey());
+            assertEquals(1, owner.getJdbcTemplate().queryForObject(
+                    "select count(*) from restaurants where id = ?", Integer.class, entity.getId()));
+            assertEquals(entity.getName(), store.findById(entity.getId()).orElseThrow().getName());
+        }
+        assertEquals(saved.size(), store.findAllById(saved.stream().map(RestaurantEntity::getId).toList()).size());
+        assertEquals(0, new ShardRebalancer(after, store, 2).rebalance().rows());
+
+        saved.forEach(store::delete);
+    }
+
+    private static Shard openShard(int index) {
+        Shard shard = Shard.open(index, "jdbc:tc:postgresql:13.3:///rebalance" + index, "postgres", "postgres",
+                "org.testcontainers.jdbc.ContainerDatabaseDriver", 4);
+        shard.migrate("classpath:liquibase/db.changelog-master.xml", Map.of("restaurant.id.block-size", "50"),
+                new DefaultResourceLoader());
+        shard.reserveIdRange();
+        return shard;
+    }
+}
@@ -0,0 +1,55 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTest {
+
+    private static final int CITIES = 10_000;
+
+    @Test
+    void spreadsCitiesEvenlyAndIndependentlyOfShardOrder() {
+        ShardRing ring = new ShardRing(List.of(0, 1, 2, 3), 256);
+        ShardRing reordered = new ShardRing(List.of(3, 1, 0, 2), 256);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < CITIES; i++) {
+            String city = "city-" + i;
+            assertEquals(ring.shardFor(city), reordered.shardFor(city));
+            counts.merge(ring.shardFor(city), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - CITIES / 4) < CITIES / 4 / 5,
+                "Uneven shard: " + counts));
+    }
+
+    @Test
+    void addedShardTakesCitiesOnlyFromOthers() {
+        ShardRing before = new ShardRing(List.of(0, 1, 2), 256);
+        ShardRing after = new ShardRing(List.of(0, 1, 2, 3), 256);
+        int moved = 0;
+        for (int i = 0; i < CITIES; i++) {
+            String city = "city-" + i;
+            int owner = after.shardFor(city);
+            if (owner != before.shardFor(city)) {
+                assertEquals(3, owner); // Переезжают только города нового шарда
+                moved++;
+            }
+        }
+        assertTrue(Math.abs(moved - CITIES / 4) < CITIES / 4 / 5, "Moved: " + moved);
+    }
+
+    @Test
+    void idRangesDoNotOverlap() {
+        assertEquals(1, ShardIds.first(0));
+        assertTrue(ShardIds.last(0) < ShardIds.first(1));
+        assertEquals(0, ShardIds.originOf(ShardIds.last(0)));
+        assertEquals(5, ShardIds.originOf(ShardIds.first(5)));
+        assertEquals(Long.MAX_VALUE, ShardIds.last(ShardIds.MAX_SHARD));
+    }
+}
@@ -0,0 +1,28 @@
+package com.tmsproject.restaurantcollection.storage.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardingConfigTest {
+
+    @Test
+    void parsesNumberedShardUrls() {
+        Map<Integer, String> shards = ShardingConfig.parseShards(
+                " 0=jdbc:postgresql://a:5432/restaurant?ssl=true , 3=jdbc:postgresql://b/restaurant");
+
+        assertEquals(List.of(0, 3), List.copyOf(shards.keySet()));
+        assertEquals("jdbc:postgresql://a:5432/restaurant?ssl=true", shards.get(0));
+    }
+
+    @Test
+    void rejectsMissingOrDuplicateNumbers() {
+        assertThrows(IllegalStateException.class, () -> ShardingConfig.parseShards("jdbc:postgresql://a/restaurant"));
+        assertThrows(IllegalStateException.class, () -> ShardingConfig.parseShards("1=a,1=b"));
+        assertThrows(IllegalStateException.class, () -> ShardingConfig.parseShards(" "));
+    }
+}
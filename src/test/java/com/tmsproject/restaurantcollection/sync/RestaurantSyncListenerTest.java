@@ -0,0 +1,102 @@
+package com.tmsproject.restaurantcollection.sync;
+
+import com.tmsproject.restaurantcollection.storage.RestaurantStore;
+import com.tmsproject.restaurantcollection.storage.sharding.Shards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantSyncListenerTest {
+
+    private static final String SELF = "self";
+    private static final String OTHER = "other";
+
+    @Test
+    void cityKeyWithCommasIsReadWhole() {
+        RestaurantSyncListener.Batch batch = RestaurantSyncListener.reduce(
+                List.of("7,I,1," + OTHER + ",new york, ny"), SELF);
+
+        assertEquals(Set.of(1L), batch.upsertIds());
+        assertEquals(Set.of("new york, ny"), batch.cityKeys());
+        assertEquals(7, batch.version());
+    }
+
+    @Test
+    void ownNotificationsOnlyAdvanceVersion() {
+        RestaurantSyncListener.Batch batch = RestaurantSyncListener.reduce(
+                List.of("3,U,1," + OTHER + ",minsk", "4,D,2," + SELF + ",grodno", "5,R,0," + SELF + ","), SELF);
+
+        assertEquals(5, batch.version());
+        assertEquals(1, batch.received());
+        assertFalse(batch.resync());
+        assertEquals(Set.of(1L), batch.upsertIds());
+        assertTrue(batch.removed().isEmpty());
+        assertEquals(Set.of("minsk"), batch.cityKeys());
+    }
+
+    @Test
+    void lastOperationPerIdWins() {
+        RestaurantSyncListener.Batch batch = RestaurantSyncListener.reduce(List.of(
+                "1,I,1," + OTHER + ",minsk",
+                "2,D,1," + OTHER + ",minsk",
+                "3,D,2," + OTHER + ",brest",
+                "4,I,2," + OTHER + ",brest",
+                "5,U,3," + OTHER + ",minsk"), SELF);
+
+        assertEquals(Set.of(2L, 3L), batch.upsertIds());
+        assertEquals(Set.of(1L), batch.removed());
+        assertEquals(Set.of("minsk", "brest"), batch.cityKeys());
+    }
+
+    @Test
+    void bulkChangeOfOtherInstanceRequiresResync() {
+        RestaurantSyncListener.Batch batch = RestaurantSyncListener.reduce(
+                List.of("8,U,1," + OTHER + ",minsk", "9,R,0," + OTHER + ","), SELF);
+
+        assertTrue(batch.resync());
+        assertEquals(9, batch.version());
+    }
+
+    @Test
+    void reconnectWithAdvancedVersionPublishesResync() {
+        List<Object> events = new ArrayList<>();
+        RestaurantSyncListener listener = listener(events);
+        RestaurantSyncListener.Channel channel = new RestaurantSyncListener.Channel("test", null);
+
+        listener.onConnected(channel, 10); // Первое подключение: кеши загружаются сами
+        listener.onConnected(channel, 10); // Пока соединения не было, изменений не было
+        assertTrue(events.isEmpty());
+
+        listener.onConnected(channel, 12);
+        assertEquals(1, events.size());
+        assertInstanceOf(RestaurantsResyncEvent.class, events.get(0));
+
+        listener.onConnected(channel, 12);
+        assertEquals(1, events.size());
+    }
+
+    private static RestaurantSyncListener listener(List<Object> events) {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("dataSource", new SimpleDriverDataSource());
+        RestaurantStore store = (RestaurantStore) Proxy.newProxyInstance(RestaurantStore.class.getClassLoader(),
+                new Class<?>[]{RestaurantStore.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new RestaurantSyncListener(beans.getBeanProvider(DataSource.class),
+                beans.getBeanProvider(Shards.class), store, events::add, new SimpleMeterRegistry(),
+                Duration.ofMillis(100), Duration.ofMillis(100), Duration.ofSeconds(1));
+    }
+}
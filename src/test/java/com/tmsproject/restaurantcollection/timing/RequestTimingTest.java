@@ -0,0 +1,58 @@
+package com.tmsproject.restaurantcollection.timing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTimingTest {
+
+    @Test
+    void nestedPhaseIsSubtractedFromOuterPhase() throws InterruptedException {
+        RequestTiming.start();
+        RequestTiming.begin(TimingPhase.SERVICE);
+        TimeUnit.MILLISECONDS.sleep(20);
+        RequestTiming.begin(TimingPhase.QUERY);
+        TimeUnit.MILLISECONDS.sleep(30);
+        RequestTiming.end();
+        RequestTiming.end();
+        RequestTiming timing = RequestTiming.finish();
+
+        long service = TimeUnit.NANOSECONDS.toMillis(timing.nanos(TimingPhase.SERVICE));
+        long query = TimeUnit.NANOSECONDS.toMillis(timing.nanos(TimingPhase.QUERY));
+        assertTrue(service >= 20 && service < 30, "service: " + service);
+        assertTrue(query >= 30, "query: " + query);
+        assertTrue(timing.totalNanos() >= timing.nanos(TimingPhase.SERVICE) + timing.nanos(TimingPhase.QUERY));
+    }
+
+    @Test
+    void phasesOutsideRequestAreIgnored() {
+        RequestTiming.finish();
+        RequestTiming.begin(TimingPhase.QUERY);
+        RequestTiming.end();
+
+        RequestTiming.start();
+        RequestTiming timing = RequestTiming.finish();
+        assertEquals(0, timing.nanos(TimingPhase.QUERY));
+    }
+
+    @Test
+    void serverTimingListsNonZeroPhasesAndTotal() {
+        RequestTiming.start();
+        RequestTiming.begin(TimingPhase.MAPPING);
+        RequestTiming.end();
+        String header = RequestTiming.finish().appendServerTiming(new StringBuilder()).toString();
+
+        assertTrue(header.matches("(map;dur=\\d+\\.\\d{3};desc=\"Entity to DTO mapping\", )?total;dur=\\d+\\.\\d{3}"),
+                header);
+    }
+
+    @Test
+    void millisAreFormattedWithThreeDecimals() {
+        assertEquals("0.005", RequestTiming.appendMillis(new StringBuilder(), 5_999).toString());
+        assertEquals("12.345", RequestTiming.appendMillis(new StringBuilder(), 12_345_678).toString());
+        assertEquals("1.050", RequestTiming.appendMillis(new StringBuilder(), 1_050_000).toString());
+    }
+}
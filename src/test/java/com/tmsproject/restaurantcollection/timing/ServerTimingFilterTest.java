@@ -0,0 +1,75 @@
+package com.tmsproject.restaurantcollection.timing;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerTimingFilterTest {
+
+    @Test
+    void sampledResponseCarriesPhasesAndBody() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(1.0, Duration.ofMinutes(1));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/restaurant/sort"), response,
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest request, HttpServletResponse servletResponse)
+                            throws IOException {
+                        RequestTiming.begin(TimingPhase.SERIALIZATION);
+                        try {
+                            servletResponse.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8));
+                            servletResponse.flushBuffer();
+                        } finally {
+                            RequestTiming.end();
+                        }
+                    }
+                }));
+
+        assertEquals("[]", response.getContentAsString());
+        String header = response.getHeader(ServerTimingFilter.HEADER);
+        assertTrue(header.startsWith("ser;dur="), header);
+        assertTrue(header.contains("total;dur="), header);
+    }
+
+    @Test
+    void unsampledAndOtherPathsHaveNoHeader() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(0, Duration.ofMinutes(1));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/restaurant/sort"), response, new MockFilterChain());
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+
+        filter = new ServerTimingFilter(1.0, Duration.ofMinutes(1));
+        response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, new MockFilterChain());
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+    }
+
+    @Test
+    void eventStreamsAreNotBuffered() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(1.0, Duration.ofMinutes(1));
+        // Поток выбирается по пути, а не по заголовку Accept клиента
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/restaurant/changes");
+        request.addHeader("Accept", "*/*");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertSame(response, chain.getResponse());
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+    }
+}